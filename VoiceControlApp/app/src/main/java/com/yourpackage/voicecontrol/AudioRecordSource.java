@@ -0,0 +1,77 @@
+package com.yourpackage.voicecontrol;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+public class AudioRecordSource implements AudioSource {
+    private static final int CHANNEL_CONFIG = AudioFormat.CHANNEL_IN_MONO;
+    private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
+    
+    private final int sampleRate;
+    private int bufferSizeInBytes;
+    // Read by the capture thread, replaced by start() and stop()
+    private volatile AudioRecord audioRecord;
+    
+    public AudioRecordSource(int sampleRate, int bufferSizeInBytes) {
+        this.sampleRate = sampleRate;
+        this.bufferSizeInBytes = bufferSizeInBytes;
+    }
+    
+    public static int getMinBufferSize(int sampleRate) {
+        return AudioRecord.getMinBufferSize(sampleRate, CHANNEL_CONFIG, AUDIO_FORMAT);
+    }
+    
+    // Size of AudioRecord's internal buffer, applied on the next start()
+    public void setBufferSizeInBytes(int bufferSizeInBytes) {
+        this.bufferSizeInBytes = bufferSizeInBytes;
+    }
+    
+    @Override
+    public boolean start() {
+        audioRecord = new AudioRecord(
+            MediaRecorder.AudioSource.MIC,
+            sampleRate,
+            CHANNEL_CONFIG,
+            AUDIO_FORMAT,
+            bufferSizeInBytes
+        );
+        
+        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            audioRecord.release();
+            audioRecord = null;
+            return false;
+        }
+        
+        audioRecord.startRecording();
+        return true;
+    }
+    
+    @Override
+    public int read(short[] buffer, int offset, int length) {
+        AudioRecord record = audioRecord;
+        if (record == null) {
+            return AudioRecord.ERROR_INVALID_OPERATION;
+        }
+        return record.read(buffer, offset, length);
+    }
+    
+    @Override
+    public void stop() {
+        AudioRecord record = audioRecord;
+        if (record != null) {
+            audioRecord = null;
+            try {
+                record.stop();
+                record.release();
+            } catch (Exception e) {
+                // Ignore cleanup errors
+            }
+        }
+    }
+    
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+}
\ No newline at end of file
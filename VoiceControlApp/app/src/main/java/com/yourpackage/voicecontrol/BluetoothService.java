@@ -1,122 +1,267 @@
 package com.yourpackage.voicecontrol;
 
 import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.widget.Toast;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.UUID;
+import java.util.Collections;
 
-public class BluetoothService {
-    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+public class BluetoothService implements DeviceGroup.Listener {
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
     
-    private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
-    private OutputStream outputStream;
     private Context context;
     private Handler mainHandler;
     
+    // One persistent link per device: each connects in the background, reconnects with
+    // backoff, and keeps commands queued while it is down. Usually a single device, several
+    // when commands should reach more than one board.
+    private final DeviceGroup group;
+    private volatile boolean announceNextConnect;
+    
     public BluetoothService(Context context) {
+        this(context, new RfcommTransport(BluetoothAdapter.getDefaultAdapter()),
+            DEFAULT_QUEUE_CAPACITY, CommandQueue.OverflowPolicy.DROP_OLDEST);
+    }
+    
+    public BluetoothService(Context context, Transport transport, int queueCapacity,
+                            CommandQueue.OverflowPolicy overflowPolicy) {
         this.context = context;
-        this.bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.group = new DeviceGroup(transport, queueCapacity, overflowPolicy);
+        this.group.setListener(this);
     }
     
+    // Makes this the only device
     public void connect(String macAddress) {
-        new Thread(() -> {
-            try {
-                BluetoothDevice device = bluetoothAdapter.getRemoteDevice(macAddress);
-                bluetoothSocket = device.createRfcommSocketToServiceRecord(MY_UUID);
-                
-                bluetoothAdapter.cancelDiscovery();
-                bluetoothSocket.connect();
-                outputStream = bluetoothSocket.getOutputStream();
-                
-                mainHandler.post(() -> 
-                    Toast.makeText(context, "Connected to " + device.getName(), 
-                        Toast.LENGTH_SHORT).show());
-                        
-            } catch (IOException e) {
-                mainHandler.post(() -> 
-                    Toast.makeText(context, "Connection failed: " + e.getMessage(), 
-                        Toast.LENGTH_SHORT).show());
-                e.printStackTrace();
-            }
-        }).start();
+        announceNextConnect = true;
+        group.setDevices(Collections.singletonList(macAddress));
+    }
+    
+    // Also sends every command to this device; returns false if it already gets them
+    public boolean addDevice(String macAddress) {
+        announceNextConnect = true;
+        return group.add(macAddress);
+    }
+    
+    public boolean removeDevice(String macAddress) {
+        return group.remove(macAddress);
+    }
+    
+    public int getDeviceCount() {
+        return group.size();
+    }
+    
+    // Makes the picked device the one send() goes to and opens its link ahead of the first
+    // command, so that doesn't pay the connect latency. A group of several devices is left
+    // as it is.
+    public void prewarm(String macAddress) {
+        if (group.size() <= 1) {
+            group.setDevices(Collections.singletonList(macAddress));
+        }
     }
     
     public void sendData(String data) {
-        if (outputStream != null) {
-            new Thread(() -> {
-                try {
-                    outputStream.write((data + "\n").getBytes());
-                    outputStream.flush();
-                    
-                    mainHandler.post(() -> 
-                        Toast.makeText(context, "Sent: " + data, 
-                            Toast.LENGTH_SHORT).show());
-                            
-                } catch (IOException e) {
-                    mainHandler.post(() -> 
-                        Toast.makeText(context, "Send failed: " + e.getMessage(), 
-                            Toast.LENGTH_SHORT).show());
-                    e.printStackTrace();
-                }
-            }).start();
-        } else {
+        if (group.send(data) == null) {
             Toast.makeText(context, "Not connected to device", Toast.LENGTH_SHORT).show();
         }
     }
     
-    public void connectAndSend(String macAddress, String data) {
-        new Thread(() -> {
-            try {
-                if (bluetoothSocket == null || !bluetoothSocket.isConnected()) {
-                    BluetoothDevice device = bluetoothAdapter.getRemoteDevice(macAddress);
-                    bluetoothSocket = device.createRfcommSocketToServiceRecord(MY_UUID);
-                    
-                    bluetoothAdapter.cancelDiscovery();
-                    bluetoothSocket.connect();
-                    outputStream = bluetoothSocket.getOutputStream();
-                }
-                
-                // Send data immediately after connection
-                outputStream.write((data + "\n").getBytes());
-                outputStream.flush();
-                
-                mainHandler.post(() -> 
-                    Toast.makeText(context, "Command sent: " + data, 
-                        Toast.LENGTH_SHORT).show());
-                        
-            } catch (IOException e) {
-                mainHandler.post(() -> 
-                    Toast.makeText(context, "Failed: " + e.getMessage(), 
-                        Toast.LENGTH_SHORT).show());
-                e.printStackTrace();
-            }
-        }).start();
+    // A configured command: its payload is taken pre-encoded, and in binary mode its id goes
+    // on the wire. Delivery latency counts from issuedNanos, e.g. the end of the utterance.
+    // The command waits in the queue while a connection is being established; null if no
+    // device has been picked.
+    public DeviceGroup.Dispatch send(CommandTable.Entry entry, long issuedNanos) {
+        return group.send(entry, issuedNanos);
+    }
+    
+    // Enables compact binary frames; commands sent as plain data go out as raw text frames
+    public void setBinaryFraming(boolean enabled) {
+        group.setBinaryFraming(enabled);
+    }
+    
+    // Has the devices acknowledge every binary frame; needs firmware that sends ACK frames.
+    // Unacknowledged frames are retransmitted after timeoutMs, up to maxRetransmits times.
+    public void setAcknowledgements(boolean enabled, long timeoutMs, int maxRetransmits) {
+        group.setAckTimeout(timeoutMs, maxRetransmits);
+        group.setAcknowledgements(enabled);
+    }
+    
+    // Marks a payload as SAFETY (preempts everything) or MOTION (latest one wins)
+    public void setCommandPriority(String data, OutboundScheduler.Priority priority) {
+        group.setCommandPriority(data, priority);
+    }
+    
+    public OutboundScheduler.Priority getCommandPriority(String data) {
+        return group.getCommandPriority(data);
+    }
+    
+    public void setHeartbeatInterval(long intervalMs) {
+        group.setHeartbeatInterval(intervalMs);
     }
     
     public void disconnect() {
-        try {
-            if (outputStream != null) {
-                outputStream.close();
-                outputStream = null;
-            }
-            if (bluetoothSocket != null) {
-                bluetoothSocket.close();
-                bluetoothSocket = null;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        group.disconnect();
     }
     
+    // True if any device is connected
     public boolean isConnected() {
-        return bluetoothSocket != null && bluetoothSocket.isConnected();
+        return group.getConnectedCount() > 0;
+    }
+    
+    // DeviceGroup.Listener, called on the link threads
+    @Override
+    public void onConnected(String address) {
+        if (announceNextConnect) {
+            announceNextConnect = false;
+            mainHandler.post(() -> 
+                Toast.makeText(context, "Connected to " + address, 
+                    Toast.LENGTH_SHORT).show());
+        }
+    }
+    
+    @Override
+    public void onConnectionFailed(String address, IOException error, long retryDelayMs) {
+        if (announceNextConnect) {
+            announceNextConnect = false;
+            mainHandler.post(() -> 
+                Toast.makeText(context, "Connection failed: " + error.getMessage() + ", retrying", 
+                    Toast.LENGTH_SHORT).show());
+        }
+    }
+    
+    @Override
+    public void onDisconnected(String address, IOException error) {
+        mainHandler.post(() -> 
+            Toast.makeText(context, "Connection lost, reconnecting...", 
+                Toast.LENGTH_SHORT).show());
+    }
+    
+    @Override
+    public void onDelivered(DeviceGroup.Dispatch dispatch, String address, long latencyNanos) {
+        // Once, when the last device has it; a device that is down shows its own toasts
+        if (!dispatch.isComplete()) {
+            return;
+        }
+        String devices = dispatch.getDeviceCount() > 1 ? " to " + dispatch.getDeliveredCount() + " devices" : "";
+        mainHandler.post(() -> 
+            Toast.makeText(context, "Command sent" + devices + ": " + dispatch.getCommand(), 
+                Toast.LENGTH_SHORT).show());
+    }
+    
+    @Override
+    public void onDeliveryFailed(DeviceGroup.Dispatch dispatch, String address) {
+        mainHandler.post(() -> 
+            Toast.makeText(context, "No acknowledgement from " + address + ": " + dispatch.getCommand(), 
+                Toast.LENGTH_SHORT).show());
+    }
+    
+    @Override
+    public void onDropped(DeviceGroup.Dispatch dispatch, String address, OutboundScheduler.DropReason reason) {
+        // Superseded, coalesced and preempted commands gave way to newer ones on purpose; an
+        // overflow or a switch to another device loses them
+        if (reason != OutboundScheduler.DropReason.OVERFLOW && reason != OutboundScheduler.DropReason.CLEARED) {
+            return;
+        }
+        mainHandler.post(() -> 
+            Toast.makeText(context, "Not sent to " + address + ": " + dispatch.getCommand(), 
+                Toast.LENGTH_SHORT).show());
+    }
+    
+    // Per device queue and link metrics, null if the device isn't connected through this service
+    public DeviceLink getLink(String macAddress) {
+        return group.getLink(macAddress);
+    }
+    
+    // Send queue and link metrics, summed over the devices
+    public int getQueueDepth() {
+        int depth = 0;
+        for (DeviceLink link : group.getLinks()) {
+            depth += link.getQueueDepth();
+        }
+        return depth;
+    }
+    
+    public int getMaxQueueDepth() {
+        int depth = 0;
+        for (DeviceLink link : group.getLinks()) {
+            depth = Math.max(depth, link.getMaxQueueDepth());
+        }
+        return depth;
+    }
+    
+    public long getDroppedCommandCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getDroppedCommandCount();
+        }
+        return count;
+    }
+    
+    public long getCoalescedCommandCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getCoalescedCommandCount();
+        }
+        return count;
+    }
+    
+    public long getSupersededCommandCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getSupersededCommandCount();
+        }
+        return count;
+    }
+    
+    public long getPreemptedCommandCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getPreemptedCommandCount();
+        }
+        return count;
+    }
+    
+    public long getSentCommandCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getSentCommandCount();
+        }
+        return count;
+    }
+    
+    public long getReconnectCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getReconnectCount();
+        }
+        return count;
+    }
+    
+    public long getRetransmitCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getRetransmitCount();
+        }
+        return count;
+    }
+    
+    public long getFailedCommandCount() {
+        long count = 0;
+        for (DeviceLink link : group.getLinks()) {
+            count += link.getFailedCommandCount();
+        }
+        return count;
+    }
+    
+    // With acknowledgements: end of speech (or send) to ACK, p50/p95/p99 over all devices
+    public LatencyHistogram getVoiceToAckStats() {
+        return group.getVoiceToAckStats();
+    }
+    
+    // With acknowledgements: frame write to ACK of one command, over all devices
+    public LatencyHistogram getRoundTripStats(String command) {
+        return group.getRoundTripStats(command);
     }
 }
\ No newline at end of file
@@ -1,19 +1,26 @@
 package com.yourpackage.voicecontrol;
 
+import android.Manifest;
 import android.app.AlertDialog;
-import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
+import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import java.io.IOException;
 
 public class CommandConfigActivity extends AppCompatActivity {
-    private TextView commandLabel, dataLabel;
+    private TextView commandLabel, dataLabel, templateLabel;
     private Button configureCommandBtn, configureDataBtn;
+    private Button recordTemplateBtn, clearTemplatesBtn, deleteCommandBtn;
     private int commandNumber;
-    private SharedPreferences prefs;
+    private CommandRepository commands;
+    private TemplateStore templateStore;
+    private RecognitionEngine templateRecognizer;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -21,7 +28,8 @@ public class CommandConfigActivity extends AppCompatActivity {
         setContentView(R.layout.activity_command_config);
         
         commandNumber = getIntent().getIntExtra("command_number", 1);
-        prefs = getSharedPreferences("voice_commands", MODE_PRIVATE);
+        commands = CommandStore.open(this);
+        templateStore = new TemplateStore(this, commands);
         
         setupToolbar();
         initViews();
@@ -41,11 +49,15 @@ public class CommandConfigActivity extends AppCompatActivity {
         dataLabel = findViewById(R.id.data_label);
         configureCommandBtn = findViewById(R.id.configure_command_btn);
         configureDataBtn = findViewById(R.id.configure_data_btn);
+        templateLabel = findViewById(R.id.template_label);
+        recordTemplateBtn = findViewById(R.id.record_template_btn);
+        clearTemplatesBtn = findViewById(R.id.clear_templates_btn);
+        deleteCommandBtn = findViewById(R.id.delete_command_btn);
     }
     
     private void loadSavedData() {
-        String savedCommand = prefs.getString("command_" + commandNumber, "");
-        String savedData = prefs.getString("data_" + commandNumber, "");
+        String savedCommand = getSavedCommand();
+        String savedData = getSavedData();
         
         if (!savedCommand.isEmpty()) {
             commandLabel.setText(savedCommand);
@@ -53,6 +65,37 @@ public class CommandConfigActivity extends AppCompatActivity {
         if (!savedData.isEmpty()) {
             dataLabel.setText(savedData);
         }
+        updateTemplateLabel();
+    }
+    
+    private String getSavedCommand() {
+        CommandRepository.Command command = commands.find(commandNumber);
+        return command != null ? command.getLabel() : "";
+    }
+    
+    private String getSavedData() {
+        CommandRepository.Command command = commands.find(commandNumber);
+        return command != null ? command.getData() : "";
+    }
+    
+    // Writes both fields of the slot; the one not being edited keeps its saved value
+    private boolean saveCommand(String command, String data) {
+        try {
+            commands.edit().put(commandNumber, command, data).commit();
+            return true;
+        } catch (IOException e) {
+            Toast.makeText(this, "Failed to save command: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return false;
+        }
+    }
+    
+    private void updateTemplateLabel() {
+        int count = templateStore.getTemplateCount(commandNumber);
+        if (count > 0) {
+            templateLabel.setText(count + " of " + TemplateStore.MAX_TEMPLATES_PER_COMMAND + " templates recorded");
+        } else {
+            templateLabel.setText("Record how you say the command");
+        }
     }
     
     private void setupButtons() {
@@ -63,8 +106,9 @@ public class CommandConfigActivity extends AppCompatActivity {
                     commandLabel.getText().toString(), new InputCallback() {
                     @Override
                     public void onInput(String input) {
-                        commandLabel.setText(input);
-                        prefs.edit().putString("command_" + commandNumber, input).apply();
+                        if (saveCommand(input, getSavedData())) {
+                            commandLabel.setText(input);
+                        }
                     }
                 });
             }
@@ -77,12 +121,100 @@ public class CommandConfigActivity extends AppCompatActivity {
                     dataLabel.getText().toString(), new InputCallback() {
                     @Override
                     public void onInput(String input) {
-                        dataLabel.setText(input);
-                        prefs.edit().putString("data_" + commandNumber, input).apply();
+                        // Anything longer can't go out in one frame
+                        if (!DeviceLink.isSendable(input)) {
+                            Toast.makeText(CommandConfigActivity.this, "Data too long, at most "
+                                + DeviceLink.MAX_COMMAND_BYTES + " bytes", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        if (saveCommand(getSavedCommand(), input)) {
+                            dataLabel.setText(input);
+                        }
                     }
                 });
             }
         });
+        
+        recordTemplateBtn.setOnClickListener(v -> recordTemplate());
+        
+        clearTemplatesBtn.setOnClickListener(v -> {
+            try {
+                templateStore.clear(commandNumber);
+            } catch (IOException e) {
+                Toast.makeText(this, "Failed to clear templates: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+            updateTemplateLabel();
+        });
+        
+        deleteCommandBtn.setOnClickListener(v -> deleteCommand());
+    }
+    
+    private void deleteCommand() {
+        try {
+            commands.edit().remove(commandNumber).commit();
+            templateStore.clear(commandNumber);
+        } catch (IOException e) {
+            Toast.makeText(this, "Failed to delete command: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        finish();
+    }
+    
+    private void recordTemplate() {
+        String command = getSavedCommand();
+        if (command.isEmpty()) {
+            Toast.makeText(this, "Configure the vocal command first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                != PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(this, "Microphone permission required", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        if (templateRecognizer == null) {
+            templateRecognizer = new RecognitionEngine(this);
+            templateRecognizer.setListener(new RecognitionEngine.SpeechRecognitionListener() {
+                @Override
+                public void onSpeechRecognized(RecognitionResult result) {
+                }
+                
+                @Override
+                public void onError(String error) {
+                    Toast.makeText(CommandConfigActivity.this, "Recording error: " + error, Toast.LENGTH_SHORT).show();
+                }
+                
+                @Override
+                public void onStartListening() {
+                    recordTemplateBtn.setEnabled(false);
+                    recordTemplateBtn.setText("Speak now...");
+                }
+                
+                @Override
+                public void onStopListening() {
+                    recordTemplateBtn.setEnabled(true);
+                    recordTemplateBtn.setText("Record Template");
+                }
+            });
+        }
+        
+        templateRecognizer.recordTemplate(command, template -> {
+            try {
+                templateStore.save(commandNumber, template);
+                Toast.makeText(this, "Template saved", Toast.LENGTH_SHORT).show();
+            } catch (IOException e) {
+                Toast.makeText(this, "Failed to save template: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+            updateTemplateLabel();
+        });
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (templateRecognizer != null) {
+            templateRecognizer.release();
+        }
     }
     
     private void showInputDialog(String title, String hint, String currentValue, InputCallback callback) {
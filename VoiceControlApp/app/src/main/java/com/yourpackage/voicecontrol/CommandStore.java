@@ -0,0 +1,56 @@
+package com.yourpackage.voicecontrol;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.io.File;
+import java.io.IOException;
+
+// Opens the app's CommandRepository, moving commands configured before it existed out of
+// SharedPreferences on first use. Every screen shares the one instance, so edits are seen
+// everywhere without rereading the file and there is only ever one writer. A record damaged
+// inside the file would block every later save, so it is salvaged here before anything else.
+public final class CommandStore {
+    private static final String FILE_NAME = "commands.bin";
+    private static final String LEGACY_PREFS = "voice_commands";
+    private static final int LEGACY_SLOTS = 10;
+    
+    private static CommandRepository instance;
+    
+    private CommandStore() {
+    }
+    
+    // Loaded as far as possible; a file that can't be read shows up as no commands
+    public static synchronized CommandRepository open(Context context) {
+        if (instance != null) {
+            return instance;
+        }
+        Context app = context.getApplicationContext();
+        CommandRepository repository = new CommandRepository(new File(app.getFilesDir(), FILE_NAME));
+        instance = repository;
+        try {
+            repository.reload();
+            repository.salvage();
+            migrateLegacyCommands(repository, app.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE));
+        } catch (IOException e) {
+            // Keep the old entries and retry on the next start
+        }
+        return repository;
+    }
+    
+    private static void migrateLegacyCommands(CommandRepository repository, SharedPreferences legacy) throws IOException {
+        if (legacy.getAll().isEmpty()) {
+            return;
+        }
+        
+        CommandRepository.Batch batch = repository.edit();
+        for (int i = 1; i <= LEGACY_SLOTS; i++) {
+            String command = legacy.getString("command_" + i, "");
+            String data = legacy.getString("data_" + i, "");
+            if ((!command.isEmpty() || !data.isEmpty()) && repository.find(i) == null) {
+                batch.put(i, command, data);
+            }
+        }
+        batch.commit();
+        legacy.edit().clear().apply();
+    }
+}
\ No newline at end of file
@@ -7,28 +7,38 @@ import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.TextView;
 
+// One row per configured command, followed by a row for adding one. Rows only read their
+// command when they are shown, so long lists cost nothing up front.
 public class CommandsAdapter extends BaseAdapter {
     private Context context;
     private LayoutInflater inflater;
+    private final CommandRepository commands;
     
-    public CommandsAdapter(Context context) {
+    public CommandsAdapter(Context context, CommandRepository commands) {
         this.context = context;
         this.inflater = LayoutInflater.from(context);
+        this.commands = commands;
     }
     
     @Override
     public int getCount() {
-        return 10;
+        return commands.size() + 1;
     }
     
+    public boolean isAddRow(int position) {
+        return position == commands.size();
+    }
+    
+    // Null for the add row
     @Override
     public Object getItem(int position) {
-        return position;
+        return isAddRow(position) ? null : commands.get(position);
     }
     
+    // The command's slot, or the slot a new command would get
     @Override
     public long getItemId(int position) {
-        return position;
+        return isAddRow(position) ? commands.nextFreeSlot() : commands.getSlot(position);
     }
     
     @Override
@@ -45,13 +55,15 @@ public class CommandsAdapter extends BaseAdapter {
             holder = (ViewHolder) convertView.getTag();
         }
         
-        if (position == 0) {
-            holder.title.setText("Vocal command n°1");
-            holder.subtitle.setText("Configure data to send");
-            holder.subtitle.setVisibility(View.VISIBLE);
-        } else {
-            holder.title.setText("Vocal command n°" + (position + 1));
+        if (isAddRow(position)) {
+            holder.title.setText("+ Add vocal command");
             holder.subtitle.setVisibility(View.GONE);
+        } else {
+            CommandRepository.Command command = commands.get(position);
+            holder.title.setText(command.getLabel().isEmpty()
+                ? "Vocal command n°" + command.getSlot() : command.getLabel());
+            holder.subtitle.setText(command.getData().isEmpty() ? "Configure data to send" : command.getData());
+            holder.subtitle.setVisibility(View.VISIBLE);
         }
         
         return convertView;
@@ -4,11 +4,11 @@ import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 // Removed Google Speech Services imports
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.Spinner;
@@ -16,24 +16,38 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
 
-public class MainActivity extends AppCompatActivity implements EnhancedSpeechRecognizer.SpeechRecognitionListener, BluetoothScanner.ScanResultListener {
+public class MainActivity extends AppCompatActivity implements RecognitionEngine.SpeechRecognitionListener, BluetoothScanner.ScanResultListener {
     private static final int REQUEST_PERMISSIONS = 1;
+    // A wrong motion command moves the device, so unsure ones are asked again instead of sent,
+    // including a near tie with another command. The built-in patterns score left and right
+    // the same; those two need recorded templates to be told apart.
+    private static final double MIN_MOTION_CONFIDENCE = 0.75;
+    private static final double MIN_MOTION_MARGIN = 0.05;
+    // Commands that keep sounding alike give up after this many automatic retries
+    private static final int MAX_RETRIES = 2;
     
     private Button micButton;
     private Button settingsButton;
     private Button scanButton;
     private Button connectButton;
     private Spinner deviceSpinner;
-    private HashMap<String, String> commands = new HashMap<>();
+    private CommandRepository commands;
+    // Rebuilt only when the commands change, then swapped into the recognizer and the link
+    private CommandTable commandTable = CommandTable.EMPTY;
+    private long loadedCommandsVersion = -1;
     private BluetoothService bluetoothService;
-    private SharedPreferences prefs;
-    private EnhancedSpeechRecognizer speechRecognizer;
+    private RecognitionEngine speechRecognizer;
+    private TemplateStore templateStore;
     private BluetoothScanner bluetoothScanner;
     private boolean isListening = false;
+    // Listen again once the current single-shot session has ended
+    private boolean retryPending = false;
+    private int retriesLeft;
     private ArrayList<String> deviceList;
     private ArrayAdapter<String> deviceAdapter;
     private ArrayList<BluetoothDevice> availableDevices;
@@ -43,14 +57,15 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         
-        prefs = getSharedPreferences("voice_commands", MODE_PRIVATE);
+        commands = CommandStore.open(this);
         
         initViews();
         requestPermissions();
-        loadConfiguredCommands();
         bluetoothService = new BluetoothService(this);
-        speechRecognizer = new EnhancedSpeechRecognizer(this);
+        speechRecognizer = new RecognitionEngine(this);
         speechRecognizer.setListener(this);
+        loadCommandTable();
+        templateStore = new TemplateStore(this, commands);
         bluetoothScanner = new BluetoothScanner(this);
         bluetoothScanner.setListener(this);
         
@@ -133,33 +148,46 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
         }
     }
     
-    private void loadConfiguredCommands() {
-        commands.clear();
-        
-        // Load configured commands from SharedPreferences
-        for (int i = 1; i <= 10; i++) {
-            String command = prefs.getString("command_" + i, "");
-            String data = prefs.getString("data_" + i, "");
-            
-            if (!command.isEmpty() && !data.isEmpty()) {
-                commands.put(command.toLowerCase().trim(), data);
-            }
+    private void loadCommandTable() {
+        try {
+            // Only reads what was appended since the last time
+            commands.reload();
+        } catch (IOException e) {
+            Toast.makeText(this, "Commands could not be loaded: " + e.getMessage(),
+                Toast.LENGTH_LONG).show();
         }
+        if (commands.getVersion() == loadedCommandsVersion) {
+            return;
+        }
+        loadedCommandsVersion = commands.getVersion();
+        
+        // The slot number is the command id
+        commandTable = commands.toTable();
         
         // Add default commands if none configured
-        if (commands.isEmpty()) {
-            setupDefaultCommands();
+        if (commandTable.isEmpty()) {
+            CommandTable.Builder builder = new CommandTable.Builder();
+            setupDefaultCommands(builder);
+            commandTable = builder.build();
         }
+        
+        speechRecognizer.setCommandTable(commandTable);
     }
     
-    private void setupDefaultCommands() {
-        commands.put("turn on", "LED_ON");
-        commands.put("turn off", "LED_OFF");
-        commands.put("forward", "MOVE_FORWARD");
-        commands.put("backward", "MOVE_BACKWARD");
-        commands.put("left", "TURN_LEFT");
-        commands.put("right", "TURN_RIGHT");
-        commands.put("stop", "STOP");
+    private void setupDefaultCommands(CommandTable.Builder builder) {
+        builder.add(1, "turn on", "LED_ON")
+            .add(2, "turn off", "LED_OFF")
+            .add(3, "forward", "MOVE_FORWARD")
+            .add(4, "backward", "MOVE_BACKWARD")
+            .add(5, "left", "TURN_LEFT")
+            .add(6, "right", "TURN_RIGHT")
+            .add(7, "stop", "STOP")
+            // Only used for transcribed text
+            .alias(1, "lights on")
+            .alias(2, "lights off")
+            .alias(3, "go ahead")
+            .alias(4, "go back")
+            .alias(7, "halt");
     }
     
     private void setupBluetoothDevices() {
@@ -255,12 +283,23 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
             @Override
             public void onClick(View v) {
                 if (!isListening) {
-                    startVoiceRecognition();
+                    startVoiceRecognition(false);
                 } else {
                     stopVoiceRecognition();
                 }
             }
         });
+        
+        // Long press starts hands-free mode: keeps listening and sends every recognized command
+        micButton.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                if (!isListening) {
+                    startVoiceRecognition(true);
+                }
+                return true;
+            }
+        });
     }
     
     private void setupSettingsButton() {
@@ -283,15 +322,17 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
         }
     }
     
-    private void startVoiceRecognition() {
+    private void startVoiceRecognition(boolean continuous) {
         if (speechRecognizer != null) {
-            speechRecognizer.startListening();
+            retriesLeft = MAX_RETRIES;
+            speechRecognizer.startListening(continuous);
         } else {
             Toast.makeText(this, "Speech recognizer not initialized", Toast.LENGTH_SHORT).show();
         }
     }
     
     private void stopVoiceRecognition() {
+        retryPending = false;
         if (speechRecognizer != null) {
             speechRecognizer.stopListening();
         }
@@ -299,15 +340,23 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
     
     // Speech Recognition Listener Implementation
     @Override
-    public void onSpeechRecognized(String command) {
-        String dataToSend = commands.getOrDefault(command.toLowerCase().trim(), null);
+    public void onSpeechRecognized(RecognitionResult result) {
+        CommandTable.Entry entry = commandTable.get(result.getCommandId());
         
-        if (dataToSend != null) {
-            sendCommandToDevice(dataToSend);
-            Toast.makeText(this, "Command: " + command + " -> " + dataToSend, 
+        if (entry != null && isMotionCommand(entry.getData())
+                && !result.isConfident(MIN_MOTION_CONFIDENCE, MIN_MOTION_MARGIN)) {
+            Toast.makeText(this, "Not sure about \"" + entry.getLabel() + "\" ("
+                + Math.round(result.getConfidence() * 100) + "%), say it again", Toast.LENGTH_SHORT).show();
+            // Continuous mode is still listening for the next utterance
+            retryPending = !speechRecognizer.isContinuousMode() && retriesLeft > 0;
+        } else if (entry != null) {
+            // Delivery latency counts from the end of the utterance, when the user expects action
+            long spokenNanos = result.getTimings().getLastSpeechNanos();
+            sendCommandToDevice(entry, spokenNanos >= 0 ? spokenNanos : System.nanoTime());
+            Toast.makeText(this, "Command: " + entry.getLabel() + " -> " + entry.getData(), 
                 Toast.LENGTH_SHORT).show();
         } else {
-            Toast.makeText(this, "Command not recognized: " + command, 
+            Toast.makeText(this, "Command not recognized: " + result.getCommand(), 
                 Toast.LENGTH_SHORT).show();
         }
     }
@@ -315,7 +364,8 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
     @Override
     public void onError(String error) {
         Toast.makeText(this, "Speech error: " + error, Toast.LENGTH_SHORT).show();
-        isListening = false;
+        // In continuous mode recognition errors don't end the session
+        isListening = speechRecognizer != null && speechRecognizer.isListening();
         updateMicButtonState();
     }
     
@@ -323,13 +373,27 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
     public void onStartListening() {
         isListening = true;
         updateMicButtonState();
-        Toast.makeText(this, "Listening... Speak now", Toast.LENGTH_SHORT).show();
+        if (speechRecognizer.isContinuousMode()) {
+            Toast.makeText(this, "Continuous listening... Tap to stop", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, "Listening... Speak now", Toast.LENGTH_SHORT).show();
+        }
     }
     
     @Override
     public void onStopListening() {
         isListening = false;
         updateMicButtonState();
+        if (retryPending) {
+            retryPending = false;
+            retriesLeft--;
+            speechRecognizer.startListening();
+        }
+    }
+    
+    // Whatever the link treats as motion, including priorities set for custom commands
+    private boolean isMotionCommand(String dataToSend) {
+        return bluetoothService.getCommandPriority(dataToSend) == OutboundScheduler.Priority.MOTION;
     }
     
     private void updateMicButtonState() {
@@ -339,27 +403,45 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
         }
     }
     
-    private void sendCommandToDevice(String dataToSend) {
+    // Sent as the entry itself, so a slot sharing its data with another keeps its own id
+    private void sendCommandToDevice(CommandTable.Entry entry, long issuedNanos) {
+        // Saved before the length limit existed
+        if (!DeviceLink.isSendable(entry.getData())) {
+            Toast.makeText(this, "Command data too long to send", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // The link is set up when a device is picked; this only covers a send before that
+        if (bluetoothService.getDeviceCount() == 0 && !targetSelectedDevice()) {
+            return;
+        }
+        bluetoothService.send(entry, issuedNanos);
+    }
+    
+    private boolean targetSelectedDevice() {
         String selectedDevice = (String) deviceSpinner.getSelectedItem();
         
         if (selectedDevice == null || selectedDevice.contains("No devices found")) {
             Toast.makeText(this, "No device selected. Please scan and connect to ESP32 first.", Toast.LENGTH_LONG).show();
-            return;
+            return false;
         }
         
         if (selectedDevice.contains(" - ")) {
             String[] parts = selectedDevice.split(" - ");
             if (parts.length >= 2) {
                 String macAddress = parts[1].replace(" (Paired)", "").replace(" (Found)", "");
-                bluetoothService.connectAndSend(macAddress, dataToSend);
+                bluetoothService.prewarm(macAddress);
+                return true;
             }
+            return false;
         } else {
             // Fallback to first available ESP32 device
             if (!availableDevices.isEmpty()) {
                 BluetoothDevice device = availableDevices.get(0);
-                bluetoothService.connectAndSend(device.getAddress(), dataToSend);
+                bluetoothService.prewarm(device.getAddress());
+                return true;
             } else {
                 Toast.makeText(this, "No ESP32 devices available", Toast.LENGTH_SHORT).show();
+                return false;
             }
         }
     }
@@ -367,8 +449,21 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
     @Override
     protected void onResume() {
         super.onResume();
-        // Reload commands when returning from configuration
-        loadConfiguredCommands();
+        // Both are rebuilt only if they were changed while configuring
+        loadCommandTable();
+        loadTemplates();
+    }
+    
+    private void loadTemplates() {
+        try {
+            List<CommandTemplate> templates = templateStore.loadIfChanged();
+            if (templates != null) {
+                speechRecognizer.setTemplates(templates);
+            }
+        } catch (IOException e) {
+            Toast.makeText(this, "Voice templates could not be loaded: " + e.getMessage(),
+                Toast.LENGTH_LONG).show();
+        }
     }
     
     private void setupBluetoothButtons() {
@@ -378,6 +473,38 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
         
         if (connectButton != null) {
             connectButton.setOnClickListener(v -> connectToSelectedDevice());
+            // Long press adds the device, so commands go to every board in the group
+            connectButton.setOnLongClickListener(v -> {
+                addSelectedDeviceToGroup();
+                return true;
+            });
+        }
+        
+        if (deviceSpinner != null) {
+            // Open the link as soon as a device is picked so the first command doesn't wait for it
+            deviceSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    prewarmSelectedDevice();
+                }
+                
+                @Override
+                public void onNothingSelected(AdapterView<?> parent) {
+                }
+            });
+        }
+    }
+    
+    private void prewarmSelectedDevice() {
+        String selectedDevice = (String) deviceSpinner.getSelectedItem();
+        if (selectedDevice == null || !selectedDevice.contains(" - ")) {
+            return;
+        }
+        
+        String[] parts = selectedDevice.split(" - ");
+        if (parts.length >= 2) {
+            String macAddress = parts[1].replace(" (Paired)", "").replace(" (Found)", "");
+            bluetoothService.prewarm(macAddress);
         }
     }
     
@@ -408,6 +535,25 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
         }
     }
     
+    private void addSelectedDeviceToGroup() {
+        String selectedDevice = (String) deviceSpinner.getSelectedItem();
+        if (selectedDevice == null || !selectedDevice.contains(" - ")) {
+            Toast.makeText(this, "Please select a device first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        String[] parts = selectedDevice.split(" - ");
+        if (parts.length >= 2) {
+            String macAddress = parts[1].replace(" (Paired)", "").replace(" (Found)", "");
+            if (bluetoothService.addDevice(macAddress)) {
+                Toast.makeText(this, "Added " + parts[0] + " (" + bluetoothService.getDeviceCount() + " devices)",
+                    Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, parts[0] + " is already connected", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+    
     // BluetoothScanner.ScanResultListener Implementation
     @Override
     public void onDeviceFound(BluetoothDevice device, String deviceName, String macAddress) {
@@ -507,6 +653,7 @@ public class MainActivity extends AppCompatActivity implements EnhancedSpeechRec
     @Override
     protected void onPause() {
         super.onPause();
+        retryPending = false;
         if (speechRecognizer != null && isListening) {
             speechRecognizer.stopListening();
         }
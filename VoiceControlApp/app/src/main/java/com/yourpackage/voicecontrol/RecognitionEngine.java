@@ -0,0 +1,525 @@
+package com.yourpackage.voicecontrol;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import java.util.ArrayList;
+import java.util.List;
+
+// Speech command recognition as a pipeline of pluggable stages: an AudioSource captured by
+// CaptureEngine, a SpeechDetector segmenting utterances, UtteranceFeatures computed once per
+// utterance and an UtteranceClassifier deciding on the command. Extra comparison classifiers
+// can run on the same features to A/B them against the active one.
+public class RecognitionEngine {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int MIN_BUFFER_BYTES = AudioRecordSource.getMinBufferSize(SAMPLE_RATE);
+    public static final int DEFAULT_BUFFER_MULTIPLIER = 4;
+    private static final int MAX_RECORDING_MS = 4000;
+    // Counted from the end of the VAD hangover, 200 + 600 ms keeps the previous 800 ms wait
+    private static final int SILENCE_TIMEOUT_MS = 600;
+    private static final int MIN_UTTERANCE_SAMPLES = 1000;
+    private static final int MIN_TEMPLATE_FRAMES = 10;
+    
+    private final AudioRecordSource microphone;
+    private AudioSource audioSource;
+    private final CaptureEngine capture = new CaptureEngine(SAMPLE_RATE, new CaptureEngine.ThreadPriorities() {
+        @Override
+        public void onCaptureThreadStart() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        }
+        
+        @Override
+        public void onAnalysisThreadStart() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        }
+    });
+    private final UtteranceProcessor processor = new UtteranceProcessor();
+    private SpeechRecognitionListener listener;
+    private Context context;
+    private Handler mainHandler;
+    
+    // Pipeline stages, only touched by the analysis thread while listening
+    private SpeechDetector detector = new VoiceActivityDetector(SAMPLE_RATE);
+    private UtteranceFeatures features = new UtteranceFeatures(SAMPLE_RATE, MAX_RECORDING_MS);
+    
+    // Built-in classifiers: recorded templates first, the heuristic patterns for the rest
+    private final TemplateClassifier templateClassifier =
+        new TemplateClassifier(MfccExtractor.DEFAULT_COEFFICIENTS);
+    private final PatternClassifier patternClassifier = new PatternClassifier();
+    private volatile UtteranceClassifier classifier = new FallbackClassifier(templateClassifier, patternClassifier);
+    // Resolves recognized commands to configured ids before they reach the listener
+    private volatile CommandTable commandTable = CommandTable.EMPTY;
+    
+    // Run on every utterance next to the active classifier, their results are only counted
+    private volatile UtteranceClassifier[] comparisons = new UtteranceClassifier[0];
+    private volatile ClassifierStats[] comparisonStats = new ClassifierStats[0];
+    
+    // Set while the next utterance should be returned as a template instead of matched
+    private volatile String templateCommand;
+    private TemplateListener templateListener;
+    
+    // Early commit: emit as soon as one command is clearly ahead instead of waiting for silence
+    private volatile boolean earlyCommitEnabled = false;
+    
+    // Filled in place by the classifiers on the analysis thread; listeners get a copy
+    private final RecognitionResult result = new RecognitionResult();
+    private final RecognitionResult comparisonResult = new RecognitionResult();
+    private final RecognitionTimings timings = new RecognitionTimings();
+    private final RecognitionTimings lastTimings = new RecognitionTimings();
+    
+    // Continuous mode keeps one capture running and emits a result per utterance until stopped;
+    // set when a session starts
+    private volatile boolean continuousMode = false;
+    
+    public interface SpeechRecognitionListener {
+        void onSpeechRecognized(RecognitionResult result);
+        void onError(String error);
+        void onStartListening();
+        void onStopListening();
+    }
+    
+    public interface TemplateListener {
+        void onTemplateRecorded(CommandTemplate template);
+    }
+    
+    public RecognitionEngine(Context context) {
+        this.context = context;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.microphone = new AudioRecordSource(SAMPLE_RATE, MIN_BUFFER_BYTES * DEFAULT_BUFFER_MULTIPLIER);
+        this.audioSource = microphone;
+    }
+    
+    public void setListener(SpeechRecognitionListener listener) {
+        this.listener = listener;
+    }
+    
+    // Replaces the recorded templates; an empty list leaves only the heuristic patterns
+    public void setTemplates(List<CommandTemplate> templates) {
+        templateClassifier.setTemplates(templates);
+    }
+    
+    // Takes effect from the next result, also while listening
+    public void setCommandTable(CommandTable table) {
+        this.commandTable = table;
+    }
+    
+    // For recognizers that produce text, e.g. a platform speech service: matches the text
+    // against the configured commands, tolerating aliases and near misses, and reports it
+    // like an utterance. Can be called from any thread.
+    public void recognizeText(String text) {
+        RecognitionResult textResult = new RecognitionResult();
+        if (!commandTable.matchText(text, textResult)) {
+            notifyError("Command not recognized: " + text);
+        } else if (listener != null) {
+            mainHandler.post(() -> listener.onSpeechRecognized(textResult));
+        }
+    }
+    
+    // Captures a single utterance and hands its features back as a template for the command
+    public void recordTemplate(String command, TemplateListener templateListener) {
+        startSession(command, templateListener, continuousMode);
+    }
+    
+    // Takes effect from the next utterance, also while listening
+    public void setClassifier(UtteranceClassifier classifier) {
+        this.classifier = classifier;
+    }
+    
+    public UtteranceClassifier getClassifier() {
+        return classifier;
+    }
+    
+    // The default classifiers, to combine or compare with others
+    public TemplateClassifier getTemplateClassifier() {
+        return templateClassifier;
+    }
+    
+    public PatternClassifier getPatternClassifier() {
+        return patternClassifier;
+    }
+    
+    // Runs the classifier on every utterance alongside the active one, without acting on it
+    public synchronized void addComparisonClassifier(UtteranceClassifier comparison) {
+        int count = comparisons.length;
+        UtteranceClassifier[] classifiers = new UtteranceClassifier[count + 1];
+        ClassifierStats[] stats = new ClassifierStats[count + 1];
+        System.arraycopy(comparisons, 0, classifiers, 0, count);
+        System.arraycopy(comparisonStats, 0, stats, 0, count);
+        classifiers[count] = comparison;
+        stats[count] = new ClassifierStats(comparison.getName());
+        // Stats first, the analysis thread indexes them by classifier position
+        comparisonStats = stats;
+        comparisons = classifiers;
+    }
+    
+    public synchronized void clearComparisonClassifiers() {
+        comparisons = new UtteranceClassifier[0];
+        comparisonStats = new ClassifierStats[0];
+    }
+    
+    public List<ClassifierStats> getComparisonStats() {
+        List<ClassifierStats> copies = new ArrayList<>();
+        for (ClassifierStats stats : comparisonStats) {
+            copies.add(stats.copy());
+        }
+        return copies;
+    }
+    
+    public void setSpeechDetector(SpeechDetector detector) {
+        checkIdle();
+        this.detector = detector;
+    }
+    
+    public void setFeatures(UtteranceFeatures features) {
+        checkIdle();
+        this.features = features;
+    }
+    
+    public void setEarlyCommit(boolean enabled, double minScore, double minMargin) {
+        this.earlyCommitEnabled = enabled;
+        patternClassifier.setEarlyCommitThresholds(minScore, minMargin);
+    }
+    
+    // Mode of the next startListening(); a running session keeps its own
+    public synchronized void setContinuousMode(boolean continuous) {
+        if (!capture.isRunning()) {
+            this.continuousMode = continuous;
+        }
+    }
+    
+    // Mode of the current or last session
+    public boolean isContinuousMode() {
+        return continuousMode;
+    }
+    
+    // Stage timestamps of the most recent recognition attempt
+    public RecognitionTimings getLastTimings() {
+        RecognitionTimings copy = new RecognitionTimings();
+        synchronized (lastTimings) {
+            copy.copyFrom(lastTimings);
+        }
+        return copy;
+    }
+    
+    // How much audio from before speech onset is prepended to each utterance
+    public void setPreRollMs(int ms) {
+        capture.setPreRollMs(ms);
+    }
+    
+    // Shorter frames react faster to speech onset and end at the cost of more per-frame work
+    public void setFrameMs(int ms) {
+        capture.setFrameMs(ms);
+    }
+    
+    // AudioRecord buffer as a multiple of the device minimum; larger rides out scheduling
+    // hiccups, smaller keeps less audio queued behind the analysis
+    public void setBufferMultiplier(int multiplier) {
+        checkIdle();
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Buffer multiplier must be at least 1: " + multiplier);
+        }
+        microphone.setBufferSizeInBytes(MIN_BUFFER_BYTES * multiplier);
+    }
+    
+    // Frame arrival regularity of the current or last capture
+    public ReadJitterStats getReadJitter() {
+        ReadJitterStats copy = new ReadJitterStats();
+        capture.getJitterStats(copy);
+        return copy;
+    }
+    
+    // Frames dropped because recognition fell a whole capture queue behind
+    public long getDroppedFrames() {
+        return capture.getDroppedFrames();
+    }
+    
+    // Sessions cut short by an exception in recognition, each also reported to onError
+    public long getFailedSessions() {
+        return capture.getProcessorFailures();
+    }
+    
+    // Replaces the microphone, e.g. with a WAV file or synthetic source for offline runs
+    public void setAudioSource(AudioSource audioSource) {
+        checkIdle();
+        this.audioSource = audioSource;
+    }
+    
+    private void checkIdle() {
+        if (capture.isRunning()) {
+            throw new IllegalStateException("Cannot change the pipeline while listening");
+        }
+    }
+    
+    public void startListening() {
+        startSession(null, null, continuousMode);
+    }
+    
+    // Starts a session in the given mode; like startListening(), does nothing while one runs
+    public void startListening(boolean continuous) {
+        startSession(null, null, continuous);
+    }
+    
+    // Synchronized so the mode and template fields are only set for a session this call
+    // actually starts
+    private synchronized void startSession(String command, TemplateListener templateListener,
+                                           boolean continuous) {
+        if (capture.isRunning()) {
+            return;
+        }
+        this.continuousMode = continuous;
+        this.templateListener = templateListener;
+        this.templateCommand = command;
+        
+        CaptureEngine.StartResult result = CaptureEngine.StartResult.BUSY;
+        try {
+            result = capture.start(audioSource, processor);
+            if (result == CaptureEngine.StartResult.SOURCE_FAILED) {
+                notifyError("AudioRecord initialization failed");
+            }
+        } catch (SecurityException e) {
+            notifyError("Microphone permission denied");
+        } catch (Exception e) {
+            notifyError("Failed to start recording: " + e.getMessage());
+        } finally {
+            if (result != CaptureEngine.StartResult.STARTED) {
+                this.templateCommand = null;
+            }
+        }
+    }
+    
+    // The session winds down on the analysis thread, which reports onStopListening once a
+    // new session can be started
+    public void stopListening() {
+        capture.stop();
+    }
+    
+    // Segments utterances on the analysis thread; frames arrive from the capture thread
+    private class UtteranceProcessor implements CaptureEngine.FrameProcessor {
+        private boolean continuous;
+        // Time is derived from samples read so file sources can run faster than real time
+        private long samplesRead;
+        private long utteranceStart;
+        private long silenceStart;
+        private boolean speechDetected;
+        private boolean awaitingSilence;
+        
+        @Override
+        public void onSessionStart() {
+            // Posted from here so it can't overtake onStopListening of a very short session
+            if (listener != null) {
+                mainHandler.post(() -> listener.onStartListening());
+            }
+            continuous = continuousMode && templateCommand == null;
+            detector.reset();
+            resetUtterance();
+            samplesRead = 0;
+            utteranceStart = 0;
+            silenceStart = -1;
+            speechDetected = false;
+            awaitingSilence = false;
+        }
+        
+        @Override
+        public boolean onFrame(short[] buffer, int offset, int bytesRead) {
+            samplesRead += bytesRead;
+            long elapsedMs = samplesRead * 1000 / SAMPLE_RATE;
+            boolean utteranceDone = false;
+            
+            boolean inSpeech = detector.process(buffer, offset, bytesRead);
+            
+            if (awaitingSilence) {
+                // Tail of an early-committed word, don't start a new utterance on it
+                if (!inSpeech) {
+                    awaitingSilence = false;
+                }
+                return true;
+            }
+            
+            if (inSpeech) {
+                if (!speechDetected) {
+                    // The frames that confirmed onset and the consonant before them
+                    capture.drainPreRoll(features);
+                    if (continuous) {
+                        // In continuous mode the utterance timeout runs from speech onset
+                        utteranceStart = elapsedMs;
+                    }
+                }
+                speechDetected = true;
+                silenceStart = -1;
+                
+                // Hangover frames keep the utterance open but aren't part of the word
+                if (detector.isFrameActive()) {
+                    features.accept(buffer, offset, bytesRead);
+                    timings.markSpeech(elapsedMs);
+                    
+                    if (earlyCommitEnabled && templateCommand == null && tryEarlyCommit(elapsedMs)) {
+                        utteranceDone = true;
+                        awaitingSilence = true;
+                    }
+                }
+            } else if (speechDetected) {
+                if (silenceStart < 0) {
+                    silenceStart = elapsedMs;
+                } else if (elapsedMs - silenceStart > SILENCE_TIMEOUT_MS) {
+                    // Silence after speech
+                    processFeatures(elapsedMs);
+                    utteranceDone = true;
+                }
+            }
+            
+            // Timeout after 4 seconds
+            if (!utteranceDone && (speechDetected || !continuous)
+                    && elapsedMs - utteranceStart > MAX_RECORDING_MS) {
+                if (speechDetected && features.getSampleCount() > 0) {
+                    processFeatures(elapsedMs);
+                } else {
+                    notifyError("No speech detected");
+                }
+                utteranceDone = true;
+            }
+            
+            if (utteranceDone) {
+                if (!continuous) {
+                    return false;
+                }
+                // Keep the same capture running and segment the next utterance
+                resetUtterance();
+                capture.discardPreRoll();
+                speechDetected = false;
+                silenceStart = -1;
+                utteranceStart = elapsedMs;
+            }
+            return true;
+        }
+        
+        @Override
+        public void onSessionEnd(boolean endOfStream) {
+            if (endOfStream) {
+                // End of stream or read error
+                if (speechDetected && features.getSampleCount() > 0) {
+                    processFeatures(samplesRead * 1000 / SAMPLE_RATE);
+                } else if (!continuous) {
+                    notifyError("No speech detected");
+                }
+            }
+            
+            templateCommand = null;
+        }
+        
+        @Override
+        public void onSessionFailed(RuntimeException error) {
+            templateCommand = null;
+            notifyError("Recognition failed: " + error);
+        }
+        
+        @Override
+        public void onSessionClosed() {
+            // Only now, so a listener that starts listening again isn't turned away
+            if (listener != null) {
+                mainHandler.post(() -> listener.onStopListening());
+            }
+        }
+    }
+    
+    private void resetUtterance() {
+        features.reset();
+        timings.reset();
+        timings.markListenStart();
+    }
+    
+    private boolean tryEarlyCommit(long elapsedMs) {
+        if (!classifier.classifyPartial(features, result)) {
+            return false;
+        }
+        
+        timings.markDecision(elapsedMs, true);
+        publishTimings();
+        notifyRecognized();
+        // After the result is on its way; the comparisons see the same partial utterance.
+        // The rest of it is never added, the features are reset before the next one.
+        features.finish();
+        compare(result.getCommand());
+        return true;
+    }
+    
+    private void processFeatures(long elapsedMs) {
+        timings.markDecision(elapsedMs, false);
+        publishTimings();
+        
+        if (features.getSampleCount() < MIN_UTTERANCE_SAMPLES) {
+            notifyError("Audio too short");
+            return;
+        }
+        
+        features.finish();
+        
+        String recordingCommand = templateCommand;
+        if (recordingCommand != null) {
+            deliverTemplate(recordingCommand);
+            return;
+        }
+        
+        boolean recognized = classifier.classify(features, result);
+        compare(result.getCommand());
+        
+        if (recognized) {
+            notifyRecognized();
+        } else {
+            notifyError("Command not recognized");
+        }
+    }
+    
+    private void notifyRecognized() {
+        if (listener != null) {
+            result.resolveCommandIds(commandTable);
+            result.getTimings().copyFrom(timings);
+            RecognitionResult recognized = result.copy();
+            mainHandler.post(() -> listener.onSpeechRecognized(recognized));
+        }
+    }
+    
+    // Runs the comparison classifiers on the features the active one just used
+    private void compare(String activeCommand) {
+        UtteranceClassifier[] classifiers = comparisons;
+        ClassifierStats[] stats = comparisonStats;
+        for (int i = 0; i < classifiers.length && i < stats.length; i++) {
+            long start = System.nanoTime();
+            classifiers[i].classify(features, comparisonResult);
+            stats[i].record(comparisonResult.getCommand(), activeCommand, System.nanoTime() - start);
+        }
+    }
+    
+    private void deliverTemplate(String command) {
+        if (features.getFrameCount() < MIN_TEMPLATE_FRAMES) {
+            notifyError("Template too short, speak the command again");
+            return;
+        }
+        
+        CommandTemplate template = features.toTemplate(command);
+        TemplateListener target = templateListener;
+        if (target != null) {
+            mainHandler.post(() -> target.onTemplateRecorded(template));
+        }
+    }
+    
+    private void publishTimings() {
+        synchronized (lastTimings) {
+            lastTimings.copyFrom(timings);
+        }
+    }
+    
+    private void notifyError(String error) {
+        if (listener != null) {
+            mainHandler.post(() -> listener.onError(error));
+        }
+    }
+    
+    public boolean isListening() {
+        return capture.isRunning();
+    }
+    
+    public void release() {
+        capture.release();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.yourpackage.voicecontrol;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+public class RfcommTransport implements Transport {
+    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+    
+    private final BluetoothAdapter bluetoothAdapter;
+    
+    public RfcommTransport(BluetoothAdapter bluetoothAdapter) {
+        this.bluetoothAdapter = bluetoothAdapter;
+    }
+    
+    @Override
+    public Connection connect(String macAddress) throws IOException {
+        if (bluetoothAdapter == null) {
+            throw new IOException("Bluetooth not available");
+        }
+        
+        try {
+            BluetoothDevice device = bluetoothAdapter.getRemoteDevice(macAddress);
+            BluetoothSocket socket = device.createRfcommSocketToServiceRecord(MY_UUID);
+            
+            bluetoothAdapter.cancelDiscovery();
+            try {
+                socket.connect();
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            return new RfcommConnection(socket);
+        } catch (SecurityException | IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+    
+    private static class RfcommConnection implements Connection {
+        private final BluetoothSocket socket;
+        private final OutputStream outputStream;
+        private final InputStream inputStream;
+        
+        RfcommConnection(BluetoothSocket socket) throws IOException {
+            this.socket = socket;
+            this.outputStream = socket.getOutputStream();
+            this.inputStream = socket.getInputStream();
+        }
+        
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+        
+        @Override
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+        
+        @Override
+        public boolean isConnected() {
+            return socket.isConnected();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
\ No newline at end of file
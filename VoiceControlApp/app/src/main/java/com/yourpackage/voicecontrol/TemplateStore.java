@@ -0,0 +1,134 @@
+package com.yourpackage.voicecontrol;
+
+import android.content.Context;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Voice templates recorded from the command configuration screen, stored per command slot
+// in a memory-mapped TemplateFile. Each slot keeps up to MAX_TEMPLATES_PER_COMMAND examples;
+// recording more replaces the oldest.
+public class TemplateStore {
+    public static final int MAX_TEMPLATES_PER_COMMAND = 3;
+    private static final String FILE_NAME = "templates.bin";
+    
+    private final File file;
+    private final CommandRepository commands;
+    
+    // What the last load returned, so unchanged templates aren't reloaded on every resume
+    private long loadedChecksum;
+    private long loadedCommandsVersion = -1;
+    
+    // Templates are labelled with the commands' current text from the repository
+    public TemplateStore(Context context, CommandRepository commands) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        this.commands = commands;
+    }
+    
+    // Reads only the command index, the frame data isn't touched
+    public int getTemplateCount(int commandNumber) {
+        if (!file.exists()) {
+            return 0;
+        }
+        try {
+            TemplateFile templates = TemplateFile.open(file);
+            int command = templates.findSlot(commandNumber);
+            return command < 0 ? 0 : templates.getTemplateCount(command);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    public void save(int commandNumber, CommandTemplate template) throws IOException {
+        Map<Integer, List<CommandTemplate>> slots = readSlots();
+        List<CommandTemplate> slot = slotOf(slots, commandNumber);
+        if (slot.size() >= MAX_TEMPLATES_PER_COMMAND) {
+            slot.remove(0);
+        }
+        slot.add(template);
+        writeSlots(slots);
+    }
+    
+    public void clear(int commandNumber) throws IOException {
+        Map<Integer, List<CommandTemplate>> slots = readSlots();
+        if (slots.remove(commandNumber) != null) {
+            writeSlots(slots);
+        }
+    }
+    
+    // Templates of every configured command labelled with the command's current text, or
+    // null if neither the file nor the commands changed since the last call
+    public List<CommandTemplate> loadIfChanged() throws IOException {
+        commands.reload();
+        long commandsVersion = commands.getVersion();
+        
+        // Opening only reads the header and index, so an unchanged file costs almost nothing
+        TemplateFile templateFile = file.exists() ? TemplateFile.open(file) : null;
+        long checksum = templateFile != null ? templateFile.getChecksum() : 0;
+        if (checksum == loadedChecksum && commandsVersion == loadedCommandsVersion) {
+            return null;
+        }
+        
+        List<CommandTemplate> templates = new ArrayList<>();
+        if (templateFile != null) {
+            for (int c = 0; c < templateFile.getCommandCount(); c++) {
+                CommandRepository.Command command = commands.find(templateFile.getCommandSlot(c));
+                if (command == null || command.getLabel().isEmpty()) {
+                    continue;
+                }
+                for (int t = 0; t < templateFile.getTemplateCount(c); t++) {
+                    templates.add(templateFile.loadTemplate(c, t).withCommand(command.getLabel()));
+                }
+            }
+        }
+        
+        loadedChecksum = checksum;
+        loadedCommandsVersion = commandsVersion;
+        return templates;
+    }
+    
+    private Map<Integer, List<CommandTemplate>> readSlots() throws IOException {
+        Map<Integer, List<CommandTemplate>> slots = new TreeMap<>();
+        if (!file.exists()) {
+            return slots;
+        }
+        
+        TemplateFile templateFile = TemplateFile.open(file);
+        for (int c = 0; c < templateFile.getCommandCount(); c++) {
+            List<CommandTemplate> slot = slotOf(slots, templateFile.getCommandSlot(c));
+            for (int t = 0; t < templateFile.getTemplateCount(c); t++) {
+                slot.add(templateFile.loadTemplate(c, t));
+            }
+        }
+        return slots;
+    }
+    
+    private static List<CommandTemplate> slotOf(Map<Integer, List<CommandTemplate>> slots, int commandNumber) {
+        List<CommandTemplate> slot = slots.get(commandNumber);
+        if (slot == null) {
+            slot = new ArrayList<>();
+            slots.put(commandNumber, slot);
+        }
+        return slot;
+    }
+    
+    private void writeSlots(Map<Integer, List<CommandTemplate>> slots) throws IOException {
+        int dimension = MfccExtractor.DEFAULT_COEFFICIENTS;
+        for (List<CommandTemplate> slot : slots.values()) {
+            if (!slot.isEmpty()) {
+                dimension = slot.get(0).getDimension();
+            }
+        }
+        TemplateFile.Writer writer = new TemplateFile.Writer(dimension, TemplateFile.Encoding.FLOAT16);
+        for (Map.Entry<Integer, List<CommandTemplate>> slot : slots.entrySet()) {
+            if (!slot.getValue().isEmpty()) {
+                CommandRepository.Command command = commands.find(slot.getKey());
+                writer.addCommand(slot.getKey(), command != null ? command.getLabel() : "", slot.getValue());
+            }
+        }
+        writer.write(file);
+    }
+}
\ No newline at end of file
@@ -6,16 +6,23 @@ import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
+import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import java.util.ArrayList;
+import java.io.IOException;
 
 public class VocalCommandsActivity extends AppCompatActivity {
     private ListView commandsList;
+    private CommandRepository commands;
+    private CommandsAdapter adapter;
+    // Repository version the list shows; edits made elsewhere through the shared
+    // repository are already applied, so reload() alone doesn't tell
+    private long shownVersion = -1;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_vocal_commands);
+        commands = CommandStore.open(this);
         
         setupToolbar();
         initViews();
@@ -34,19 +41,34 @@ public class VocalCommandsActivity extends AppCompatActivity {
     }
     
     private void setupCommandsList() {
-        CommandsAdapter adapter = new CommandsAdapter(this);
+        adapter = new CommandsAdapter(this, commands);
         commandsList.setAdapter(adapter);
         
         commandsList.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
                 Intent intent = new Intent(VocalCommandsActivity.this, CommandConfigActivity.class);
-                intent.putExtra("command_number", position + 1);
+                intent.putExtra("command_number", (int) id);
                 startActivity(intent);
             }
         });
     }
     
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Picks up what was edited on the configuration screen, reading only the new records
+        try {
+            commands.reload();
+        } catch (IOException e) {
+            Toast.makeText(this, "Commands could not be loaded: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+        if (commands.getVersion() != shownVersion) {
+            shownVersion = commands.getVersion();
+            adapter.notifyDataSetChanged();
+        }
+    }
+    
     @Override
     public boolean onSupportNavigateUp() {
         onBackPressed();
@@ -0,0 +1,117 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AudioFeaturesBenchmark {
+    private static final int SAMPLE_RATE = 16000;
+    
+    @Param({"500", "1000", "4000"})
+    public int utteranceMs;
+    
+    // Samples per AudioRecord.read(), i.e. 10 / 20 / 40 / 80 ms at 16 kHz
+    @Param({"160", "320", "640", "1280"})
+    public int bufferSize;
+    
+    private short[] utterance;
+    
+    @Setup
+    public void setUp() {
+        SyntheticAudioSource source = new SyntheticAudioSource(SAMPLE_RATE, 42)
+            .addSegment(utteranceMs / 2, 180, 3000, 400)
+            .addSegment(utteranceMs - utteranceMs / 2, 240, 2500, 400);
+        utterance = new short[source.getLengthInSamples()];
+        source.start();
+        source.read(utterance, 0, utterance.length);
+    }
+    
+    // Per-buffer energy over a whole utterance, as done by the capture loop
+    @Benchmark
+    public void calculateEnergy(Blackhole blackhole) {
+        for (int offset = 0; offset + bufferSize <= utterance.length; offset += bufferSize) {
+            blackhole.consume(AudioFeatures.calculateEnergy(utterance, offset, bufferSize));
+        }
+    }
+    
+    @Benchmark
+    public double calculateAverageAmplitude() {
+        return AudioFeatures.calculateAverageAmplitude(utterance, 0, utterance.length);
+    }
+    
+    @Benchmark
+    public int detectSyllables() {
+        return AudioFeatures.detectSyllables(utterance, 0, utterance.length, SAMPLE_RATE);
+    }
+    
+    // Each read buffer handed from capture to analysis through the frame queue and folded into
+    // the features there, as the capture and analysis threads do
+    @Benchmark
+    public int captureAndExtract(CaptureState capture) {
+        FrameQueue queue = capture.queue;
+        StreamingFeatureExtractor features = capture.features;
+        queue.reset();
+        features.reset();
+        for (int offset = 0; offset + bufferSize <= utterance.length; offset += bufferSize) {
+            System.arraycopy(utterance, offset, queue.array(), queue.claim(), bufferSize);
+            queue.publish(bufferSize);
+            int frame = queue.poll();
+            features.accept(queue.array(), frame, queue.length());
+        }
+        return features.getSyllables() + (int) features.getAverageAmplitude();
+    }
+    
+    // Same features folded in per read buffer; only the O(1) getters remain at end of speech
+    @Benchmark
+    public int streamingExtract(CaptureState capture) {
+        StreamingFeatureExtractor features = capture.features;
+        features.reset();
+        for (int offset = 0; offset + bufferSize <= utterance.length; offset += bufferSize) {
+            features.accept(utterance, offset, bufferSize);
+        }
+        return features.getSyllables() + (int) features.getAverageAmplitude();
+    }
+    
+    // VAD decision per read buffer, the only work done on frames that turn out to be noise
+    @Benchmark
+    public long voiceActivity(CaptureState capture) {
+        VoiceActivityDetector vad = capture.vad;
+        vad.reset();
+        for (int offset = 0; offset + bufferSize <= utterance.length; offset += bufferSize) {
+            vad.process(utterance, offset, bufferSize);
+        }
+        return vad.getSpeechStartCount();
+    }
+    
+    // The recognition engine's shared feature stage: summary features plus MFCC frames,
+    // computed once per utterance for every classifier
+    @Benchmark
+    public int utteranceFeatures(CaptureState capture) {
+        UtteranceFeatures features = capture.utterance;
+        features.reset();
+        for (int offset = 0; offset + bufferSize <= utterance.length; offset += bufferSize) {
+            features.accept(utterance, offset, bufferSize);
+        }
+        features.finish();
+        return features.getFrameCount() + features.getSyllables();
+    }
+    
+    @State(Scope.Thread)
+    public static class CaptureState {
+        // Slots as large as the largest read buffer
+        FrameQueue queue = new FrameQueue(1280, 8, 10);
+        StreamingFeatureExtractor features = new StreamingFeatureExtractor(SAMPLE_RATE);
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE);
+        UtteranceFeatures utterance = new UtteranceFeatures(SAMPLE_RATE, 4000);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// The classifier stages side by side on the same utterance features; computing the features
+// themselves is AudioFeaturesBenchmark.utteranceFeatures. Templates are recorded from
+// synthetic two-tone "words".
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClassifierBenchmark {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int MAX_UTTERANCE_MS = 4000;
+    private static final int COMMAND_COUNT = 10;
+    private static final int TEMPLATES_PER_COMMAND = 3;
+    
+    @Param({"basic", "patterns", "templates", "templates+patterns"})
+    public String classifierName;
+    
+    private UtteranceClassifier classifier;
+    private UtteranceFeatures features;
+    private final RecognitionResult result = new RecognitionResult();
+    private short[] utterance;
+    
+    @Setup
+    public void setUp() {
+        List<CommandTemplate> templates = new ArrayList<>();
+        for (int c = 0; c < COMMAND_COUNT; c++) {
+            for (int t = 0; t < TEMPLATES_PER_COMMAND; t++) {
+                UtteranceFeatures recorded = extract(word(c, 100 * c + t));
+                templates.add(recorded.toTemplate("command_" + c));
+            }
+        }
+        TemplateClassifier templateClassifier = new TemplateClassifier(MfccExtractor.DEFAULT_COEFFICIENTS);
+        templateClassifier.setTemplates(templates);
+        PatternClassifier patternClassifier = new PatternClassifier();
+        
+        switch (classifierName) {
+            case "basic":
+                classifier = new BasicHeuristicClassifier();
+                break;
+            case "patterns":
+                classifier = patternClassifier;
+                break;
+            case "templates":
+                classifier = templateClassifier;
+                break;
+            default:
+                classifier = new FallbackClassifier(templateClassifier, patternClassifier);
+                break;
+        }
+        
+        utterance = word(3, 7);
+        features = extract(utterance);
+    }
+    
+    private static short[] word(int command, long seed) {
+        SyntheticAudioSource source = new SyntheticAudioSource(SAMPLE_RATE, seed)
+            .addSegment(250 + 20 * command, 150 + 40 * command, 3000, 300)
+            .addSegment(300, 900 - 50 * command, 2500, 300);
+        short[] samples = new short[source.getLengthInSamples()];
+        source.start();
+        source.read(samples, 0, samples.length);
+        return samples;
+    }
+    
+    private static UtteranceFeatures extract(short[] samples) {
+        UtteranceFeatures features = new UtteranceFeatures(SAMPLE_RATE, MAX_UTTERANCE_MS);
+        features.accept(samples, 0, samples.length);
+        features.finish();
+        return features;
+    }
+    
+    @Benchmark
+    public RecognitionResult classify() {
+        classifier.classify(features, result);
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommandMatcherBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    
+    @Param({"7", "100", "500", "1000"})
+    public int patternCount;
+    
+    private CommandMatcher matcher;
+    private double[] durations;
+    private double[] amplitudes;
+    private int[] syllables;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        matcher = new CommandMatcher();
+        for (int i = 0; i < patternCount; i++) {
+            double minDuration = 0.2 + random.nextDouble();
+            double minAmplitude = 1500 + random.nextDouble() * 2000;
+            CommandPattern pattern = new CommandPattern("command_" + i);
+            pattern.addSignature(minDuration, minDuration + 0.5, minAmplitude, minAmplitude + 2000, 1 + random.nextInt(3));
+            matcher.addPattern("command_" + i, pattern);
+        }
+        
+        durations = new double[QUERY_COUNT];
+        amplitudes = new double[QUERY_COUNT];
+        syllables = new int[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            durations[i] = 0.2 + random.nextDouble() * 1.5;
+            amplitudes[i] = 1500 + random.nextDouble() * 3500;
+            syllables[i] = 1 + random.nextInt(3);
+        }
+    }
+    
+    @Benchmark
+    public String findBestMatch() {
+        int i = next++ & (QUERY_COUNT - 1);
+        return matcher.findBestMatch(durations[i], amplitudes[i], syllables[i]);
+    }
+}
\ No newline at end of file
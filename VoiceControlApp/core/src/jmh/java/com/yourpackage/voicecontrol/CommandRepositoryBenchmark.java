@@ -0,0 +1,58 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Startup and resume cost of the command list: loading every command into a table, and the
+// reload on resume when nothing changed
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandRepositoryBenchmark {
+    @Param({"10", "1000"})
+    public int commandCount;
+    
+    private File file;
+    private CommandRepository loaded;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("commands", ".bin");
+        file.delete();
+        CommandRepository.Batch batch = new CommandRepository(file).edit();
+        for (int i = 1; i <= commandCount; i++) {
+            batch.put(i, "command " + i, "DATA_" + i);
+        }
+        batch.commit();
+        
+        loaded = new CommandRepository(file);
+        loaded.reload();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+    
+    @Benchmark
+    public CommandTable loadTable() throws IOException {
+        CommandRepository repository = new CommandRepository(file);
+        repository.reload();
+        return repository.toTable();
+    }
+    
+    @Benchmark
+    public boolean reloadUnchanged() throws IOException {
+        return loaded.reload();
+    }
+}
\ No newline at end of file
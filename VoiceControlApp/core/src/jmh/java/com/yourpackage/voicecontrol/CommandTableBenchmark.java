@@ -0,0 +1,64 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Recognized command to encoded bytes: the old normalize-and-look-up path against the
+// precompiled CommandTable
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandTableBenchmark {
+    private static final int SLOTS = 10;
+    private static final int QUERY_COUNT = 16;
+    
+    private final Map<String, String> commands = new HashMap<>();
+    private CommandTable table;
+    private final FrameEncoder encoder = new FrameEncoder(FrameEncoder.MAX_FRAME_SIZE);
+    // Command names as the recognizer emits them, the same instances every time
+    private final String[] recognized = new String[QUERY_COUNT];
+    private final RecognitionResult result = new RecognitionResult();
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        CommandTable.Builder builder = new CommandTable.Builder();
+        for (int i = 1; i <= SLOTS; i++) {
+            String label = "Command " + i;
+            String data = "DATA_" + i;
+            commands.put(label.toLowerCase().trim(), data);
+            builder.add(i, label, data);
+        }
+        table = builder.build();
+        
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            recognized[i] = "Command " + (1 + i % SLOTS);
+        }
+    }
+    
+    @Benchmark
+    public int normalizedLookup() {
+        String command = recognized[next++ & (QUERY_COUNT - 1)];
+        encoder.clear();
+        encoder.appendLine(commands.get(command.toLowerCase().trim()));
+        return encoder.size();
+    }
+    
+    @Benchmark
+    public int tableLookup() {
+        result.reset();
+        result.offer(recognized[next++ & (QUERY_COUNT - 1)], 1);
+        result.resolveCommandIds(table);
+        encoder.clear();
+        encoder.appendLine(table.get(result.getCommandId()).payload);
+        return encoder.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Templates are time-warped, noisy copies of one random-walk base sequence per command,
+// so lower bounds prune the way they would on real recordings of distinct words
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DtwMatcherBenchmark {
+    private static final int DIMENSION = MfccExtractor.DEFAULT_COEFFICIENTS;
+    private static final int COMMAND_COUNT = 10;
+    private static final int BASE_FRAMES = 80;
+    private static final int QUERY_COUNT = 64;
+    
+    @Param({"10", "30", "100", "500"})
+    public int templateCount;
+    
+    // 100 frames is one second of speech at a 10 ms hop
+    @Param({"50", "100"})
+    public int queryFrames;
+    
+    private DtwMatcher matcher;
+    private final DtwMatcher.Match match = new DtwMatcher.Match();
+    private float[][] queries;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        float[][] bases = new float[COMMAND_COUNT][];
+        for (int c = 0; c < COMMAND_COUNT; c++) {
+            float[] base = new float[BASE_FRAMES * DIMENSION];
+            float[] walk = new float[DIMENSION];
+            for (int i = 0; i < base.length; i++) {
+                walk[i % DIMENSION] += (float) random.nextGaussian();
+                base[i] = walk[i % DIMENSION];
+            }
+            bases[c] = base;
+        }
+        
+        matcher = new DtwMatcher(DIMENSION);
+        for (int t = 0; t < templateCount; t++) {
+            int frames = 50 + random.nextInt(100);
+            int command = t % COMMAND_COUNT;
+            matcher.addTemplate(new CommandTemplate("command_" + command,
+                    warp(bases[command], frames, random), frames, DIMENSION));
+        }
+        
+        queries = new float[QUERY_COUNT][];
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            queries[q] = warp(bases[random.nextInt(COMMAND_COUNT)], queryFrames, random);
+        }
+    }
+    
+    private static float[] warp(float[] base, int frames, Random random) {
+        float[] warped = new float[frames * DIMENSION];
+        for (int i = 0; i < frames; i++) {
+            int source = i * BASE_FRAMES / frames;
+            for (int d = 0; d < DIMENSION; d++) {
+                warped[i * DIMENSION + d] = base[source * DIMENSION + d] + (float) random.nextGaussian() * 0.5f;
+            }
+        }
+        return warped;
+    }
+    
+    @Benchmark
+    public DtwMatcher.Match findBestMatch() {
+        matcher.findBestMatch(queries[next++ & (QUERY_COUNT - 1)], queryFrames, match);
+        return match;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MfccBenchmark {
+    private static final int SAMPLE_RATE = 16000;
+    
+    // Samples per AudioRecord.read()
+    @Param({"160", "640"})
+    public int bufferSize;
+    
+    private short[] audio;
+    private MfccExtractor extractor;
+    private RealFft fft;
+    private float[] fftInput;
+    private float[] power;
+    private float[] coefficients;
+    
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        SyntheticAudioSource source = new SyntheticAudioSource(SAMPLE_RATE, 42)
+            .addSegment(1000, 220, 3000, 500);
+        audio = new short[source.getLengthInSamples()];
+        source.start();
+        source.read(audio, 0, audio.length);
+        
+        extractor = new MfccExtractor(SAMPLE_RATE);
+        extractor.setFrameListener((c, index) -> blackhole.consume(c));
+        
+        fft = new RealFft(512);
+        fftInput = new float[512];
+        for (int i = 0; i < fftInput.length; i++) {
+            fftInput[i] = audio[i];
+        }
+        power = new float[257];
+        coefficients = new float[extractor.getNumCoefficients()];
+    }
+    
+    @Benchmark
+    public float[] powerSpectrum512() {
+        fft.powerSpectrum(fftInput, power);
+        return power;
+    }
+    
+    // One 25 ms frame end to end; 100 of these are needed per second of audio
+    @Benchmark
+    public float[] singleFrame() {
+        extractor.computeFrame(audio, 1600, coefficients);
+        return coefficients;
+    }
+    
+    // One second of audio streamed in read-sized chunks, 98 frames emitted
+    @Benchmark
+    public long streamOneSecond() {
+        extractor.reset();
+        for (int offset = 0; offset + bufferSize <= audio.length; offset += bufferSize) {
+            extractor.accept(audio, offset, bufferSize);
+        }
+        return extractor.getFrameCount();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Startup cost of the template store: index-only open, full load, and the Base64
+// string-per-template format it replaced as a baseline
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateFileBenchmark {
+    private static final int DIMENSION = MfccExtractor.DEFAULT_COEFFICIENTS;
+    private static final int TEMPLATES_PER_COMMAND = 3;
+    
+    @Param({"30", "500"})
+    public int templateCount;
+    
+    @Param({"FLOAT16", "INT8"})
+    public TemplateFile.Encoding encoding;
+    
+    private File file;
+    private String[] legacyStrings;
+    
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        List<CommandTemplate> templates = new ArrayList<>();
+        legacyStrings = new String[templateCount];
+        for (int t = 0; t < templateCount; t++) {
+            int frames = 50 + random.nextInt(100);
+            float[] values = new float[frames * DIMENSION];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (float) random.nextGaussian() * 5;
+            }
+            templates.add(new CommandTemplate("command_" + t / TEMPLATES_PER_COMMAND, values, frames, DIMENSION));
+            
+            ByteBuffer bytes = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asFloatBuffer().put(values);
+            legacyStrings[t] = frames + ":" + DIMENSION + ":" + Base64.getEncoder().encodeToString(bytes.array());
+        }
+        
+        TemplateFile.Writer writer = new TemplateFile.Writer(DIMENSION, encoding);
+        for (int c = 0; c * TEMPLATES_PER_COMMAND < templateCount; c++) {
+            int end = Math.min(templateCount, (c + 1) * TEMPLATES_PER_COMMAND);
+            writer.addCommand(c + 1, "command_" + c, templates.subList(c * TEMPLATES_PER_COMMAND, end));
+        }
+        file = File.createTempFile("templates", ".bin");
+        writer.write(file);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+    
+    @Benchmark
+    public int openIndex() throws IOException {
+        return TemplateFile.open(file).getTotalTemplateCount();
+    }
+    
+    @Benchmark
+    public List<CommandTemplate> loadTemplates() throws IOException {
+        return TemplateFile.open(file).loadTemplates();
+    }
+    
+    @Benchmark
+    public List<CommandTemplate> legacyBase64() {
+        List<CommandTemplate> templates = new ArrayList<>(legacyStrings.length);
+        for (String encoded : legacyStrings) {
+            String[] parts = encoded.split(":", 3);
+            int frames = Integer.parseInt(parts[0]);
+            int dimension = Integer.parseInt(parts[1]);
+            float[] values = new float[frames * dimension];
+            ByteBuffer.wrap(Base64.getDecoder().decode(parts[2])).order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer().get(values);
+            templates.add(new CommandTemplate("command", values, frames, dimension));
+        }
+        return templates;
+    }
+}
\ No newline at end of file
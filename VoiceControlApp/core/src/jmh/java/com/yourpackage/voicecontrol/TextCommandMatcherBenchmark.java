@@ -0,0 +1,82 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Matching transcribed text against a large command table with one alias per command:
+// spelled exactly, misspelled, and not a command at all
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextCommandMatcherBenchmark {
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ter", "von", "sa", "ri", "do", "pel", "nu", "ga", "shi", "for", "bek", "tan", "le"
+    };
+    private static final int QUERY_COUNT = 64;
+    
+    @Param({"100", "2000"})
+    public int commandCount;
+    
+    private CommandTable table;
+    private final String[] exact = new String[QUERY_COUNT];
+    private final String[] misspelled = new String[QUERY_COUNT];
+    private final String[] unknown = new String[QUERY_COUNT];
+    private final RecognitionResult result = new RecognitionResult();
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] labels = new String[commandCount];
+        CommandTable.Builder builder = new CommandTable.Builder();
+        for (int i = 0; i < commandCount; i++) {
+            labels[i] = phrase(random) + " " + phrase(random);
+            builder.add(i + 1, labels[i], "DATA_" + i).alias(i + 1, phrase(random));
+        }
+        table = builder.build();
+        table.getTextMatcher();
+        
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            String label = labels[random.nextInt(commandCount)];
+            exact[i] = label;
+            char[] typo = label.toCharArray();
+            typo[random.nextInt(typo.length)] = 'x';
+            misspelled[i] = new String(typo);
+            unknown[i] = "zz" + phrase(random) + " qq" + phrase(random);
+        }
+    }
+    
+    private static String phrase(Random random) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < 2 + random.nextInt(2); i++) {
+            phrase.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return phrase.toString();
+    }
+    
+    @Benchmark
+    public int exactText() {
+        table.matchText(exact[next++ & (QUERY_COUNT - 1)], result);
+        return result.getCommandId();
+    }
+    
+    @Benchmark
+    public int misspelledText() {
+        table.matchText(misspelled[next++ & (QUERY_COUNT - 1)], result);
+        return result.getCommandId();
+    }
+    
+    @Benchmark
+    public int unknownText() {
+        table.matchText(unknown[next++ & (QUERY_COUNT - 1)], result);
+        return result.getCommandId();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Commands sent on an acknowledged link that the device hasn't confirmed yet, keyed by
+// frame sequence number. At most WINDOW are in flight.
+final class AckTracker {
+    static final int WINDOW = 64;
+    
+    static final class Pending {
+        // Carries the issue time, e.g. when the user stopped speaking
+        final OutboundScheduler.Command command;
+        final int commandId;
+        final byte[] payload;
+        final int length;
+        volatile int sequence;
+        volatile long sentNanos;
+        volatile int transmissions;
+        
+        Pending(OutboundScheduler.Command command, int commandId, byte[] payload, int length) {
+            this.command = command;
+            this.commandId = commandId;
+            this.payload = payload;
+            this.length = length;
+        }
+    }
+    
+    private static final Comparator<Pending> BY_SENT = new Comparator<Pending>() {
+        @Override
+        public int compare(Pending a, Pending b) {
+            return Long.compare(a.sentNanos, b.sentNanos);
+        }
+    };
+    
+    private final Pending[] bySequence = new Pending[256];
+    // Numbers last given to a heartbeat, whose ACK is expected and not a duplicate
+    private final boolean[] heartbeats = new boolean[256];
+    private int count;
+    private int nextSequence;
+    
+    private int nextSequence() {
+        while (bySequence[nextSequence] != null) {
+            nextSequence = (nextSequence + 1) & 0xFF;
+        }
+        int sequence = nextSequence;
+        nextSequence = (nextSequence + 1) & 0xFF;
+        return sequence;
+    }
+    
+    // Sequence number for a heartbeat frame, which isn't tracked
+    synchronized int nextHeartbeatSequence() {
+        int sequence = nextSequence();
+        heartbeats[sequence] = true;
+        return sequence;
+    }
+    
+    // Assigns pending a free sequence number and tracks it until acknowledged
+    synchronized int register(Pending pending) {
+        if (count >= WINDOW) {
+            throw new IllegalStateException("Window full");
+        }
+        int sequence = nextSequence();
+        pending.sequence = sequence;
+        bySequence[sequence] = pending;
+        heartbeats[sequence] = false;
+        count++;
+        return sequence;
+    }
+    
+    // True, once, if the ACK is for a heartbeat
+    synchronized boolean acknowledgeHeartbeat(int sequence) {
+        if (!heartbeats[sequence & 0xFF]) {
+            return false;
+        }
+        heartbeats[sequence & 0xFF] = false;
+        return true;
+    }
+    
+    // Removes and returns the command the ACK is for; null for a duplicate or stray ACK
+    synchronized Pending acknowledge(int sequence) {
+        Pending pending = bySequence[sequence & 0xFF];
+        if (pending == null) {
+            return null;
+        }
+        bySequence[sequence & 0xFF] = null;
+        count--;
+        notifyAll();
+        return pending;
+    }
+    
+    // Returns false if it was acknowledged in the meantime
+    synchronized boolean remove(Pending pending) {
+        if (bySequence[pending.sequence] != pending) {
+            return false;
+        }
+        bySequence[pending.sequence] = null;
+        count--;
+        notifyAll();
+        return true;
+    }
+    
+    synchronized boolean isTracked(Pending pending) {
+        return bySequence[pending.sequence] == pending;
+    }
+    
+    // Adds the commands whose last transmission is at least timeoutNanos old, oldest first
+    synchronized void collectExpired(long now, long timeoutNanos, List<Pending> expired) {
+        int start = expired.size();
+        for (Pending pending : bySequence) {
+            if (pending != null && now - pending.sentNanos >= timeoutNanos) {
+                expired.add(pending);
+            }
+        }
+        Collections.sort(expired.subList(start, expired.size()), BY_SENT);
+    }
+    
+    // Nanoseconds until the next command times out, or Long.MAX_VALUE with nothing in flight
+    synchronized long nanosUntilExpiry(long now, long timeoutNanos) {
+        long wait = Long.MAX_VALUE;
+        for (Pending pending : bySequence) {
+            if (pending != null) {
+                wait = Math.min(wait, Math.max(0, pending.sentNanos + timeoutNanos - now));
+            }
+        }
+        return wait;
+    }
+    
+    // Untracks everything, oldest first, for sending again on a new connection
+    synchronized List<Pending> drain() {
+        List<Pending> all = new ArrayList<>(count);
+        for (int i = 0; i < bySequence.length; i++) {
+            if (bySequence[i] != null) {
+                all.add(bySequence[i]);
+                bySequence[i] = null;
+            }
+        }
+        count = 0;
+        nextSequence = 0;
+        Arrays.fill(heartbeats, false);
+        Collections.sort(all, BY_SENT);
+        notifyAll();
+        return all;
+    }
+    
+    synchronized boolean isFull() {
+        return count >= WINDOW;
+    }
+    
+    // Waits until an ACK frees a slot or the time is up
+    synchronized void awaitSpace(long timeoutNanos) throws InterruptedException {
+        if (count >= WINDOW && timeoutNanos > 0) {
+            wait(Math.max(1, timeoutNanos / 1000000));
+        }
+    }
+    
+    synchronized int size() {
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.yourpackage.voicecontrol;
+
+public class AudioFeatures {
+    private static final int SYLLABLE_WINDOW_MS = 100;
+    private static final double SYLLABLE_ONSET_ENERGY = 1000000;
+    private static final double SYLLABLE_OFFSET_ENERGY = 500000;
+    
+    private AudioFeatures() {
+    }
+    
+    public static double calculateMeanSquare(short[] buffer, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += buffer[i] * buffer[i];
+        }
+        return sum / length;
+    }
+    
+    // RMS energy of the buffer
+    public static double calculateEnergy(short[] buffer, int offset, int length) {
+        return Math.sqrt(calculateMeanSquare(buffer, offset, length));
+    }
+    
+    public static double calculateAverageAmplitude(short[] samples, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += Math.abs(samples[i]);
+        }
+        return sum / length;
+    }
+    
+    public static int detectSyllables(short[] samples, int offset, int length, int sampleRate) {
+        // Simple syllable detection based on energy peaks
+        int windowSize = sampleRate * SYLLABLE_WINDOW_MS / 1000;
+        int syllables = 0;
+        int windowIndex = 0;
+        double windowSum = 0;
+        boolean inSyllable = false;
+        
+        for (int i = offset; i < offset + length; i++) {
+            double energy = samples[i] * samples[i];
+            windowSum += energy;
+            windowIndex++;
+            
+            if (windowIndex >= windowSize) {
+                double avgEnergy = windowSum / windowSize;
+                
+                if (avgEnergy > SYLLABLE_ONSET_ENERGY && !inSyllable) {
+                    syllables++;
+                    inSyllable = true;
+                } else if (avgEnergy < SYLLABLE_OFFSET_ENERGY) {
+                    inSyllable = false;
+                }
+                
+                windowSum = 0;
+                windowIndex = 0;
+            }
+        }
+        
+        return Math.max(1, syllables); // At least 1 syllable
+    }
+}
\ No newline at end of file
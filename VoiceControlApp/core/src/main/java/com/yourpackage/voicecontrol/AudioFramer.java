@@ -0,0 +1,82 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Cuts whatever an AudioSource returns per read into whole fixed-size analysis frames.
+public class AudioFramer {
+    private static final long MIN_BACKOFF_NANOS = 1000000;
+    
+    private final int sampleRate;
+    private final int frameSamples;
+    private final ReadJitterStats jitter = new ReadJitterStats();
+    private long lastFrameNanos = -1;
+    
+    // Frame left part-filled by an empty read
+    private short[] partialBuffer;
+    private int partialOffset;
+    private int partialFilled;
+    private long backoffNanos = MIN_BACKOFF_NANOS;
+    
+    public AudioFramer(int sampleRate, int frameMs) {
+        if (frameMs < 5 || frameMs > 100) {
+            throw new IllegalArgumentException("Frame size must be 5 to 100 ms: " + frameMs);
+        }
+        this.sampleRate = sampleRate;
+        this.frameSamples = sampleRate * frameMs / 1000;
+        reset();
+    }
+    
+    public void reset() {
+        jitter.reset(getFrameNanos());
+        lastFrameNanos = -1;
+        partialBuffer = null;
+        backoffNanos = MIN_BACKOFF_NANOS;
+    }
+    
+    public int getFrameSamples() {
+        return frameSamples;
+    }
+    
+    private long getFrameNanos() {
+        return frameSamples * 1000000000L / sampleRate;
+    }
+    
+    // Fills frameSamples samples at offset and returns frameSamples. Returns 0, after a growing
+    // back-off, if the source had nothing to read, and its negative value once it has ended.
+    public int readFrame(AudioSource source, short[] buffer, int offset) {
+        int filled = 0;
+        if (buffer == partialBuffer && offset == partialOffset) {
+            filled = partialFilled;
+        }
+        partialBuffer = null;
+        while (filled < frameSamples) {
+            int read = source.read(buffer, offset + filled, frameSamples - filled);
+            if (read < 0) {
+                return read;
+            }
+            if (read == 0) {
+                // Let the caller check whether it was stopped; the samples so far are kept
+                // for its next call with the same buffer and offset
+                partialBuffer = buffer;
+                partialOffset = offset;
+                partialFilled = filled;
+                LockSupport.parkNanos(backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, getFrameNanos());
+                return 0;
+            }
+            backoffNanos = MIN_BACKOFF_NANOS;
+            filled += read;
+        }
+        
+        long now = System.nanoTime();
+        if (lastFrameNanos >= 0) {
+            jitter.record(now - lastFrameNanos);
+        }
+        lastFrameNanos = now;
+        return filled;
+    }
+    
+    public void getJitterStats(ReadJitterStats into) {
+        into.copyFrom(jitter);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.yourpackage.voicecontrol;
+
+public class AudioSignature {
+    final double minDuration, maxDuration;
+    final double minAmplitude, maxAmplitude;
+    final int syllables;
+    
+    public AudioSignature(double minDuration, double maxDuration, double minAmplitude, double maxAmplitude, int syllables) {
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        this.minAmplitude = minAmplitude;
+        this.maxAmplitude = maxAmplitude;
+        this.syllables = syllables;
+    }
+    
+    public boolean matches(double duration, double amplitude, int detectedSyllables) {
+        return duration >= minDuration && duration <= maxDuration &&
+               amplitude >= minAmplitude && amplitude <= maxAmplitude &&
+               Math.abs(detectedSyllables - syllables) <= 1;
+    }
+    
+    public double score(double duration, double amplitude, int detectedSyllables) {
+        double durationScore = 1.0 - Math.abs(duration - (minDuration + maxDuration) / 2) / 2.0;
+        double amplitudeScore = 1.0 - Math.abs(amplitude - (minAmplitude + maxAmplitude) / 2) / 3000.0;
+        double syllableScore = 1.0 - Math.abs(detectedSyllables - syllables) / 3.0;
+        
+        return (durationScore + amplitudeScore + syllableScore) / 3.0;
+    }
+}
\ No newline at end of file
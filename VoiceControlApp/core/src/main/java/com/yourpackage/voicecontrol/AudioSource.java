@@ -0,0 +1,14 @@
+package com.yourpackage.voicecontrol;
+
+public interface AudioSource {
+    // Returns false if the source could not be opened
+    boolean start();
+    
+    // Returns the number of samples read, 0 if none are available yet, or a negative value at
+    // end of stream / on error
+    int read(short[] buffer, int offset, int length);
+    
+    void stop();
+    
+    int getSampleRate();
+}
\ No newline at end of file
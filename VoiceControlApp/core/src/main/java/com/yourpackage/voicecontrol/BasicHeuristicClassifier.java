@@ -0,0 +1,57 @@
+package com.yourpackage.voicecontrol;
+
+// The original duration / amplitude decision tree. Always returns some command, so it
+// is mostly useful as a baseline to compare the other classifiers against.
+public class BasicHeuristicClassifier implements UtteranceClassifier {
+    // The tree has no notion of how sure it is
+    private static final double CONFIDENCE = 0.5;
+    
+    @Override
+    public String getName() {
+        return "basic";
+    }
+    
+    @Override
+    public boolean classify(UtteranceFeatures features, RecognitionResult result) {
+        result.reset();
+        result.offer(decide(features), CONFIDENCE);
+        return true;
+    }
+    
+    private static String decide(UtteranceFeatures features) {
+        double avgAmplitude = features.getAverageAmplitude();
+        double duration = features.getDuration();
+        
+        // Simple heuristic matching based on duration and amplitude
+        if (duration < 0.5) {
+            // Short commands
+            if (avgAmplitude > 2000) {
+                return "stop";
+            } else {
+                return "on";
+            }
+        } else if (duration < 1.0) {
+            // Medium commands
+            if (avgAmplitude > 2500) {
+                return "forward";
+            } else if (avgAmplitude > 2000) {
+                return "left";
+            } else {
+                return "right";
+            }
+        } else {
+            // Longer commands
+            if (avgAmplitude > 2000) {
+                return "turn on";
+            } else {
+                return "turn off";
+            }
+        }
+    }
+    
+    @Override
+    public boolean classifyPartial(UtteranceFeatures features, RecognitionResult result) {
+        result.reset();
+        return false;
+    }
+}
\ No newline at end of file
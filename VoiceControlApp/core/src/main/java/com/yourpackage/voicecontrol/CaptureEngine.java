@@ -0,0 +1,388 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs recognition sessions on a capture thread that only reads frames and an analysis
+// thread that processes them. start() and stop() can be called from any thread.
+public class CaptureEngine {
+    public static final int DEFAULT_FRAME_MS = 20;
+    public static final int DEFAULT_PRE_ROLL_MS = 200;
+    // How far analysis may fall behind before capture starts dropping frames
+    private static final int QUEUE_MS = 1000;
+    private static final long STOP_TIMEOUT_MS = 1000;
+    
+    public enum State {
+        IDLE,
+        // Opening the audio source
+        STARTING,
+        LISTENING,
+        // Capture has ended and the processor is finishing its decision
+        PROCESSING,
+        // stop() was called, waiting for capture to let go of the source
+        STOPPING
+    }
+    
+    public enum StartResult {
+        STARTED,
+        // A session is already running, or the engine was released
+        BUSY,
+        SOURCE_FAILED,
+        // stop() was called while the source was opening
+        CANCELLED
+    }
+    
+    public interface FrameProcessor {
+        // Analysis thread, before the first frame of a session
+        void onSessionStart();
+        
+        // Returns false to end capture and move to PROCESSING, e.g. once a single-shot
+        // recognition is done
+        boolean onFrame(short[] samples, int offset, int length);
+        
+        // Analysis thread, after the last frame. endOfStream is set if the audio source ran
+        // out or failed, as opposed to stop() or the processor ending the session.
+        void onSessionEnd(boolean endOfStream);
+        
+        // Analysis thread, instead of onSessionEnd when one of the calls above threw; the
+        // session is over but the engine keeps going
+        void onSessionFailed(RuntimeException error);
+        
+        // Analysis thread, once the engine is IDLE again and start() gets through, e.g. to
+        // report the end of the session or start the next one
+        void onSessionClosed();
+    }
+    
+    // Called on each engine thread as it starts; on Android this raises the thread to
+    // audio priority
+    public interface ThreadPriorities {
+        void onCaptureThreadStart();
+        void onAnalysisThreadStart();
+    }
+    
+    private static final ThreadPriorities DEFAULT_PRIORITIES = new ThreadPriorities() {
+        @Override
+        public void onCaptureThreadStart() {
+        }
+        
+        @Override
+        public void onAnalysisThreadStart() {
+        }
+    };
+    
+    private final int sampleRate;
+    private final ThreadPriorities priorities;
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+    private final Object lock = new Object();
+    
+    // Guarded by lock; session is bumped to wake both threads for a new session
+    private boolean released;
+    private long session;
+    // Written under lock, read by stop() without it
+    private volatile Thread captureThread;
+    private volatile Thread analysisThread;
+    
+    // Set while idle, read by the engine threads during a session
+    private int frameMs = DEFAULT_FRAME_MS;
+    private int preRollMs = DEFAULT_PRE_ROLL_MS;
+    private AudioFramer framer;
+    private FrameQueue queue;
+    private short[] dropBuffer;
+    private AudioSource source;
+    private FrameProcessor processor;
+    
+    private volatile boolean capturing;
+    private volatile boolean captureEnded;
+    private volatile boolean endOfStream;
+    private volatile long droppedFrames;
+    private volatile long processorFailures;
+    
+    public CaptureEngine(int sampleRate) {
+        this(sampleRate, DEFAULT_PRIORITIES);
+    }
+    
+    public CaptureEngine(int sampleRate, ThreadPriorities priorities) {
+        this.sampleRate = sampleRate;
+        this.priorities = priorities;
+        configure();
+    }
+    
+    public void setFrameMs(int ms) {
+        synchronized (lock) {
+            checkIdle();
+            this.frameMs = ms;
+            configure();
+        }
+    }
+    
+    public void setPreRollMs(int ms) {
+        synchronized (lock) {
+            checkIdle();
+            this.preRollMs = ms;
+            configure();
+        }
+    }
+    
+    private void configure() {
+        framer = new AudioFramer(sampleRate, frameMs);
+        int frameSamples = framer.getFrameSamples();
+        int historyFrames = (sampleRate * preRollMs / 1000 + frameSamples - 1) / frameSamples;
+        queue = new FrameQueue(frameSamples, QUEUE_MS / frameMs, historyFrames);
+        dropBuffer = new short[frameSamples];
+    }
+    
+    private void checkIdle() {
+        if (state.get() != State.IDLE) {
+            throw new IllegalStateException("Cannot reconfigure capture while listening");
+        }
+    }
+    
+    // Opens the source and starts a session on it
+    public StartResult start(AudioSource source, FrameProcessor processor) {
+        if (!state.compareAndSet(State.IDLE, State.STARTING)) {
+            return StartResult.BUSY;
+        }
+        
+        boolean opened = false;
+        boolean committed = false;
+        try {
+            synchronized (lock) {
+                if (released) {
+                    return StartResult.BUSY;
+                }
+            }
+            // Outside the lock: opening AudioRecord can take a while and stop() must get through
+            if (!source.start()) {
+                return StartResult.SOURCE_FAILED;
+            }
+            opened = true;
+            
+            synchronized (lock) {
+                if (captureThread == null) {
+                    captureThread = new Thread(this::runCapture, "AudioCapture");
+                    analysisThread = new Thread(this::runAnalysis, "AudioAnalysis");
+                    captureThread.setDaemon(true);
+                    analysisThread.setDaemon(true);
+                    captureThread.start();
+                    analysisThread.start();
+                }
+                
+                this.source = source;
+                this.processor = processor;
+                queue.reset();
+                framer.reset();
+                droppedFrames = 0;
+                endOfStream = false;
+                captureEnded = false;
+                capturing = true;
+                if (!state.compareAndSet(State.STARTING, State.LISTENING)) {
+                    return StartResult.CANCELLED;
+                }
+                committed = true;
+                session++;
+                lock.notifyAll();
+            }
+            return StartResult.STARTED;
+        } finally {
+            if (!committed) {
+                if (opened) {
+                    source.stop();
+                }
+                setIdle();
+            }
+        }
+    }
+    
+    // Ends the session and waits for it to wind down, except when called from the
+    // processor itself, which must not wait on its own thread. A decision already being
+    // processed is allowed to finish.
+    public void stop() {
+        while (true) {
+            State current = state.get();
+            if (current == State.STARTING || current == State.LISTENING) {
+                if (!state.compareAndSet(current, State.STOPPING)) {
+                    continue;
+                }
+                capturing = false;
+            } else if (current == State.IDLE) {
+                return;
+            }
+            break;
+        }
+        
+        Thread current = Thread.currentThread();
+        if (current == captureThread || current == analysisThread) {
+            return;
+        }
+        
+        synchronized (lock) {
+            long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+            long remaining = STOP_TIMEOUT_MS;
+            while (state.get() != State.IDLE && remaining > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+    }
+    
+    public void release() {
+        stop();
+        synchronized (lock) {
+            released = true;
+            lock.notifyAll();
+        }
+    }
+    
+    public State getState() {
+        return state.get();
+    }
+    
+    public boolean isRunning() {
+        return state.get() != State.IDLE;
+    }
+    
+    private void setIdle() {
+        synchronized (lock) {
+            state.set(State.IDLE);
+            lock.notifyAll();
+        }
+    }
+    
+    // Frames the capture thread threw away because analysis was a full queue behind
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+    
+    // Exceptions thrown by the processor, each of which ended its session early or came
+    // from onSessionClosed
+    public long getProcessorFailures() {
+        return processorFailures;
+    }
+    
+    public void getJitterStats(ReadJitterStats into) {
+        AudioFramer framer;
+        synchronized (lock) {
+            framer = this.framer;
+        }
+        framer.getJitterStats(into);
+    }
+    
+    // Analysis thread only: audio from just before the current frame, see FrameQueue
+    public void drainPreRoll(FrameQueue.Sink sink) {
+        queue.drainPreRoll(sink, sampleRate * preRollMs / 1000);
+    }
+    
+    // Analysis thread only
+    public void discardPreRoll() {
+        queue.discardHistory();
+    }
+    
+    private long awaitSession(long lastSession) {
+        synchronized (lock) {
+            while (!released && session == lastSession) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    // Only release() ends the engine threads
+                }
+            }
+            return released ? -1 : session;
+        }
+    }
+    
+    private void runCapture() {
+        priorities.onCaptureThreadStart();
+        long seen = 0;
+        while ((seen = awaitSession(seen)) >= 0) {
+            FrameQueue queue = this.queue;
+            AudioFramer framer = this.framer;
+            AudioSource source = this.source;
+            Thread analysis = analysisThread;
+            
+            while (capturing) {
+                int offset = queue.claim();
+                int read;
+                if (offset < 0) {
+                    // Analysis is a full queue behind, keep the device buffer drained anyway
+                    read = framer.readFrame(source, dropBuffer, 0);
+                    if (read > 0) {
+                        droppedFrames++;
+                    }
+                } else {
+                    read = framer.readFrame(source, queue.array(), offset);
+                    if (read > 0) {
+                        queue.publish(read);
+                        LockSupport.unpark(analysis);
+                    }
+                }
+                if (read < 0) {
+                    endOfStream = true;
+                    break;
+                }
+            }
+            
+            source.stop();
+            captureEnded = true;
+            LockSupport.unpark(analysis);
+        }
+    }
+    
+    private void runAnalysis() {
+        priorities.onAnalysisThreadStart();
+        long seen = 0;
+        while ((seen = awaitSession(seen)) >= 0) {
+            FrameQueue queue = this.queue;
+            FrameProcessor processor = this.processor;
+            try {
+                processor.onSessionStart();
+                while (true) {
+                    // Checked before polling so frames published before the end aren't missed
+                    boolean ended = captureEnded;
+                    int offset = queue.poll();
+                    if (offset < 0) {
+                        if (ended) {
+                            break;
+                        }
+                        LockSupport.park(this);
+                        continue;
+                    }
+                    // After stop() or the processor's own decision the backlog is only drained
+                    if (state.get() == State.LISTENING
+                            && !processor.onFrame(queue.array(), offset, queue.length())) {
+                        state.compareAndSet(State.LISTENING, State.PROCESSING);
+                        capturing = false;
+                    }
+                }
+                // The source running out still leaves the pending utterance to decide on
+                boolean sourceEnded = endOfStream && state.compareAndSet(State.LISTENING, State.PROCESSING);
+                processor.onSessionEnd(sourceEnded);
+            } catch (RuntimeException e) {
+                // A failing processor ends its session, not the engine thread
+                processorFailures++;
+                try {
+                    processor.onSessionFailed(e);
+                } catch (RuntimeException ignored) {
+                    // Already counted
+                }
+            } finally {
+                capturing = false;
+                // Don't report idle until the capture thread has let go of the source
+                while (!captureEnded) {
+                    LockSupport.parkNanos(this, 1000000);
+                }
+                setIdle();
+            }
+            try {
+                processor.onSessionClosed();
+            } catch (RuntimeException e) {
+                // Nor does a failing notification
+                processorFailures++;
+            }
+        }
+    }
+}
\ No newline at end of file
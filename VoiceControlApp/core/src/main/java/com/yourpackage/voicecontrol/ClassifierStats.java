@@ -0,0 +1,68 @@
+package com.yourpackage.voicecontrol;
+
+// Running record of one classifier run side by side with the engine's active classifier
+// on the same utterances: how often it answers, how often it agrees, and what it costs
+public class ClassifierStats {
+    final String name;
+    long decisions;
+    long matches;
+    long agreements;
+    long totalNanos;
+    long maxNanos;
+    
+    public ClassifierStats(String name) {
+        this.name = name;
+    }
+    
+    public synchronized void record(String command, String activeCommand, long nanos) {
+        decisions++;
+        if (command != null) {
+            matches++;
+        }
+        if (command == null ? activeCommand == null : command.equals(activeCommand)) {
+            agreements++;
+        }
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+    
+    public synchronized ClassifierStats copy() {
+        ClassifierStats copy = new ClassifierStats(name);
+        copy.decisions = decisions;
+        copy.matches = matches;
+        copy.agreements = agreements;
+        copy.totalNanos = totalNanos;
+        copy.maxNanos = maxNanos;
+        return copy;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getDecisions() {
+        return decisions;
+    }
+    
+    public long getMatches() {
+        return matches;
+    }
+    
+    public long getAgreements() {
+        return agreements;
+    }
+    
+    public double getMeanMs() {
+        return decisions == 0 ? 0 : totalNanos / 1e6 / decisions;
+    }
+    
+    public double getMaxMs() {
+        return maxNanos / 1e6;
+    }
+    
+    @Override
+    public String toString() {
+        return "ClassifierStats{" + name + ": decisions=" + decisions + ", matches=" + matches
+            + ", agreements=" + agreements + ", mean=" + getMeanMs() + "ms, max=" + getMaxMs() + "ms}";
+    }
+}
\ No newline at end of file
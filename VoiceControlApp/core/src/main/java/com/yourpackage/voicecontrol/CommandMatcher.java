@@ -0,0 +1,61 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class CommandMatcher {
+    private static final double MIN_SCORE = 0.6;
+    
+    private final Map<String, CommandPattern> commandPatterns = new HashMap<>();
+    
+    public void addPattern(String id, CommandPattern pattern) {
+        commandPatterns.put(id, pattern);
+    }
+    
+    public int getPatternCount() {
+        return commandPatterns.size();
+    }
+    
+    public String findBestMatch(double duration, double amplitude, int syllables) {
+        String bestMatch = null;
+        double bestScore = 0;
+        
+        for (CommandPattern pattern : commandPatterns.values()) {
+            for (int i = 0; i < pattern.signatures.size(); i++) {
+                AudioSignature signature = pattern.signatures.get(i);
+                if (signature.matches(duration, amplitude, syllables)) {
+                    double score = signature.score(duration, amplitude, syllables);
+                    
+                    if (score > bestScore && score > MIN_SCORE) {
+                        bestScore = score;
+                        bestMatch = pattern.command;
+                    }
+                }
+            }
+        }
+        
+        return bestMatch;
+    }
+    
+    // Same scoring as findBestMatch, but keeps the best few commands above MIN_SCORE in
+    // result, each with its best signature score. Returns false if there are none.
+    public boolean findMatches(double duration, double amplitude, int syllables, RecognitionResult result) {
+        result.reset();
+        
+        for (CommandPattern pattern : commandPatterns.values()) {
+            double patternScore = 0;
+            for (int i = 0; i < pattern.signatures.size(); i++) {
+                AudioSignature signature = pattern.signatures.get(i);
+                if (signature.matches(duration, amplitude, syllables)) {
+                    patternScore = Math.max(patternScore, signature.score(duration, amplitude, syllables));
+                }
+            }
+            
+            if (patternScore > MIN_SCORE) {
+                result.offer(pattern.command, patternScore);
+            }
+        }
+        
+        return !result.isEmpty();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandPattern {
+    final String command;
+    final List<AudioSignature> signatures;
+    
+    public CommandPattern(String command) {
+        this.command = command;
+        this.signatures = new ArrayList<>();
+    }
+    
+    public void addSignature(double minDuration, double maxDuration, double minAmplitude, double maxAmplitude, int syllables) {
+        signatures.add(new AudioSignature(minDuration, maxDuration, minAmplitude, maxAmplitude, syllables));
+    }
+    
+    public String getCommand() {
+        return command;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded multi-producer / single-consumer queue of outgoing commands. Producers never
+// wait; the overflow policy decides what is lost when it is full.
+public class CommandQueue<T> {
+    public enum OverflowPolicy {
+        // Discard the oldest pending command to make room
+        DROP_OLDEST,
+        // Skip a command that is already pending; if full anyway, discard the oldest
+        COALESCE
+    }
+    
+    public interface OverflowListener<T> {
+        // Must not block; offer() is called from the threads issuing commands
+        void onOverflow(T dropped);
+    }
+    
+    private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+    // COALESCE producers check for a pending copy and enqueue under this lock, so two of
+    // them can't both add the same command
+    private final Object coalesceLock = new Object();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private volatile Thread consumer;
+    private volatile OverflowListener<T> overflowListener;
+    
+    private final AtomicLong offeredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    
+    public CommandQueue(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+    
+    public void setOverflowListener(OverflowListener<T> listener) {
+        this.overflowListener = listener;
+    }
+    
+    // Returns false if the command was coalesced into an identical pending one
+    public boolean offer(T command) {
+        offeredCount.incrementAndGet();
+        
+        if (overflowPolicy == OverflowPolicy.COALESCE) {
+            synchronized (coalesceLock) {
+                if (isPending(command)) {
+                    coalescedCount.incrementAndGet();
+                    return false;
+                }
+                queue.offer(command);
+            }
+        } else {
+            queue.offer(command);
+        }
+        int newDepth = depth.incrementAndGet();
+        while (newDepth > capacity) {
+            T dropped = queue.poll();
+            if (dropped != null) {
+                droppedCount.incrementAndGet();
+                newDepth = depth.decrementAndGet();
+                OverflowListener<T> l = overflowListener;
+                if (l != null) {
+                    l.onOverflow(dropped);
+                }
+            } else {
+                newDepth = depth.get();
+            }
+        }
+        updateMaxDepth(newDepth);
+        
+        Thread waiting = consumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return true;
+    }
+    
+    public T poll() {
+        T command = queue.poll();
+        if (command != null) {
+            depth.decrementAndGet();
+        }
+        return command;
+    }
+    
+    // Waits up to the timeout for a command; returns null on timeout. Single consumer only.
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(unit.toNanos(timeout));
+    }
+    
+    public T take() throws InterruptedException {
+        return await(-1);
+    }
+    
+    private T await(long timeoutNanos) throws InterruptedException {
+        T command = poll();
+        if (command != null) {
+            return command;
+        }
+        
+        long deadline = System.nanoTime() + timeoutNanos;
+        consumer = Thread.currentThread();
+        try {
+            while ((command = poll()) == null) {
+                if (timeoutNanos < 0) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return command;
+        } finally {
+            consumer = null;
+        }
+    }
+    
+    // Removes every pending command into the collection, oldest first; they count as dropped
+    public int drainTo(Collection<? super T> into) {
+        int count = 0;
+        T command;
+        while ((command = poll()) != null) {
+            into.add(command);
+            droppedCount.incrementAndGet();
+            count++;
+        }
+        return count;
+    }
+    
+    private boolean isPending(T command) {
+        Iterator<T> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().equals(command)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void updateMaxDepth(int value) {
+        int current;
+        while (value > (current = maxDepth.get())) {
+            if (maxDepth.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+    
+    public int getDepth() {
+        return Math.max(0, depth.get());
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    
+    public long getOfferedCount() {
+        return offeredCount.get();
+    }
+    
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+}
\ No newline at end of file
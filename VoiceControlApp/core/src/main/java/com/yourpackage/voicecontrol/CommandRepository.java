@@ -0,0 +1,500 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Configured commands (slot -> spoken label and data to send) in one append-only file.
+// One writer at a time. Layout, little-endian:
+//   header  magic "VCCM", u16 version, u16 reserved, u32 generation
+//   record  u32 body length, u32 CRC-32 of body, body
+//   body    u8 op, u16 slot; PUT adds u16 label length, UTF-8 label, u16 data length, UTF-8 data
+public class CommandRepository {
+    public static final int MAGIC = 0x4D434356; // "VCCM"
+    public static final int VERSION = 1;
+    public static final int MAX_SLOT = 0xFFFF;
+    private static final int HEADER_SIZE = 12;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int OP_PUT = 1;
+    private static final int OP_REMOVE = 2;
+    // Superseded records tolerated before compacting, and never more than the live ones
+    private static final int COMPACT_MIN_GARBAGE = 256;
+    
+    public static final class Command {
+        final int slot;
+        final String label;
+        final String data;
+        
+        Command(int slot, String label, String data) {
+            this.slot = slot;
+            this.label = label;
+            this.data = data;
+        }
+        
+        public int getSlot() {
+            return slot;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+        
+        public String getData() {
+            return data;
+        }
+        
+        // Both the spoken text and the data are set, so it can be recognized and sent
+        public boolean isComplete() {
+            return !label.trim().isEmpty() && !data.isEmpty();
+        }
+        
+        @Override
+        public String toString() {
+            return slot + ":" + label + "->" + data;
+        }
+    }
+    
+    private final File file;
+    
+    // Valid part of the log as last read; bytes past logLength are an unfinished tail
+    private byte[] log = new byte[0];
+    private int logLength;
+    // Length of the file as last read, damaged and torn bytes included
+    private int readLength;
+    private int generation;
+    private int recordCount;
+    private long version;
+    // Offset of a damaged record with intact ones after it, or -1
+    private int damagedAt = -1;
+    
+    // Sorted by slot
+    private int[] slots = new int[16];
+    private int[] offsets = new int[16];
+    private Command[] decoded = new Command[16];
+    private int size;
+    
+    public CommandRepository(File file) {
+        this.file = file;
+    }
+    
+    // Applies whatever was appended since the last call, or everything if the file was
+    // replaced. A bad record ends the log: the next commit cuts it off if nothing intact
+    // follows, and otherwise fails until salvage(). Returns false if nothing changed.
+    public synchronized boolean reload() throws IOException {
+        if (!file.exists()) {
+            boolean changed = size > 0 || logLength > 0;
+            clearIndex();
+            logLength = 0;
+            readLength = 0;
+            damagedAt = -1;
+            if (changed) {
+                version++;
+            }
+            return changed;
+        }
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long fileLength = raf.length();
+            if (fileLength < HEADER_SIZE) {
+                throw corrupt("truncated header");
+            }
+            if (fileLength > Integer.MAX_VALUE) {
+                throw corrupt("too large");
+            }
+            int length = (int) fileLength;
+            
+            byte[] header = new byte[HEADER_SIZE];
+            raf.readFully(header);
+            ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw corrupt("not a command file");
+            }
+            int fileVersion = buffer.getShort(4) & 0xFFFF;
+            if (fileVersion != VERSION) {
+                throw new IOException("Unsupported command file version " + fileVersion + ": " + file);
+            }
+            int fileGeneration = buffer.getInt(8);
+            
+            boolean replaced = logLength == 0 || fileGeneration != generation || length < logLength;
+            int start = replaced ? 0 : logLength;
+            if (!replaced && length == logLength) {
+                return false;
+            }
+            
+            if (log.length < length) {
+                log = Arrays.copyOf(log, Math.max(length, log.length * 2));
+            }
+            raf.seek(start);
+            raf.readFully(log, start, length - start);
+            
+            if (replaced) {
+                clearIndex();
+                generation = fileGeneration;
+                logLength = HEADER_SIZE;
+            }
+            int applied = 0;
+            int next;
+            while ((next = applyRecord(logLength, length)) > 0) {
+                logLength = next;
+                applied++;
+            }
+            readLength = length;
+            damagedAt = logLength < length && hasRecordAfter(logLength, length) ? logLength : -1;
+            
+            boolean changed = replaced || applied > 0;
+            if (changed) {
+                version++;
+            }
+            return changed;
+        }
+    }
+    
+    // Returns the end of the record, or -1 if there is no complete, intact record at pos
+    private int applyRecord(int pos, int end) {
+        int recordEnd = checkRecord(pos, end);
+        if (recordEnd < 0) {
+            return -1;
+        }
+        int body = pos + RECORD_HEADER_SIZE;
+        int slot = readShort(body + 1);
+        if ((log[body] & 0xFF) == OP_PUT) {
+            put(slot, body);
+        } else {
+            remove(slot);
+        }
+        recordCount++;
+        return recordEnd;
+    }
+    
+    // Same, without applying it
+    private int checkRecord(int pos, int end) {
+        if (end - pos < RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int bodyLength = readInt(pos);
+        int body = pos + RECORD_HEADER_SIZE;
+        if (bodyLength < 3 || bodyLength > end - body) {
+            return -1;
+        }
+        
+        // The layout first, the checksum only for bytes that have it
+        int op = log[body] & 0xFF;
+        if (op == OP_PUT) {
+            if (bodyLength < 7) {
+                return -1;
+            }
+            int labelLength = readShort(body + 3);
+            if (5 + labelLength + 2 > bodyLength
+                    || 5 + labelLength + 2 + readShort(body + 5 + labelLength) != bodyLength) {
+                return -1;
+            }
+        } else if (op != OP_REMOVE || bodyLength != 3) {
+            return -1;
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(log, body, bodyLength);
+        if ((int) crc.getValue() != readInt(pos + 4)) {
+            return -1;
+        }
+        return body + bodyLength;
+    }
+    
+    // Whether an intact record starts anywhere after the bad one at pos, i.e. the damage is
+    // inside the log rather than a torn tail. Linear, as checkRecord() rarely gets to the CRC.
+    private boolean hasRecordAfter(int pos, int end) {
+        for (int p = pos + 1; p <= end - RECORD_HEADER_SIZE; p++) {
+            if (checkRecord(p, end) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Writing would cut off or drop the intact records behind a damaged one
+    private void checkWritable() throws IOException {
+        if (damagedAt >= 0) {
+            throw corrupt("damaged record at " + damagedAt + " with intact records after it");
+        }
+    }
+    
+    private void put(int slot, int body) {
+        int index = Arrays.binarySearch(slots, 0, size, slot);
+        if (index >= 0) {
+            offsets[index] = body;
+            decoded[index] = null;
+            return;
+        }
+        
+        index = -index - 1;
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            decoded = Arrays.copyOf(decoded, size * 2);
+        }
+        System.arraycopy(slots, index, slots, index + 1, size - index);
+        System.arraycopy(offsets, index, offsets, index + 1, size - index);
+        System.arraycopy(decoded, index, decoded, index + 1, size - index);
+        slots[index] = slot;
+        offsets[index] = body;
+        decoded[index] = null;
+        size++;
+    }
+    
+    private void remove(int slot) {
+        int index = Arrays.binarySearch(slots, 0, size, slot);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+        System.arraycopy(offsets, index + 1, offsets, index, size - index - 1);
+        System.arraycopy(decoded, index + 1, decoded, index, size - index - 1);
+        size--;
+        decoded[size] = null;
+    }
+    
+    private void clearIndex() {
+        Arrays.fill(decoded, 0, size, null);
+        size = 0;
+        recordCount = 0;
+    }
+    
+    private Command decode(int index) {
+        Command command = decoded[index];
+        if (command == null) {
+            int body = offsets[index];
+            int labelLength = readShort(body + 3);
+            int dataStart = body + 5 + labelLength + 2;
+            String label = new String(log, body + 5, labelLength, StandardCharsets.UTF_8);
+            String data = new String(log, dataStart, readShort(dataStart - 2), StandardCharsets.UTF_8);
+            command = new Command(slots[index], label, data);
+            decoded[index] = command;
+        }
+        return command;
+    }
+    
+    private int readShort(int pos) {
+        return (log[pos] & 0xFF) | (log[pos + 1] & 0xFF) << 8;
+    }
+    
+    private int readInt(int pos) {
+        return readShort(pos) | readShort(pos + 2) << 16;
+    }
+    
+    private IOException corrupt(String reason) {
+        return new IOException("Corrupt command file (" + reason + "): " + file);
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    // Commands are ordered by slot
+    public synchronized int getSlot(int position) {
+        checkPosition(position);
+        return slots[position];
+    }
+    
+    public synchronized Command get(int position) {
+        checkPosition(position);
+        return decode(position);
+    }
+    
+    // Position of the slot, or -1
+    public synchronized int indexOf(int slot) {
+        int index = Arrays.binarySearch(slots, 0, size, slot);
+        return index >= 0 ? index : -1;
+    }
+    
+    public synchronized Command find(int slot) {
+        int index = indexOf(slot);
+        return index >= 0 ? decode(index) : null;
+    }
+    
+    // Lowest slot without a command, for adding one
+    public synchronized int nextFreeSlot() {
+        int slot = 1;
+        for (int i = 0; i < size && slots[i] == slot; i++) {
+            slot++;
+        }
+        if (slot > MAX_SLOT) {
+            throw new IllegalStateException("All command slots are in use");
+        }
+        return slot;
+    }
+    
+    // Changes whenever reload() applies something, e.g. to rebuild derived state only then
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    // Lookup table of the complete commands, ids are the slots
+    public synchronized CommandTable toTable() {
+        CommandTable.Builder builder = new CommandTable.Builder();
+        for (int i = 0; i < size; i++) {
+            Command command = decode(i);
+            if (command.isComplete()) {
+                builder.add(command.slot, command.label, command.data);
+            }
+        }
+        return builder.build();
+    }
+    
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        }
+    }
+    
+    public Batch edit() {
+        return new Batch();
+    }
+    
+    // Edits that are written together and become visible together
+    public class Batch {
+        private ByteBuffer records = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        
+        public Batch put(int slot, String label, String data) {
+            byte[] labelBytes = label.getBytes(StandardCharsets.UTF_8);
+            byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
+            if (labelBytes.length > 0xFFFF || dataBytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Command " + slot + " too long");
+            }
+            int body = begin(OP_PUT, slot, 4 + labelBytes.length + dataBytes.length);
+            records.putShort((short) labelBytes.length).put(labelBytes);
+            records.putShort((short) dataBytes.length).put(dataBytes);
+            end(body);
+            return this;
+        }
+        
+        public Batch remove(int slot) {
+            end(begin(OP_REMOVE, slot, 0));
+            return this;
+        }
+        
+        public boolean isEmpty() {
+            return records.position() == 0;
+        }
+        
+        public void commit() throws IOException {
+            CommandRepository.this.commit(records.array(), records.position());
+            records.clear();
+        }
+        
+        private int begin(int op, int slot, int extra) {
+            if (slot < 1 || slot > MAX_SLOT) {
+                throw new IllegalArgumentException("Slot out of range: " + slot);
+            }
+            int bodyLength = 3 + extra;
+            if (records.remaining() < RECORD_HEADER_SIZE + bodyLength) {
+                int capacity = Math.max(records.capacity() * 2, records.position() + RECORD_HEADER_SIZE + bodyLength);
+                ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+                grown.put(records.array(), 0, records.position());
+                records = grown;
+            }
+            records.putInt(bodyLength).putInt(0);
+            int body = records.position();
+            records.put((byte) op).putShort((short) slot);
+            return body;
+        }
+        
+        private void end(int body) {
+            crc.reset();
+            crc.update(records.array(), body, records.position() - body);
+            records.putInt(body - 4, (int) crc.getValue());
+        }
+    }
+    
+    private synchronized void commit(byte[] records, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        if (!file.exists()) {
+            writeFile(1, records, length);
+        } else {
+            // Catch up first, and cut off a tail a crashed writer left behind
+            reload();
+            checkWritable();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (raf.length() > logLength) {
+                    raf.setLength(logLength);
+                }
+            }
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write(records, 0, length);
+                out.getFD().sync();
+            }
+        }
+        reload();
+        
+        int garbage = recordCount - size;
+        if (garbage >= COMPACT_MIN_GARBAGE && garbage > size) {
+            compact();
+        }
+    }
+    
+    // Rewrites the live records into a new file, dropping superseded and removed ones
+    public synchronized void compact() throws IOException {
+        reload();
+        checkWritable();
+        rewrite();
+    }
+    
+    // Recovers from damage inside the log: applies every intact record found past the damaged
+    // one, in order, and rewrites the result as a new generation so commits work again.
+    // Returns false if there was nothing to salvage.
+    public synchronized boolean salvage() throws IOException {
+        reload();
+        if (damagedAt < 0) {
+            return false;
+        }
+        int pos = damagedAt + 1;
+        while (pos <= readLength - RECORD_HEADER_SIZE) {
+            int next = applyRecord(pos, readLength);
+            pos = next > 0 ? next : pos + 1;
+        }
+        rewrite();
+        return true;
+    }
+    
+    private void rewrite() throws IOException {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            length += RECORD_HEADER_SIZE + readInt(offsets[i] - RECORD_HEADER_SIZE);
+        }
+        byte[] records = new byte[length];
+        int pos = 0;
+        for (int i = 0; i < size; i++) {
+            int start = offsets[i] - RECORD_HEADER_SIZE;
+            int recordLength = RECORD_HEADER_SIZE + readInt(start);
+            System.arraycopy(log, start, records, pos, recordLength);
+            pos += recordLength;
+        }
+        writeFile(generation + 1, records, length);
+        reload();
+    }
+    
+    // Replaces the file atomically
+    private void writeFile(int newGeneration, byte[] records, int length) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putInt(newGeneration);
+        
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            stream.write(header.array());
+            stream.write(records, 0, length);
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.yourpackage.voicecontrol;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable lookup from a recognized command to what is sent for it, rebuilt on every
+// configuration change. Ids are the slot numbers.
+public final class CommandTable {
+    public static final int NO_COMMAND = 0;
+    // Same range as CommandRepository slots; only ids below FrameEncoder.FIRST_RESERVED_ID
+    // fit a binary frame
+    public static final int MAX_ID = CommandRepository.MAX_SLOT;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    
+    public static final CommandTable EMPTY = new Builder().build();
+    
+    public static final class Entry {
+        final int id;
+        final String label;
+        final String data;
+        // UTF-8 bytes of data, without the line terminator
+        final byte[] payload;
+        
+        Entry(int id, String label, String data) {
+            this.id = id;
+            this.label = label;
+            this.data = data;
+            this.payload = data.getBytes(UTF_8);
+        }
+        
+        public int getId() {
+            return id;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+        
+        public String getData() {
+            return data;
+        }
+        
+        @Override
+        public String toString() {
+            return id + ":" + label + "->" + data;
+        }
+    }
+    
+    public static class Builder {
+        private final Map<Integer, Entry> entries = new HashMap<>();
+        private final Map<Integer, List<String>> aliases = new HashMap<>();
+        
+        // A later entry with the same id replaces the earlier one
+        public Builder add(int id, String label, String data) {
+            if (id <= NO_COMMAND || id > MAX_ID) {
+                throw new IllegalArgumentException("Command id out of range: " + id);
+            }
+            if (label.trim().isEmpty() || data.isEmpty()) {
+                throw new IllegalArgumentException("Empty command " + id);
+            }
+            entries.put(id, new Entry(id, label, data));
+            return this;
+        }
+        
+        // Another phrase for command id, only used by matchText(); dropped if the id isn't added
+        public Builder alias(int id, String phrase) {
+            List<String> phrases = aliases.get(id);
+            if (phrases == null) {
+                phrases = new ArrayList<>();
+                aliases.put(id, phrases);
+            }
+            phrases.add(phrase);
+            return this;
+        }
+        
+        public boolean isEmpty() {
+            return entries.isEmpty();
+        }
+        
+        public CommandTable build() {
+            return new CommandTable(entries, aliases);
+        }
+    }
+    
+    private final Entry[] byId;
+    private final Map<String, Entry> byCommand = new HashMap<>();
+    private final Map<Integer, List<String>> aliases;
+    private final int size;
+    // Built on first use, only text recognizers need it
+    private volatile TextCommandMatcher textMatcher;
+    
+    private CommandTable(Map<Integer, Entry> entries, Map<Integer, List<String>> aliases) {
+        int maxId = NO_COMMAND;
+        for (int id : entries.keySet()) {
+            maxId = Math.max(maxId, id);
+        }
+        byId = new Entry[maxId + 1];
+        for (Entry entry : entries.values()) {
+            byId[entry.id] = entry;
+        }
+        
+        // In id order, so when two slots share a label the higher slot wins
+        for (Entry entry : byId) {
+            if (entry != null) {
+                byCommand.put(normalize(entry.label), entry);
+                byCommand.put(entry.label, entry);
+            }
+        }
+        this.aliases = new HashMap<>(aliases);
+        size = entries.size();
+    }
+    
+    public static String normalize(String command) {
+        return command.toLowerCase().trim();
+    }
+    
+    // Id of a command as the recognizer spells it: a configured label or a built-in pattern
+    // name, which match the normalized labels. NO_COMMAND if it isn't configured.
+    public int idOf(String command) {
+        Entry entry = command != null ? byCommand.get(command) : null;
+        return entry != null ? entry.id : NO_COMMAND;
+    }
+    
+    // Null for NO_COMMAND and ids that aren't configured
+    public Entry get(int id) {
+        return id > NO_COMMAND && id < byId.length ? byId[id] : null;
+    }
+    
+    // Fills result with the commands transcribed text may mean, with their ids
+    
+    public boolean matchText(String text, RecognitionResult result) {
+        boolean found = getTextMatcher().match(text, result);
+        result.resolveCommandIds(this);
+        return found;
+    }
+    
+    public TextCommandMatcher getTextMatcher() {
+        TextCommandMatcher matcher = textMatcher;
+        if (matcher == null) {
+            TextCommandMatcher.Builder builder = new TextCommandMatcher.Builder();
+            for (Entry entry : byId) {
+                if (entry != null) {
+                    List<String> phrases = aliases.get(entry.id);
+                    if (phrases != null) {
+                        for (String phrase : phrases) {
+                            builder.add(phrase, entry.label);
+                        }
+                    }
+                }
+            }
+            // Labels last, so an alias spelled like another command's label doesn't take it over
+            for (Entry entry : byId) {
+                if (entry != null) {
+                    builder.add(entry.label, entry.label);
+                }
+            }
+            matcher = builder.build();
+            textMatcher = matcher;
+        }
+        return matcher;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Entry entry : byId) {
+            if (entry != null) {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                text.append(entry);
+            }
+        }
+        return "CommandTable{" + text + "}";
+    }
+}
\ No newline at end of file
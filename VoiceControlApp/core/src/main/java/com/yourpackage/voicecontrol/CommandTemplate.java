@@ -0,0 +1,41 @@
+package com.yourpackage.voicecontrol;
+
+// One recorded example of a command: frameCount feature vectors of the given dimension,
+// stored row-major in a single array. Templates are immutable once built.
+public class CommandTemplate {
+    final String command;
+    final float[] frames;
+    final int frameCount;
+    final int dimension;
+    
+    public CommandTemplate(String command, float[] frames, int frameCount, int dimension) {
+        if (frames.length < frameCount * dimension) {
+            throw new IllegalArgumentException("Frame data shorter than " + frameCount + "x" + dimension);
+        }
+        this.command = command;
+        this.frames = frames;
+        this.frameCount = frameCount;
+        this.dimension = dimension;
+    }
+    
+    // Same frames under another command name, e.g. after the command text was edited
+    public CommandTemplate withCommand(String command) {
+        return new CommandTemplate(command, frames, frameCount, dimension);
+    }
+    
+    public String getCommand() {
+        return command;
+    }
+    
+    public int getFrameCount() {
+        return frameCount;
+    }
+    
+    public int getDimension() {
+        return dimension;
+    }
+    
+    public float[] getFrames() {
+        return frames;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.yourpackage.voicecontrol;
+
+// CRC-8 with polynomial 0x07 (CRC-8/SMBUS), table driven; cheap to check on the ESP32
+public class Crc8 {
+    private static final int[] TABLE = new int[256];
+    
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) : (crc << 1);
+            }
+            TABLE[i] = crc & 0xFF;
+        }
+    }
+    
+    private Crc8() {
+    }
+    
+    public static int compute(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            crc = TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,497 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Several devices driven as one, each on its own DeviceLink. Listener calls come from the
+// link threads and must not block.
+public class DeviceGroup {
+    public interface Listener {
+        void onConnected(String address);
+        void onConnectionFailed(String address, IOException error, long retryDelayMs);
+        void onDisconnected(String address, IOException error);
+        // One device has the command; dispatch.isComplete() once every device is accounted for
+        void onDelivered(Dispatch dispatch, String address, long latencyNanos);
+        // The device never acknowledged the command; only with acknowledgements enabled
+        void onDeliveryFailed(Dispatch dispatch, String address);
+        // The device won't get the command; CLEARED when it left the group before sending
+        void onDropped(Dispatch dispatch, String address, OutboundScheduler.DropReason reason);
+    }
+    
+    // Outcome of one command sent to the group, one entry per member at the time of sending
+    public static final class Dispatch {
+        public static final long PENDING = -1;
+        // Replaced before it went out, by a newer motion command or by the same command
+        // still queued, whose dispatch reports the delivery
+        public static final long SUPERSEDED = -2;
+        // Not acknowledged by the device, retransmissions included
+        public static final long FAILED = -3;
+        // Discarded unsent: queue overflow, a safety command, or the device left the group
+        public static final long DROPPED = -4;
+        
+        private final String command;
+        private final String[] addresses;
+        private final long[] latencies;
+        private final long issuedNanos;
+        private final CountDownLatch remaining;
+        
+        Dispatch(String command, String[] addresses, long issuedNanos) {
+            this.command = command;
+            this.addresses = addresses;
+            this.latencies = new long[addresses.length];
+            Arrays.fill(latencies, PENDING);
+            this.issuedNanos = issuedNanos;
+            this.remaining = new CountDownLatch(addresses.length);
+        }
+        
+        // Returns false if the device was already accounted for
+        synchronized boolean complete(String address, long latencyNanos) {
+            int device = Arrays.asList(addresses).indexOf(address);
+            if (device < 0 || latencies[device] != PENDING) {
+                return false;
+            }
+            latencies[device] = latencyNanos;
+            remaining.countDown();
+            return true;
+        }
+        
+        public String getCommand() {
+            return command;
+        }
+        
+        public long getIssuedNanos() {
+            return issuedNanos;
+        }
+        
+        public int getDeviceCount() {
+            return addresses.length;
+        }
+        
+        public String getAddress(int device) {
+            return addresses[device];
+        }
+        
+        // Issue to delivery, or PENDING / SUPERSEDED / FAILED / DROPPED
+        public synchronized long getLatencyNanos(int device) {
+            return latencies[device];
+        }
+        
+        public synchronized int getDeliveredCount() {
+            int count = 0;
+            for (long latency : latencies) {
+                if (latency >= 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        // Latency of the slowest device that has the command
+        public synchronized long getMaxLatencyNanos() {
+            long max = PENDING;
+            for (long latency : latencies) {
+                max = Math.max(max, latency);
+            }
+            return max;
+        }
+        
+        public boolean isComplete() {
+            return remaining.getCount() == 0;
+        }
+        
+        // Waits until every device is accounted for; false on timeout, e.g. with a device down
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return remaining.await(timeout, unit);
+        }
+        
+        @Override
+        public synchronized String toString() {
+            StringBuilder text = new StringBuilder("Dispatch{" + command);
+            for (int i = 0; i < addresses.length; i++) {
+                text.append(", ").append(addresses[i]).append('=');
+                if (latencies[i] == PENDING) {
+                    text.append("pending");
+                } else if (latencies[i] == SUPERSEDED) {
+                    text.append("superseded");
+                } else if (latencies[i] == FAILED) {
+                    text.append("failed");
+                } else if (latencies[i] == DROPPED) {
+                    text.append("dropped");
+                } else {
+                    text.append(latencies[i] / 1000).append("us");
+                }
+            }
+            return text.append('}').toString();
+        }
+    }
+    
+    // One device: its link and its undelivered dispatches, by the link's send number
+    private final class Member implements DeviceLink.Listener {
+        final String address;
+        final DeviceLink link;
+        final Map<Long, Dispatch> pending = new HashMap<>();
+        
+        Member(String address) {
+            this.address = address;
+            this.link = new DeviceLink(transport, queueCapacity, overflowPolicy);
+            link.setListener(this);
+        }
+        
+        void send(Dispatch dispatch, CommandTable.Entry entry, String data, long issuedNanos) {
+            long sendId = link.reserveSendId();
+            // Tracked first, the link may report on it before send() returns
+            synchronized (this) {
+                pending.put(sendId, dispatch);
+            }
+            if (!link.send(entry, data, issuedNanos, sendId)) {
+                // Removed from the group meanwhile
+                onDropped(sendId, data, OutboundScheduler.DropReason.CLEARED);
+            }
+        }
+        
+        // Disconnects and drops whatever the link hasn't reported on yet
+        void close() {
+            link.disconnect();
+            List<Long> left;
+            synchronized (this) {
+                left = new ArrayList<>(pending.keySet());
+            }
+            for (Long sendId : left) {
+                onDropped(sendId, null, OutboundScheduler.DropReason.CLEARED);
+            }
+        }
+        
+        private synchronized Dispatch take(long sendId) {
+            return pending.remove(sendId);
+        }
+        
+        @Override
+        public void onDelivered(String address, long sendId, String command) {
+            Dispatch dispatch = take(sendId);
+            if (dispatch == null) {
+                return;
+            }
+            long latency = System.nanoTime() - dispatch.issuedNanos;
+            if (dispatch.complete(address, latency)) {
+                Listener l = listener;
+                if (l != null) {
+                    l.onDelivered(dispatch, address, latency);
+                }
+            }
+        }
+        
+        @Override
+        public void onDeliveryFailed(String address, long sendId, String command) {
+            Dispatch dispatch = take(sendId);
+            if (dispatch != null && dispatch.complete(address, Dispatch.FAILED)) {
+                Listener l = listener;
+                if (l != null) {
+                    l.onDeliveryFailed(dispatch, address);
+                }
+            }
+        }
+        
+        @Override
+        public void onDropped(long sendId, String command, OutboundScheduler.DropReason reason) {
+            Dispatch dispatch = take(sendId);
+            if (dispatch == null) {
+                return;
+            }
+            boolean replaced = reason == OutboundScheduler.DropReason.SUPERSEDED
+                || reason == OutboundScheduler.DropReason.COALESCED;
+            if (dispatch.complete(address, replaced ? Dispatch.SUPERSEDED : Dispatch.DROPPED)) {
+                Listener l = listener;
+                if (l != null) {
+                    l.onDropped(dispatch, address, reason);
+                }
+            }
+        }
+        
+        @Override
+        public void onConnected(String address) {
+            Listener l = listener;
+            if (l != null) {
+                l.onConnected(address);
+            }
+        }
+        
+        @Override
+        public void onConnectionFailed(String address, IOException error, long retryDelayMs) {
+            Listener l = listener;
+            if (l != null) {
+                l.onConnectionFailed(address, error, retryDelayMs);
+            }
+        }
+        
+        @Override
+        public void onDisconnected(String address, IOException error) {
+            Listener l = listener;
+            if (l != null) {
+                l.onDisconnected(address, error);
+            }
+        }
+        
+        @Override
+        public void onSent(String lastCommand, int count) {
+        }
+    }
+    
+    private final Transport transport;
+    private final int queueCapacity;
+    private final CommandQueue.OverflowPolicy overflowPolicy;
+    private volatile Listener listener;
+    
+    // Copied on change, so send() works on a stable snapshot without locking
+    private volatile Member[] members = new Member[0];
+    
+    // Applied to every link, including ones added later
+    private boolean binaryFraming;
+    private boolean acknowledgements;
+    private long ackTimeoutMs = -1;
+    private int maxRetransmits;
+    private final Map<String, OutboundScheduler.Priority> priorities = new LinkedHashMap<>();
+    private long heartbeatIntervalMs = -1;
+    private long initialBackoffMs = -1;
+    private long maxBackoffMs = -1;
+    
+    public DeviceGroup(Transport transport, int queueCapacity, CommandQueue.OverflowPolicy overflowPolicy) {
+        this.transport = transport;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+    
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    // Connects in the background; returns false if the device is already a member
+    public synchronized boolean add(String address) {
+        if (indexOf(address) >= 0) {
+            return false;
+        }
+        Member member = new Member(address);
+        configure(member.link);
+        Member[] grown = Arrays.copyOf(members, members.length + 1);
+        grown[members.length] = member;
+        members = grown;
+        member.link.connect(address);
+        return true;
+    }
+    
+    public synchronized boolean remove(String address) {
+        int index = indexOf(address);
+        if (index < 0) {
+            return false;
+        }
+        Member removed = members[index];
+        List<Member> remaining = new ArrayList<>(Arrays.asList(members));
+        remaining.remove(index);
+        members = remaining.toArray(new Member[0]);
+        removed.close();
+        return true;
+    }
+    
+    // Makes the group exactly these devices, keeping the links of devices that stay
+    public synchronized void setDevices(Collection<String> addresses) {
+        for (Member member : members) {
+            if (!addresses.contains(member.address)) {
+                remove(member.address);
+            }
+        }
+        for (String address : addresses) {
+            add(address);
+        }
+    }
+    
+    private int indexOf(String address) {
+        Member[] current = members;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].address.equals(address)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Queues the command on every member; null if the group is empty. Throws
+    // IllegalArgumentException for a command longer than DeviceLink.MAX_COMMAND_BYTES.
+    public Dispatch send(String data) {
+        return send(data, System.nanoTime());
+    }
+    
+    // Same, with latencies measured from issuedNanos, e.g. when the user stopped speaking
+    public Dispatch send(String data, long issuedNanos) {
+        return send(null, data, issuedNanos);
+    }
+    
+    // A configured command, encoded from its entry as DeviceLink.send(Entry, long) does
+    public Dispatch send(CommandTable.Entry entry, long issuedNanos) {
+        return send(entry, entry.data, issuedNanos);
+    }
+    
+    private Dispatch send(CommandTable.Entry entry, String data, long issuedNanos) {
+        DeviceLink.checkCommand(data);
+        Member[] current = members;
+        if (current.length == 0) {
+            return null;
+        }
+        String[] addresses = new String[current.length];
+        for (int i = 0; i < current.length; i++) {
+            addresses[i] = current[i].address;
+        }
+        
+        Dispatch dispatch = new Dispatch(data, addresses, issuedNanos);
+        for (Member member : current) {
+            member.send(dispatch, entry, data, issuedNanos);
+        }
+        return dispatch;
+    }
+    
+    public void disconnect() {
+        Member[] current;
+        synchronized (this) {
+            current = members;
+            members = new Member[0];
+        }
+        for (Member member : current) {
+            member.close();
+        }
+    }
+    
+    public synchronized void setBinaryFraming(boolean enabled) {
+        binaryFraming = enabled;
+        for (Member member : members) {
+            member.link.setBinaryFraming(enabled);
+        }
+    }
+    
+    public synchronized void setAcknowledgements(boolean enabled) {
+        acknowledgements = enabled;
+        for (Member member : members) {
+            member.link.setAcknowledgements(enabled);
+        }
+    }
+    
+    public synchronized void setAckTimeout(long timeoutMs, int maxRetransmits) {
+        this.ackTimeoutMs = timeoutMs;
+        this.maxRetransmits = maxRetransmits;
+        for (Member member : members) {
+            member.link.setAckTimeout(timeoutMs, maxRetransmits);
+        }
+    }
+    
+    public synchronized void setCommandPriority(String data, OutboundScheduler.Priority priority) {
+        priorities.put(data, priority);
+        for (Member member : members) {
+            member.link.setCommandPriority(data, priority);
+        }
+    }
+    
+    // The lane the links put data in, see OutboundScheduler
+    public synchronized OutboundScheduler.Priority getCommandPriority(String data) {
+        OutboundScheduler.Priority priority = priorities.get(data);
+        return priority != null ? priority : OutboundScheduler.getDefaultPriority(data);
+    }
+    
+    public synchronized void setHeartbeatInterval(long intervalMs) {
+        heartbeatIntervalMs = intervalMs;
+        for (Member member : members) {
+            member.link.setHeartbeatInterval(intervalMs);
+        }
+    }
+    
+    public synchronized void setBackoff(long initialMs, long maxMs) {
+        initialBackoffMs = initialMs;
+        maxBackoffMs = maxMs;
+        for (Member member : members) {
+            member.link.setBackoff(initialMs, maxMs);
+        }
+    }
+    
+    private void configure(DeviceLink link) {
+        link.setBinaryFraming(binaryFraming);
+        link.setAcknowledgements(acknowledgements);
+        if (ackTimeoutMs >= 0) {
+            link.setAckTimeout(ackTimeoutMs, maxRetransmits);
+        }
+        for (Map.Entry<String, OutboundScheduler.Priority> priority : priorities.entrySet()) {
+            link.setCommandPriority(priority.getKey(), priority.getValue());
+        }
+        if (heartbeatIntervalMs >= 0) {
+            link.setHeartbeatInterval(heartbeatIntervalMs);
+        }
+        if (initialBackoffMs >= 0) {
+            link.setBackoff(initialBackoffMs, maxBackoffMs);
+        }
+    }
+    
+    public int size() {
+        return members.length;
+    }
+    
+    public boolean isEmpty() {
+        return members.length == 0;
+    }
+    
+    public List<String> getAddresses() {
+        List<String> addresses = new ArrayList<>();
+        for (Member member : members) {
+            addresses.add(member.address);
+        }
+        return addresses;
+    }
+    
+    public List<DeviceLink> getLinks() {
+        List<DeviceLink> links = new ArrayList<>();
+        for (Member member : members) {
+            links.add(member.link);
+        }
+        return links;
+    }
+    
+    // Null if the device isn't a member; for its queue and link metrics
+    public DeviceLink getLink(String address) {
+        for (Member member : members) {
+            if (member.address.equals(address)) {
+                return member.link;
+            }
+        }
+        return null;
+    }
+    
+    // Issue to ACK over every member; the tail is the slowest device's
+    public LatencyHistogram getVoiceToAckStats() {
+        LatencyHistogram total = new LatencyHistogram();
+        for (Member member : members) {
+            total.add(member.link.getVoiceToAckStats());
+        }
+        return total;
+    }
+    
+    // Frame write to ACK of one command over every member
+    public LatencyHistogram getRoundTripStats(String command) {
+        LatencyHistogram total = new LatencyHistogram();
+        for (Member member : members) {
+            total.add(member.link.getRoundTripStats(command));
+        }
+        return total;
+    }
+    
+    public int getConnectedCount() {
+        int count = 0;
+        for (Member member : members) {
+            if (member.link.isConnected()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,764 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistent outbound link to one device, kept up by its own link thread. Exactly one of
+// onDelivered, onDeliveryFailed or onDropped reports each numbered send().
+public class DeviceLink {
+    public interface Listener {
+        void onConnected(String address);
+        void onConnectionFailed(String address, IOException error, long retryDelayMs);
+        void onDisconnected(String address, IOException error);
+        void onSent(String lastCommand, int count);
+        // After the write that carried the command went through, or on its ACK
+        void onDelivered(String address, long sendId, String command);
+        // The device never acknowledged the command, retransmissions included
+        void onDeliveryFailed(String address, long sendId, String command);
+        // The command was never sent, or was in flight when the link was disconnected
+        // (CLEARED). Called on whichever thread caused it, send() and disconnect() included.
+        void onDropped(long sendId, String command, OutboundScheduler.DropReason reason);
+    }
+    
+    // Longest command payload in UTF-8 bytes, what one binary frame carries; send() rejects
+    // longer ones in either mode
+    public static final int MAX_COMMAND_BYTES = FrameEncoder.MAX_PAYLOAD;
+    private static final int WRITE_BATCH_BYTES = 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] HEARTBEAT_LINE = {'\n'};
+    private static final byte[] EMPTY = new byte[0];
+    
+    private final Transport transport;
+    private final OutboundScheduler scheduler;
+    private volatile Listener listener;
+    
+    private final Object lock = new Object();
+    private volatile Thread linkThread;
+    // Stopped by disconnect() but possibly still inside a write; the next link thread waits for it
+    private Thread retiredThread;
+    private volatile String targetAddress;
+    private volatile Transport.Connection connection;
+    
+    private volatile long heartbeatIntervalMs = 2000;
+    private volatile long initialBackoffMs = 250;
+    private volatile long maxBackoffMs = 8000;
+    
+    private volatile boolean binaryFraming;
+    private volatile boolean acknowledgements;
+    private volatile long ackTimeoutMs = 500;
+    private volatile int maxRetransmits = 3;
+    
+    // Link-thread state: the batch flushed with a single write, and commands taken from the
+    // scheduler that didn't fit or were in a write that failed without ACKs.
+    private final FrameEncoder encoder = new FrameEncoder(WRITE_BATCH_BYTES);
+    private final ArrayDeque<OutboundScheduler.Command> held = new ArrayDeque<>();
+    private final List<OutboundScheduler.Command> batchCommands = new ArrayList<>();
+    
+    // Acknowledged mode, fixed per connection. The tracker is shared with the reader thread;
+    // the lists are link-thread scratch space.
+    private boolean acknowledged;
+    private final AckTracker tracker = new AckTracker();
+    private final List<AckTracker.Pending> resend = new ArrayList<>();
+    private final List<AckTracker.Pending> expired = new ArrayList<>();
+    private final AtomicLong sendIds = new AtomicLong();
+    
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LatencyHistogram> roundTripByCommand = new ConcurrentHashMap<>();
+    private final LatencyHistogram voiceToAck = new LatencyHistogram();
+    
+    // Read from any thread; ACKs are counted on reader threads, which overlap across reconnects
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private final AtomicLong heartbeatCount = new AtomicLong();
+    private final AtomicLong retransmitCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong duplicateAckCount = new AtomicLong();
+    
+    public DeviceLink(Transport transport, int queueCapacity, CommandQueue.OverflowPolicy overflowPolicy) {
+        this.transport = transport;
+        this.scheduler = new OutboundScheduler(queueCapacity, overflowPolicy);
+        scheduler.setDropListener(new OutboundScheduler.DropListener() {
+            @Override
+            public void onDropped(OutboundScheduler.Command command, OutboundScheduler.DropReason reason) {
+                notifyDropped(command, reason);
+            }
+        });
+    }
+    
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    // Enables compact binary frames carrying command table ids; commands sent without an
+    // entry, or with ids too large for a frame, are sent as raw text frames
+    public void setBinaryFraming(boolean enabled) {
+        boolean changed = binaryFraming != enabled && acknowledgements;
+        binaryFraming = enabled;
+        if (changed) {
+            reconnect();
+        }
+    }
+    
+    // Asks the device to acknowledge every command frame; needs binary framing and a device
+    // that answers (see the README), and makes delivery at least once. Changing it reconnects
+    // an open link.
+    public void setAcknowledgements(boolean enabled) {
+        boolean changed = acknowledgements != enabled && binaryFraming;
+        acknowledgements = enabled;
+        if (changed) {
+            reconnect();
+        }
+    }
+    
+    // How long to wait for an ACK before retransmitting, and how often to retransmit before
+    // reporting the command as failed
+    public void setAckTimeout(long timeoutMs, int maxRetransmits) {
+        this.ackTimeoutMs = timeoutMs;
+        this.maxRetransmits = maxRetransmits;
+    }
+    
+    public void setCommandPriority(String data, OutboundScheduler.Priority priority) {
+        scheduler.setPriority(data, priority);
+    }
+    
+    // 0 disables heartbeats
+    public void setHeartbeatInterval(long intervalMs) {
+        this.heartbeatIntervalMs = intervalMs;
+    }
+    
+    public void setBackoff(long initialMs, long maxMs) {
+        this.initialBackoffMs = initialMs;
+        this.maxBackoffMs = maxMs;
+    }
+    
+    // Starts (or retargets) the link; connecting happens in the background
+    public void connect(String address) {
+        synchronized (lock) {
+            String previous = targetAddress;
+            targetAddress = address;
+            if (linkThread != null && linkThread.isAlive()) {
+                if (!address.equals(previous)) {
+                    // Drop the old device; the link thread reconnects to the new target
+                    closeConnection();
+                    linkThread.interrupt();
+                }
+                return;
+            }
+            final Thread retired = retiredThread;
+            retiredThread = null;
+            linkThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runLink(retired);
+                }
+            }, "DeviceLink-" + address);
+            linkThread.start();
+        }
+    }
+    
+    // Returns false if no device has been selected yet; throws IllegalArgumentException for a
+    // command longer than MAX_COMMAND_BYTES
+    public boolean send(String data) {
+        return send(data, System.nanoTime());
+    }
+    
+    // Same, with the System.nanoTime() the command was issued at, e.g. when the user stopped
+    // speaking, which voice-to-ACK latency is measured from
+    public boolean send(String data, long issuedNanos) {
+        return send(null, data, issuedNanos, reserveSendId());
+    }
+    
+    // A configured command: sent as its pre-encoded payload, in binary mode under its own id
+    public boolean send(CommandTable.Entry entry, long issuedNanos) {
+        return send(entry, entry.data, issuedNanos, reserveSendId());
+    }
+    
+    // The number for the next send(), for callers that must know it before the command can
+    // be reported on
+    long reserveSendId() {
+        return sendIds.incrementAndGet();
+    }
+    
+    // Returns false, and reports nothing, if no device has been selected. Without an entry
+    // data goes out as raw text.
+    boolean send(CommandTable.Entry entry, String data, long issuedNanos, long sendId) {
+        checkCommand(data);
+        if (targetAddress == null) {
+            return false;
+        }
+        scheduler.offer(new OutboundScheduler.Command(data, entry, sendId, issuedNanos));
+        return true;
+    }
+    
+    // Whether data fits a single command frame, counted without encoding it
+    public static boolean isSendable(String data) {
+        int bytes = 0;
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // A surrogate pair is one 4-byte sequence
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+            if (bytes > MAX_COMMAND_BYTES) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    static void checkCommand(String data) {
+        if (!isSendable(data)) {
+            throw new IllegalArgumentException("Command longer than " + MAX_COMMAND_BYTES + " bytes: "
+                + data.substring(0, 16) + "...");
+        }
+    }
+    
+    public void disconnect() {
+        synchronized (lock) {
+            targetAddress = null;
+            if (linkThread != null) {
+                linkThread.interrupt();
+                retiredThread = linkThread;
+                linkThread = null;
+            }
+        }
+        // The link thread drops what it holds and has in flight on its way out
+        scheduler.clear();
+        closeConnection();
+    }
+    
+    // Drops the connection; the link thread reconnects with the current settings
+    private void reconnect() {
+        synchronized (lock) {
+            if (linkThread != null && linkThread.isAlive()) {
+                closeConnection();
+                linkThread.interrupt();
+            }
+        }
+    }
+    
+    private void runLink(Thread previous) {
+        // The retired thread owns the per-connection state below until it has exited
+        if (previous != null) {
+            awaitExit(previous);
+        }
+        encoder.clear();
+        held.clear();
+        batchCommands.clear();
+        resend.clear();
+        long backoffMs = initialBackoffMs;
+        
+        // A replaced or stopped link thread exits on its next pass
+        while (linkThread == Thread.currentThread()) {
+            String address = targetAddress;
+            if (address == null) {
+                break;
+            }
+            
+            Transport.Connection current = connection;
+            if (current == null || !current.isConnected()) {
+                try {
+                    current = transport.connect(address);
+                } catch (IOException e) {
+                    notifyConnectionFailed(address, e, backoffMs);
+                    if (!sleep(backoffMs)) {
+                        continue;
+                    }
+                    backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                    continue;
+                }
+                if (linkThread != Thread.currentThread() || !address.equals(targetAddress)) {
+                    closeQuietly(current);
+                    continue;
+                }
+                connection = current;
+                backoffMs = initialBackoffMs;
+                encoder.resetSequence();
+                acknowledged = acknowledgements && binaryFraming;
+                if (acknowledged) {
+                    // Whatever the old connection didn't get acknowledged is sent again,
+                    // renumbered, ahead of new commands
+                    encoder.clear();
+                    resend.addAll(tracker.drain());
+                    startReader(current, address);
+                }
+                notifyConnected(address);
+            }
+            
+            try {
+                if (!fillBatch(address)) {
+                    writeHeartbeat(current.getOutputStream());
+                    continue;
+                }
+                
+                encoder.writeTo(current.getOutputStream());
+                // A batch may hold only retransmissions
+                int count = batchCommands.size();
+                if (count > 0) {
+                    sentCount.addAndGet(count);
+                    notifySent(batchCommands.get(count - 1).data, count);
+                }
+                if (!acknowledged) {
+                    for (int i = 0; i < count; i++) {
+                        notifyDelivered(address, batchCommands.get(i));
+                    }
+                }
+                batchCommands.clear();
+            } catch (InterruptedException e) {
+                // Woken up by retarget or disconnect; the loop re-checks the state
+            } catch (IOException e) {
+                // Without ACKs the commands of the failed batch are sent again after
+                // reconnecting, in order; with ACKs the tracker has them
+                encoder.clear();
+                if (!acknowledged) {
+                    for (int i = batchCommands.size() - 1; i >= 0; i--) {
+                        held.addFirst(batchCommands.get(i));
+                    }
+                }
+                batchCommands.clear();
+                if (connection == current) {
+                    connection = null;
+                    reconnectCount.incrementAndGet();
+                    closeQuietly(current);
+                    notifyDisconnected(address, e);
+                }
+            }
+        }
+        // Stopped by disconnect(); a connection made meanwhile isn't left open
+        closeConnection();
+        dropUnsent();
+    }
+    
+    // Even when stopped meanwhile, so that the next thread in turn waits for both
+    private void awaitExit(Thread previous) {
+        while (previous.isAlive()) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                // The loop re-checks whether this thread is still wanted
+            }
+        }
+    }
+    
+    // Reports everything this thread took from the scheduler but can no longer send, oldest
+    // first. The batch is always empty between passes; with ACKs it is in the tracker anyway.
+    private void dropUnsent() {
+        List<AckTracker.Pending> inFlight = tracker.drain();
+        for (int i = 0; i < resend.size(); i++) {
+            notifyDropped(resend.get(i).command, OutboundScheduler.DropReason.CLEARED);
+        }
+        for (int i = 0; i < inFlight.size(); i++) {
+            notifyDropped(inFlight.get(i).command, OutboundScheduler.DropReason.CLEARED);
+        }
+        OutboundScheduler.Command command;
+        while ((command = held.poll()) != null) {
+            notifyDropped(command, OutboundScheduler.DropReason.CLEARED);
+        }
+        resend.clear();
+        batchCommands.clear();
+    }
+    
+    // Waits for the next command (up to the heartbeat interval) and batches everything
+    // else already queued, after any frames due for retransmission. Returns false if the
+    // link was idle for the heartbeat interval.
+    private boolean fillBatch(String address) throws InterruptedException {
+        encoder.clear();
+        batchCommands.clear();
+        long idleSince = System.nanoTime();
+        while (true) {
+            // Once stopped, whatever is queued is left to disconnect() or the next link thread
+            if (linkThread != Thread.currentThread()) {
+                throw new InterruptedException();
+            }
+            
+            // A full window takes no new commands until ACKs come in
+            boolean blocked = false;
+            if (acknowledged) {
+                appendRetransmits(address);
+                blocked = tracker.isFull() || !resend.isEmpty();
+            }
+            
+            if (!blocked) {
+                OutboundScheduler.Command command = held.poll();
+                if (command == null) {
+                    command = encoder.isEmpty() ? poll(waitNanos(idleSince)) : scheduler.poll();
+                }
+                if (command != null) {
+                    // Commands are at most MAX_COMMAND_BYTES, so one always fits an empty batch
+                    if (encode(command)) {
+                        batchCommands.add(command);
+                        appendQueued();
+                    } else {
+                        held.addFirst(command);
+                    }
+                }
+            } else if (encoder.isEmpty()) {
+                tracker.awaitSpace(waitNanos(idleSince));
+            }
+            
+            if (!encoder.isEmpty()) {
+                return true;
+            }
+            long interval = heartbeatIntervalMs;
+            if (interval > 0 && System.nanoTime() - idleSince >= TimeUnit.MILLISECONDS.toNanos(interval)) {
+                return false;
+            }
+        }
+    }
+    
+    // Batches whatever else is already waiting into the same write
+    private void appendQueued() {
+        OutboundScheduler.Command next;
+        while (encoder.remaining() >= FrameEncoder.MAX_FRAME_SIZE && !(acknowledged && tracker.isFull())
+                && (next = nextQueued()) != null) {
+            if (!encode(next)) {
+                held.addFirst(next);
+                break;
+            }
+            batchCommands.add(next);
+        }
+    }
+    
+    private OutboundScheduler.Command nextQueued() {
+        OutboundScheduler.Command command = held.poll();
+        return command != null ? command : scheduler.poll();
+    }
+    
+    // Until the heartbeat is due or, on an acknowledged link, the next ACK is overdue
+    private long waitNanos(long idleSince) {
+        long interval = heartbeatIntervalMs;
+        long wait = Long.MAX_VALUE;
+        if (interval > 0) {
+            wait = Math.max(0, idleSince + TimeUnit.MILLISECONDS.toNanos(interval) - System.nanoTime());
+        }
+        if (acknowledged) {
+            long timeout = TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+            wait = Math.min(wait, tracker.nanosUntilExpiry(System.nanoTime(), timeout));
+        }
+        return wait;
+    }
+    
+    private OutboundScheduler.Command poll(long nanos) throws InterruptedException {
+        return nanos == Long.MAX_VALUE ? scheduler.take() : scheduler.poll(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private boolean encode(OutboundScheduler.Command command) {
+        String data = command.data;
+        CommandTable.Entry entry = command.entry;
+        if (!binaryFraming) {
+            return entry != null ? encoder.appendLine(entry.payload) : encoder.appendLine(data);
+        }
+        
+        // A frame carries a one-byte id, so commands beyond that go out as text
+        int commandId = FrameEncoder.RAW_COMMAND_ID;
+        byte[] payload = EMPTY;
+        int length = 0;
+        if (entry != null && entry.id < FrameEncoder.FIRST_RESERVED_ID) {
+            commandId = entry.id;
+        } else {
+            payload = entry != null ? entry.payload : data.getBytes(UTF_8);
+            length = payload.length;
+        }
+        if (!acknowledged) {
+            return encoder.append(commandId, payload, 0, length) >= 0;
+        }
+        
+        if (encoder.remaining() < FrameEncoder.HEADER_SIZE + length + FrameEncoder.CRC_SIZE) {
+            return false;
+        }
+        AckTracker.Pending pending = new AckTracker.Pending(command, commandId, payload, length);
+        tracker.register(pending);
+        transmit(pending);
+        return true;
+    }
+    
+    private void transmit(AckTracker.Pending pending) {
+        encoder.appendFrame(pending.sequence, pending.commandId, pending.payload, 0, pending.length);
+        pending.sentNanos = System.nanoTime();
+        pending.transmissions++;
+    }
+    
+    // Commands from the previous connection go first, with new sequence numbers. Frames whose
+    // ACK is overdue are sent again with their number unchanged, oldest first, until they have
+    // been retransmitted maxRetransmits times; then the command is reported as failed.
+    private void appendRetransmits(String address) {
+        while (!resend.isEmpty() && encoder.remaining() >= FrameEncoder.MAX_FRAME_SIZE) {
+            AckTracker.Pending pending = resend.remove(0);
+            tracker.register(pending);
+            transmit(pending);
+        }
+        
+        expired.clear();
+        tracker.collectExpired(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs), expired);
+        for (int i = 0; i < expired.size(); i++) {
+            AckTracker.Pending pending = expired.get(i);
+            if (pending.transmissions > maxRetransmits) {
+                if (tracker.remove(pending)) {
+                    failedCount.incrementAndGet();
+                    notifyDeliveryFailed(address, pending.command);
+                }
+            } else if (encoder.remaining() >= FrameEncoder.MAX_FRAME_SIZE && tracker.isTracked(pending)) {
+                transmit(pending);
+                retransmitCount.incrementAndGet();
+            }
+        }
+        expired.clear();
+    }
+    
+    private void startReader(final Transport.Connection c, final String address) {
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runReader(c, address);
+            }
+        }, "DeviceLink-reader-" + address);
+        // Blocked in read() until the connection closes, which must not keep the process alive
+        reader.setDaemon(true);
+        reader.start();
+    }
+    
+    // Decodes ACKs until the connection is closed. When the device closes its end, the
+    // connection is closed here too and the link thread woken to reconnect.
+    private void runReader(Transport.Connection c, final String address) {
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(int sequence, int commandId, byte[] payload, int offset, int length) {
+                if (commandId == FrameEncoder.ACK_COMMAND_ID) {
+                    onAck(address, sequence);
+                }
+            }
+        });
+        byte[] buffer = new byte[64];
+        try {
+            InputStream in = c.getInputStream();
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                decoder.feed(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            // Closed by the link thread, or the link died; the next write finds out which
+        }
+        synchronized (lock) {
+            if (connection == c && linkThread != null) {
+                closeQuietly(c);
+                linkThread.interrupt();
+            }
+        }
+    }
+    
+    private void onAck(String address, int sequence) {
+        AckTracker.Pending pending = tracker.acknowledge(sequence);
+        if (pending == null) {
+            // The ACK of a retransmitted frame that was acknowledged already, unless the
+            // device answered a heartbeat
+            if (!tracker.acknowledgeHeartbeat(sequence)) {
+                duplicateAckCount.incrementAndGet();
+            }
+            return;
+        }
+        long now = System.nanoTime();
+        // An ACK after a retransmission may answer any copy, so only a single transmission
+        // gives a round-trip sample
+        if (pending.transmissions == 1) {
+            long rtt = now - pending.sentNanos;
+            roundTrip.record(rtt);
+            LatencyHistogram perCommand = roundTripByCommand.get(pending.command.data);
+            if (perCommand == null) {
+                perCommand = new LatencyHistogram();
+                LatencyHistogram raced = roundTripByCommand.putIfAbsent(pending.command.data, perCommand);
+                if (raced != null) {
+                    perCommand = raced;
+                }
+            }
+            perCommand.record(rtt);
+        }
+        voiceToAck.record(now - pending.command.issuedNanos);
+        notifyDelivered(address, pending.command);
+    }
+    
+    private void writeHeartbeat(OutputStream out) throws IOException {
+        // Writing is the only way to find out that an RFCOMM link died silently
+        if (binaryFraming) {
+            encoder.clear();
+            // Numbered around the frames in flight, so a device that ACKs it does no harm
+            if (acknowledged) {
+                encoder.appendFrame(tracker.nextHeartbeatSequence(), FrameEncoder.HEARTBEAT_COMMAND_ID, EMPTY, 0, 0);
+            } else {
+                encoder.append(FrameEncoder.HEARTBEAT_COMMAND_ID);
+            }
+            encoder.writeTo(out);
+        } else {
+            out.write(HEARTBEAT_LINE);
+            out.flush();
+        }
+        heartbeatCount.incrementAndGet();
+    }
+    
+    private boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+    
+    private void closeConnection() {
+        Transport.Connection current = connection;
+        connection = null;
+        closeQuietly(current);
+    }
+    
+    private static void closeQuietly(Transport.Connection c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                // Ignore cleanup errors
+            }
+        }
+    }
+    
+    private void notifyConnected(String address) {
+        Listener l = listener;
+        if (l != null) {
+            l.onConnected(address);
+        }
+    }
+    
+    private void notifyConnectionFailed(String address, IOException error, long retryDelayMs) {
+        Listener l = listener;
+        if (l != null) {
+            l.onConnectionFailed(address, error, retryDelayMs);
+        }
+    }
+    
+    private void notifyDisconnected(String address, IOException error) {
+        Listener l = listener;
+        if (l != null) {
+            l.onDisconnected(address, error);
+        }
+    }
+    
+    private void notifySent(String lastCommand, int count) {
+        Listener l = listener;
+        if (l != null) {
+            l.onSent(lastCommand, count);
+        }
+    }
+    
+    private void notifyDelivered(String address, OutboundScheduler.Command command) {
+        Listener l = listener;
+        if (l != null) {
+            l.onDelivered(address, command.id, command.data);
+        }
+    }
+    
+    private void notifyDeliveryFailed(String address, OutboundScheduler.Command command) {
+        Listener l = listener;
+        if (l != null) {
+            l.onDeliveryFailed(address, command.id, command.data);
+        }
+    }
+    
+    private void notifyDropped(OutboundScheduler.Command command, OutboundScheduler.DropReason reason) {
+        Listener l = listener;
+        if (l != null) {
+            l.onDropped(command.id, command.data, reason);
+        }
+    }
+    
+    public String getTargetAddress() {
+        return targetAddress;
+    }
+    
+    public boolean isConnected() {
+        Transport.Connection current = connection;
+        return current != null && current.isConnected();
+    }
+    
+    // Queue and link metrics
+    public int getQueueDepth() {
+        return scheduler.getDepth();
+    }
+    
+    public int getMaxQueueDepth() {
+        return scheduler.getMaxDepth();
+    }
+    
+    public long getDroppedCommandCount() {
+        return scheduler.getDroppedCount();
+    }
+    
+    public long getCoalescedCommandCount() {
+        return scheduler.getCoalescedCount();
+    }
+    
+    public long getSupersededCommandCount() {
+        return scheduler.getSupersededCount();
+    }
+    
+    public long getPreemptedCommandCount() {
+        return scheduler.getPreemptedCount();
+    }
+    
+    public long getSentCommandCount() {
+        return sentCount.get();
+    }
+    
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+    
+    public long getHeartbeatCount() {
+        return heartbeatCount.get();
+    }
+    
+    // Acknowledgement metrics; the histograms are snapshots
+    public int getInFlightCount() {
+        return tracker.size();
+    }
+    
+    public long getRetransmitCount() {
+        return retransmitCount.get();
+    }
+    
+    public long getFailedCommandCount() {
+        return failedCount.get();
+    }
+    
+    public long getDuplicateAckCount() {
+        return duplicateAckCount.get();
+    }
+    
+    // Frame write to ACK, over all commands
+    public LatencyHistogram getRoundTripStats() {
+        return roundTrip.copy();
+    }
+    
+    // Same for one command; empty if it was never acknowledged
+    public LatencyHistogram getRoundTripStats(String command) {
+        LatencyHistogram stats = roundTripByCommand.get(command);
+        return stats != null ? stats.copy() : new LatencyHistogram();
+    }
+    
+    // Issue time passed to send() to ACK, retransmissions and reconnects included
+    public LatencyHistogram getVoiceToAckStats() {
+        return voiceToAck.copy();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,458 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Nearest-template matcher: DTW in a Sakoe-Chiba band, pruned by LB_Keogh bounds and early
+// abandoning. Not thread-safe.
+public class DtwMatcher {
+    public static final float DEFAULT_BAND_FRACTION = 0.1f;
+    // Templates more than twice as long or as short as the query are never a match
+    private static final int MAX_LENGTH_RATIO = 2;
+    private static final float INFINITY = Float.POSITIVE_INFINITY;
+    
+    // Reusable result: the closest few commands, closest first, each with the distance of
+    // its closest template per unit of path length. Holds two unless told otherwise.
+    public static class Match {
+        final String[] commands;
+        final float[] distances;
+        int count;
+        int alignedCount;
+        int prunedCount;
+        
+        public Match() {
+            this(2);
+        }
+        
+        public Match(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+            }
+            commands = new String[capacity];
+            distances = new float[capacity];
+        }
+        
+        public int getCapacity() {
+            return commands.length;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+        
+        public String getCommand(int rank) {
+            return rank < count ? commands[rank] : null;
+        }
+        
+        public float getDistance(int rank) {
+            return rank < count ? distances[rank] : INFINITY;
+        }
+        
+        public String getCommand() {
+            return getCommand(0);
+        }
+        
+        public float getDistance() {
+            return getDistance(0);
+        }
+        
+        public float getRunnerUpDistance() {
+            return getDistance(1);
+        }
+        
+        // Templates that needed a (possibly abandoned) alignment
+        public int getAlignedCount() {
+            return alignedCount;
+        }
+        
+        // Templates rejected by their lower bound alone
+        public int getPrunedCount() {
+            return prunedCount;
+        }
+    }
+    
+    private final int dimension;
+    // Kept sorted by frame count so templates of equal length share one query envelope
+    private final List<CommandTemplate> templates = new ArrayList<>();
+    private final List<String> commands = new ArrayList<>();
+    private final Map<String, Integer> commandIndexes = new HashMap<>();
+    private int[] templateCommands = new int[0];
+    private int[] rowBoundOffsets = new int[0];
+    private int maxTemplateFrames;
+    private float bandFraction = DEFAULT_BAND_FRACTION;
+    private float maxDistance = INFINITY;
+    
+    // Per-query working buffers
+    private float[] lowerBounds = new float[0];
+    private float[] rowBounds = new float[0];
+    private float[] remainingBounds = new float[0];
+    private long[] order = new long[0];
+    private float[] upper = new float[0];
+    private float[] lower = new float[0];
+    private int[] maxDeque = new int[0];
+    private int[] minDeque = new int[0];
+    private float[] previousRow = new float[0];
+    private float[] currentRow = new float[0];
+    private int[] rankedCommands = new int[0];
+    
+    public DtwMatcher(int dimension) {
+        this.dimension = dimension;
+    }
+    
+    public void addTemplate(CommandTemplate template) {
+        if (template.dimension != dimension) {
+            throw new IllegalArgumentException("Template dimension " + template.dimension + " != " + dimension);
+        }
+        if (template.frameCount < 2) {
+            throw new IllegalArgumentException("Template too short");
+        }
+        
+        int position = 0;
+        while (position < templates.size() && templates.get(position).frameCount <= template.frameCount) {
+            position++;
+        }
+        templates.add(position, template);
+        
+        Integer commandIndex = commandIndexes.get(template.command);
+        if (commandIndex == null) {
+            commandIndex = commands.size();
+            commands.add(template.command);
+            commandIndexes.put(template.command, commandIndex);
+        }
+        int[] indexes = new int[templates.size()];
+        int[] offsets = new int[templates.size()];
+        int totalFrames = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = commandIndexes.get(templates.get(i).command);
+            offsets[i] = totalFrames;
+            totalFrames += templates.get(i).frameCount;
+        }
+        templateCommands = indexes;
+        rowBoundOffsets = offsets;
+        
+        lowerBounds = new float[templates.size()];
+        rowBounds = new float[totalFrames];
+        order = new long[templates.size()];
+        if (template.frameCount > maxTemplateFrames) {
+            maxTemplateFrames = template.frameCount;
+            upper = new float[maxTemplateFrames * dimension];
+            lower = new float[maxTemplateFrames * dimension];
+            remainingBounds = new float[maxTemplateFrames];
+        }
+    }
+    
+    public void clear() {
+        templates.clear();
+        commands.clear();
+        commandIndexes.clear();
+        templateCommands = new int[0];
+        rowBoundOffsets = new int[0];
+    }
+    
+    // Band half-width as a fraction of the longer sequence
+    public void setBandFraction(float bandFraction) {
+        this.bandFraction = bandFraction;
+    }
+    
+    // Matches at or above this per-frame distance are rejected
+    public void setMaxDistance(float maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+    
+    public int getTemplateCount() {
+        return templates.size();
+    }
+    
+    public int getCommandCount() {
+        return commands.size();
+    }
+    
+    public int getDimension() {
+        return dimension;
+    }
+    
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+    
+    // query holds frameCount row-major vectors. Fills result with the closest commands, as
+    // many as it holds; returns false (and leaves it empty) if no template is within the
+    // maximum distance.
+    public boolean findBestMatch(float[] query, int frameCount, Match result) {
+        for (int i = 0; i < result.count; i++) {
+            result.commands[i] = null;
+        }
+        result.count = 0;
+        result.alignedCount = 0;
+        result.prunedCount = 0;
+        
+        int count = templates.size();
+        if (frameCount < 2 || count == 0) {
+            return false;
+        }
+        ensureQueryCapacity(frameCount);
+        if (rankedCommands.length < result.commands.length) {
+            rankedCommands = new int[result.commands.length];
+        }
+        
+        int envelopeFrames = -1;
+        int candidates = 0;
+        for (int t = 0; t < count; t++) {
+            CommandTemplate template = templates.get(t);
+            int m = template.frameCount;
+            if (m > frameCount * MAX_LENGTH_RATIO || frameCount > m * MAX_LENGTH_RATIO) {
+                continue;
+            }
+            if (m != envelopeFrames) {
+                buildEnvelope(query, frameCount, m);
+                envelopeFrames = m;
+            }
+            float bound = lowerBound(template, rowBoundOffsets[t]) / (frameCount + m);
+            if (bound < maxDistance) {
+                lowerBounds[t] = bound;
+                // Non-negative float bits order like the floats themselves
+                order[candidates++] = ((long) Float.floatToIntBits(bound) << 32) | t;
+            }
+        }
+        result.prunedCount = count - candidates;
+        
+        // Min-heap by bound; usually only a few templates are popped before the rest is pruned
+        for (int k = candidates / 2 - 1; k >= 0; k--) {
+            siftDown(order, k, candidates);
+        }
+        
+        // Closest commands so far, kept sorted. A command's alignments only matter while
+        // they beat its own entry, or the last entry once the list is full.
+        int capacity = result.commands.length;
+        float[] distances = result.distances;
+        int[] ranked = rankedCommands;
+        int found = 0;
+        while (candidates > 0) {
+            int t = (int) order[0];
+            order[0] = order[--candidates];
+            siftDown(order, 0, candidates);
+            
+            float worst = found == capacity ? distances[capacity - 1] : maxDistance;
+            float bound = lowerBounds[t];
+            if (bound >= worst) {
+                // Bounds come out ascending, nothing left can change the result
+                result.prunedCount += candidates + 1;
+                break;
+            }
+            
+            int command = templateCommands[t];
+            int rank = 0;
+            while (rank < found && ranked[rank] != command) {
+                rank++;
+            }
+            float threshold = rank < found ? distances[rank] : worst;
+            if (bound >= threshold) {
+                result.prunedCount++;
+                continue;
+            }
+            
+            float distance = align(query, frameCount, templates.get(t), rowBoundOffsets[t], threshold);
+            result.alignedCount++;
+            if (distance >= threshold) {
+                continue;
+            }
+            // Replaces the command's own entry, else the next free or the last one
+            if (rank == found) {
+                rank = found < capacity ? found++ : capacity - 1;
+            }
+            for (; rank > 0 && distances[rank - 1] > distance; rank--) {
+                distances[rank] = distances[rank - 1];
+                ranked[rank] = ranked[rank - 1];
+            }
+            distances[rank] = distance;
+            ranked[rank] = command;
+        }
+        
+        for (int i = 0; i < found; i++) {
+            result.commands[i] = commands.get(ranked[i]);
+        }
+        result.count = found;
+        return found > 0;
+    }
+    
+    private static void siftDown(long[] heap, int index, int size) {
+        long value = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+    
+    private void ensureQueryCapacity(int frameCount) {
+        if (previousRow.length < frameCount) {
+            previousRow = new float[frameCount];
+            currentRow = new float[frameCount];
+            maxDeque = new int[frameCount];
+            minDeque = new int[frameCount];
+        }
+    }
+    
+    // Band half-width in query frames for aligning n query frames with m template frames.
+    // Never narrower than the slope, so consecutive template rows stay connected.
+    private int bandRadius(int n, int m) {
+        int slope = (n - 2 + m - 1) / (m - 1);
+        int radius = (int) Math.ceil(bandFraction * Math.max(n, m));
+        return Math.max(1, Math.max(slope, radius));
+    }
+    
+    // First query frame template frame i may align with
+    private static int bandStart(int i, int n, int m, int radius) {
+        long numerator = (long) i * (n - 1) - (long) radius * (m - 1);
+        return numerator <= 0 ? 0 : (int) ((numerator + m - 2) / (m - 1));
+    }
+    
+    // Last query frame template frame i may align with
+    private static int bandEnd(int i, int n, int m, int radius) {
+        long numerator = (long) i * (n - 1) + (long) radius * (m - 1);
+        return (int) Math.min(n - 1, numerator / (m - 1));
+    }
+    
+    // Per-dimension max/min of the query over each template frame's band, using monotonic
+    // deques: the band only ever slides forward, so this is O(n + m) per dimension
+    private void buildEnvelope(float[] query, int n, int m) {
+        int radius = bandRadius(n, m);
+        for (int d = 0; d < dimension; d++) {
+            int maxHead = 0, maxTail = 0;
+            int minHead = 0, minTail = 0;
+            int next = 0;
+            for (int i = 0; i < m; i++) {
+                int end = bandEnd(i, n, m, radius);
+                for (; next <= end; next++) {
+                    float value = query[next * dimension + d];
+                    while (maxTail > maxHead && query[maxDeque[maxTail - 1] * dimension + d] <= value) {
+                        maxTail--;
+                    }
+                    maxDeque[maxTail++] = next;
+                    while (minTail > minHead && query[minDeque[minTail - 1] * dimension + d] >= value) {
+                        minTail--;
+                    }
+                    minDeque[minTail++] = next;
+                }
+                
+                int start = bandStart(i, n, m, radius);
+                while (maxDeque[maxHead] < start) {
+                    maxHead++;
+                }
+                while (minDeque[minHead] < start) {
+                    minHead++;
+                }
+                upper[i * dimension + d] = query[maxDeque[maxHead] * dimension + d];
+                lower[i * dimension + d] = query[minDeque[minHead] * dimension + d];
+            }
+        }
+    }
+    
+    // LB_Keogh lower bound of the template against the query envelope; per-frame terms are
+    // kept in rowBounds for early abandoning.
+    private float lowerBound(CommandTemplate template, int rowBoundOffset) {
+        float[] frames = template.frames;
+        float sum = 0;
+        for (int i = 0; i < template.frameCount; i++) {
+            float row = 0;
+            for (int k = i * dimension; k < (i + 1) * dimension; k++) {
+                float value = frames[k];
+                if (value > upper[k]) {
+                    float diff = value - upper[k];
+                    row += diff * diff;
+                } else if (value < lower[k]) {
+                    float diff = lower[k] - value;
+                    row += diff * diff;
+                }
+            }
+            rowBounds[rowBoundOffset + i] = row;
+            sum += row;
+        }
+        return sum;
+    }
+    
+    // Banded DTW with squared Euclidean frame cost, normalized by n + m. Returns infinity
+    // as soon as the best cost through a row plus the bound of the remaining rows reaches
+    // the threshold.
+    private float align(float[] query, int n, CommandTemplate template, int rowBoundOffset, float threshold) {
+        int m = template.frameCount;
+        float[] frames = template.frames;
+        int radius = bandRadius(n, m);
+        float limit = threshold * (n + m);
+        
+        float[] remaining = remainingBounds;
+        remaining[m - 1] = 0;
+        for (int i = m - 2; i >= 0; i--) {
+            remaining[i] = remaining[i + 1] + rowBounds[rowBoundOffset + i + 1];
+        }
+        
+        float[] previous = previousRow;
+        float[] current = currentRow;
+        Arrays.fill(previous, 0, n, INFINITY);
+        Arrays.fill(current, 0, n, INFINITY);
+        // current still holds the row before previous in [staleStart, staleEnd]
+        int staleStart = 0, staleEnd = -1;
+        int previousStart = 0, previousEnd = -1;
+        
+        for (int i = 0; i < m; i++) {
+            int start = bandStart(i, n, m, radius);
+            int end = bandEnd(i, n, m, radius);
+            for (int j = staleStart; j <= staleEnd; j++) {
+                current[j] = INFINITY;
+            }
+            
+            float rowMin = INFINITY;
+            int templateBase = i * dimension;
+            for (int j = start; j <= end; j++) {
+                int queryBase = j * dimension;
+                float cost = 0;
+                for (int d = 0; d < dimension; d++) {
+                    float diff = frames[templateBase + d] - query[queryBase + d];
+                    cost += diff * diff;
+                }
+                
+                float step;
+                if (i == 0 && j == 0) {
+                    step = 0;
+                } else {
+                    step = previous[j];
+                    if (j > 0) {
+                        step = Math.min(step, Math.min(previous[j - 1], current[j - 1]));
+                    }
+                }
+                float value = cost + step;
+                current[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            
+            if (rowMin + remaining[i] >= limit) {
+                return INFINITY;
+            }
+            
+            float[] swap = previous;
+            previous = current;
+            current = swap;
+            staleStart = previousStart;
+            staleEnd = previousEnd;
+            previousStart = start;
+            previousEnd = end;
+        }
+        
+        return previous[n - 1] / (n + m);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.yourpackage.voicecontrol;
+
+// Asks each classifier in turn and returns the first answer, with that classifier's
+// N-best list only.
+public class FallbackClassifier implements UtteranceClassifier {
+    private final UtteranceClassifier[] classifiers;
+    
+    public FallbackClassifier(UtteranceClassifier... classifiers) {
+        this.classifiers = classifiers.clone();
+    }
+    
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder();
+        for (UtteranceClassifier classifier : classifiers) {
+            if (name.length() > 0) {
+                name.append('+');
+            }
+            name.append(classifier.getName());
+        }
+        return name.toString();
+    }
+    
+    @Override
+    public boolean classify(UtteranceFeatures features, RecognitionResult result) {
+        for (UtteranceClassifier classifier : classifiers) {
+            if (classifier.classify(features, result)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean classifyPartial(UtteranceFeatures features, RecognitionResult result) {
+        for (UtteranceClassifier classifier : classifiers) {
+            if (classifier.classifyPartial(features, result)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
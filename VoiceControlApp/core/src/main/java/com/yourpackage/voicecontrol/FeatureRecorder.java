@@ -0,0 +1,67 @@
+package com.yourpackage.voicecontrol;
+
+// Collects the MFCC frames of one utterance into a preallocated array so they can be
+// matched or turned into a template. Frames beyond the capacity are dropped.
+public class FeatureRecorder implements MfccExtractor.FrameListener {
+    private final float[] frames;
+    private final int maxFrames;
+    private final int dimension;
+    private int frameCount;
+    
+    public FeatureRecorder(int maxFrames, int dimension) {
+        this.frames = new float[maxFrames * dimension];
+        this.maxFrames = maxFrames;
+        this.dimension = dimension;
+    }
+    
+    @Override
+    public void onFrame(float[] coefficients, long frameIndex) {
+        if (frameCount < maxFrames) {
+            System.arraycopy(coefficients, 0, frames, frameCount * dimension, dimension);
+            frameCount++;
+        }
+    }
+    
+    public void reset() {
+        frameCount = 0;
+    }
+    
+    // Cepstral mean normalization: removes the per-utterance channel and loudness offset
+    public void normalize() {
+        if (frameCount == 0) {
+            return;
+        }
+        for (int d = 0; d < dimension; d++) {
+            float sum = 0;
+            for (int i = d; i < frameCount * dimension; i += dimension) {
+                sum += frames[i];
+            }
+            float mean = sum / frameCount;
+            for (int i = d; i < frameCount * dimension; i += dimension) {
+                frames[i] -= mean;
+            }
+        }
+    }
+    
+    public CommandTemplate toTemplate(String command) {
+        float[] copy = new float[frameCount * dimension];
+        System.arraycopy(frames, 0, copy, 0, copy.length);
+        return new CommandTemplate(command, copy, frameCount, dimension);
+    }
+    
+    public float[] getFrames() {
+        return frames;
+    }
+    
+    public int getFrameCount() {
+        return frameCount;
+    }
+    
+    public int getDimension() {
+        return dimension;
+    }
+    
+    public boolean isFull() {
+        return frameCount == maxFrames;
+    }
+}
\ No newline at end of file
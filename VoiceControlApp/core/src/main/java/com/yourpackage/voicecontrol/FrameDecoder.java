@@ -0,0 +1,98 @@
+package com.yourpackage.voicecontrol;
+
+// Incremental decoder for FrameEncoder binary frames; resynchronizes on the next SYNC.
+public class FrameDecoder {
+    public interface FrameListener {
+        void onFrame(int sequence, int commandId, byte[] payload, int offset, int length);
+    }
+    
+    private static final int STATE_SYNC = 0;
+    private static final int STATE_HEADER = 1;
+    private static final int STATE_BODY = 2;
+    
+    private final FrameListener listener;
+    private final byte[] frame = new byte[FrameEncoder.MAX_FRAME_SIZE];
+    // Bytes of a rejected frame still to be scanned, ahead of any new input
+    private final byte[] backlog = new byte[2 * FrameEncoder.MAX_FRAME_SIZE];
+    private int backlogStart;
+    private int backlogEnd;
+    private int state = STATE_SYNC;
+    private int position;
+    private int expected;
+    private long frameCount;
+    private long corruptCount;
+    
+    public FrameDecoder(FrameListener listener) {
+        this.listener = listener;
+    }
+    
+    public void feed(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            accept(data[i]);
+            while (backlogStart < backlogEnd) {
+                accept(backlog[backlogStart++]);
+            }
+        }
+    }
+    
+    private void accept(byte b) {
+        switch (state) {
+            case STATE_SYNC:
+                if ((b & 0xFF) == FrameEncoder.SYNC) {
+                    frame[0] = b;
+                    position = 1;
+                    state = STATE_HEADER;
+                }
+                break;
+            case STATE_HEADER:
+                frame[position++] = b;
+                if (position == FrameEncoder.HEADER_SIZE) {
+                    expected = FrameEncoder.HEADER_SIZE + (frame[3] & 0xFF) + FrameEncoder.CRC_SIZE;
+                    state = STATE_BODY;
+                }
+                break;
+            default:
+                frame[position++] = b;
+                if (position == expected) {
+                    completeFrame();
+                    state = STATE_SYNC;
+                }
+                break;
+        }
+    }
+    
+    private void completeFrame() {
+        int crcIndex = position - 1;
+        int crc = Crc8.compute(frame, 1, crcIndex - 1);
+        if (crc != (frame[crcIndex] & 0xFF)) {
+            corruptCount++;
+            // Everything after the rejected SYNC goes back in front of the unscanned bytes
+            int rejected = position - 1;
+            int unscanned = backlogEnd - backlogStart;
+            System.arraycopy(backlog, backlogStart, backlog, rejected, unscanned);
+            System.arraycopy(frame, 1, backlog, 0, rejected);
+            backlogStart = 0;
+            backlogEnd = rejected + unscanned;
+            return;
+        }
+        
+        frameCount++;
+        listener.onFrame(frame[1] & 0xFF, frame[2] & 0xFF, frame, FrameEncoder.HEADER_SIZE,
+            frame[3] & 0xFF);
+    }
+    
+    public void reset() {
+        state = STATE_SYNC;
+        position = 0;
+        backlogStart = 0;
+        backlogEnd = 0;
+    }
+    
+    public long getFrameCount() {
+        return frameCount;
+    }
+    
+    public long getCorruptCount() {
+        return corruptCount;
+    }
+}
\ No newline at end of file
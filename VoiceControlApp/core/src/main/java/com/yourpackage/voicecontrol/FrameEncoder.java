@@ -0,0 +1,131 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+// Batches outgoing commands into one buffer, as "DATA\n" lines or binary frames:
+// SYNC, sequence, command id, payload length, payload, CRC-8 of everything after SYNC.
+public class FrameEncoder {
+    public static final int SYNC = 0xA5;
+    public static final int RAW_COMMAND_ID = 0; // payload carries the command text
+    public static final int HEARTBEAT_COMMAND_ID = 0xFF; // liveness probe, ignore on the device
+    // Sent by the device on an acknowledged link, with the sequence number of the frame it got
+    public static final int ACK_COMMAND_ID = 0xFE;
+    // Command ids below this are configured commands
+    public static final int FIRST_RESERVED_ID = ACK_COMMAND_ID;
+    public static final int HEADER_SIZE = 4;
+    public static final int CRC_SIZE = 1;
+    public static final int MAX_PAYLOAD = 255;
+    public static final int MAX_FRAME_SIZE = HEADER_SIZE + MAX_PAYLOAD + CRC_SIZE;
+    
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] EMPTY = new byte[0];
+    
+    private final byte[] buffer;
+    private int position;
+    private int frameCount;
+    private int sequence;
+    
+    public FrameEncoder(int capacity) {
+        if (capacity < MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Capacity must hold at least one frame: " + capacity);
+        }
+        this.buffer = new byte[capacity];
+    }
+    
+    // Appends a binary frame; returns the sequence number used, or -1 if it doesn't fit
+    public int append(int commandId, byte[] payload, int offset, int length) {
+        if (appendFrame(sequence, commandId, payload, offset, length) < 0) {
+            return -1;
+        }
+        int seq = sequence;
+        sequence = (sequence + 1) & 0xFF;
+        return seq;
+    }
+    
+    // Same with a sequence number chosen by the caller, e.g. to retransmit a frame unchanged
+    public int appendFrame(int seq, int commandId, byte[] payload, int offset, int length) {
+        if (commandId < 0 || commandId > 0xFF) {
+            throw new IllegalArgumentException("Command id out of range: " + commandId);
+        }
+        if (length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Payload too long: " + length);
+        }
+        if (position + HEADER_SIZE + length + CRC_SIZE > buffer.length) {
+            return -1;
+        }
+        
+        int start = position;
+        buffer[position++] = (byte) SYNC;
+        buffer[position++] = (byte) seq;
+        buffer[position++] = (byte) commandId;
+        buffer[position++] = (byte) length;
+        System.arraycopy(payload, offset, buffer, position, length);
+        position += length;
+        buffer[position] = (byte) Crc8.compute(buffer, start + 1, position - start - 1);
+        position++;
+        
+        frameCount++;
+        return seq;
+    }
+    
+    public int append(int commandId) {
+        return append(commandId, EMPTY, 0, 0);
+    }
+    
+    // Appends a legacy text command terminated by '\n'; returns false if it doesn't fit
+    public boolean appendLine(String data) {
+        return appendLine(data.getBytes(UTF_8));
+    }
+    
+    // Same for text that is already encoded, e.g. a CommandTable payload
+    public boolean appendLine(byte[] bytes) {
+        if (position + bytes.length + 1 > buffer.length) {
+            return false;
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        buffer[position++] = '\n';
+        frameCount++;
+        return true;
+    }
+    
+    // Writes all batched bytes in one call and clears the batch
+    public void writeTo(OutputStream out) throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            out.flush();
+        }
+        clear();
+    }
+    
+    public void clear() {
+        position = 0;
+        frameCount = 0;
+    }
+    
+    public boolean isEmpty() {
+        return position == 0;
+    }
+    
+    public int size() {
+        return position;
+    }
+    
+    public int remaining() {
+        return buffer.length - position;
+    }
+    
+    public int getFrameCount() {
+        return frameCount;
+    }
+    
+    public byte[] array() {
+        return buffer;
+    }
+    
+    public void resetSequence() {
+        sequence = 0;
+    }
+}
\ No newline at end of file
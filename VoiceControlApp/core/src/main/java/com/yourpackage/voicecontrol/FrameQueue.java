@@ -0,0 +1,120 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single-producer single-consumer queue of fixed-size audio frames, reused for every
+// session. Keeps the most recently polled frames for pre-roll.
+public class FrameQueue {
+    public interface Sink {
+        void accept(short[] samples, int offset, int length);
+    }
+    
+    private final short[] samples;
+    private final int[] lengths;
+    private final int slots;
+    private final int frameSamples;
+    private final int historyFrames;
+    
+    // Running frame counts; published is written by the producer, released by the consumer
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    
+    // Consumer state
+    private long consumed;
+    private long current = -1;
+    private int currentLength;
+    private long historyStart;
+    
+    public FrameQueue(int frameSamples, int queueFrames, int historyFrames) {
+        this.frameSamples = frameSamples;
+        this.historyFrames = historyFrames;
+        this.slots = queueFrames + historyFrames + 1;
+        this.samples = new short[slots * frameSamples];
+        this.lengths = new int[slots];
+    }
+    
+    public short[] array() {
+        return samples;
+    }
+    
+    public int getFrameSamples() {
+        return frameSamples;
+    }
+    
+    // Only while neither thread is using the queue
+    public void reset() {
+        published.set(0);
+        released.set(0);
+        consumed = 0;
+        current = -1;
+        currentLength = 0;
+        historyStart = 0;
+    }
+    
+    // Producer: offset of a free slot to read the next frame into, or -1 if the queue is full
+    public int claim() {
+        long head = published.get();
+        if (head - released.get() >= slots) {
+            return -1;
+        }
+        return (int) (head % slots) * frameSamples;
+    }
+    
+    // Producer: hands the claimed slot, now holding length samples, to the consumer
+    public void publish(int length) {
+        long head = published.get();
+        lengths[(int) (head % slots)] = length;
+        published.lazySet(head + 1);
+    }
+    
+    // Consumer: offset of the next frame, or -1 if none is waiting. The previous frame
+    // becomes pre-roll history and the oldest history frame goes back to the producer.
+    public int poll() {
+        if (consumed == published.get()) {
+            return -1;
+        }
+        current = consumed++;
+        if (current > historyFrames) {
+            released.lazySet(current - historyFrames);
+        }
+        int slot = (int) (current % slots);
+        currentLength = lengths[slot];
+        return slot * frameSamples;
+    }
+    
+    // Consumer: length of the frame returned by the last poll()
+    public int length() {
+        return currentLength;
+    }
+    
+    // Consumer: frames published but not yet polled
+    public int getBacklog() {
+        return (int) (published.get() - consumed);
+    }
+    
+    // Consumer: passes up to maxSamples of the audio before the current frame to the sink,
+    // oldest first. Each history frame is handed out at most once.
+    public void drainPreRoll(Sink sink, int maxSamples) {
+        long first = Math.max(historyStart, current - historyFrames);
+        int total = 0;
+        long start = current;
+        while (start > first && total < maxSamples) {
+            start--;
+            total += lengths[(int) (start % slots)];
+        }
+        
+        // Only the oldest frame can be partly outside the window
+        int skip = Math.max(0, total - maxSamples);
+        for (long i = start; i < current; i++) {
+            int slot = (int) (i % slots);
+            sink.accept(samples, slot * frameSamples + skip, lengths[slot] - skip);
+            skip = 0;
+        }
+        historyStart = current;
+    }
+    
+    // Consumer: forgets everything up to and including the current frame
+    public void discardHistory() {
+        historyStart = current + 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.Arrays;
+
+// Latency distribution in microseconds: exact below 32us, then 16 buckets per power of
+// two, so percentiles are within about 3%.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Up to 2^31us, about 35 minutes; anything longer lands in the last bucket
+    private static final int MAX_EXPONENT = 30;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    
+    final int[] counts = new int[BUCKET_COUNT];
+    long count;
+    long sumMicros;
+    long maxMicros;
+    
+    public synchronized void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts[bucketOf(micros)]++;
+        count++;
+        sumMicros += micros;
+        maxMicros = Math.max(maxMicros, micros);
+    }
+    
+    // Adds other's values, e.g. to sum up the links of a device group
+    public void add(LatencyHistogram other) {
+        LatencyHistogram snapshot = other.copy();
+        synchronized (this) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += snapshot.counts[i];
+            }
+            count += snapshot.count;
+            sumMicros += snapshot.sumMicros;
+            maxMicros = Math.max(maxMicros, snapshot.maxMicros);
+        }
+    }
+    
+    public synchronized LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKET_COUNT);
+        copy.count = count;
+        copy.sumMicros = sumMicros;
+        copy.maxMicros = maxMicros;
+        return copy;
+    }
+    
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sumMicros = 0;
+        maxMicros = 0;
+    }
+    
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+    
+    // Middle of the bucket's value range
+    static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return low + width / 2;
+    }
+    
+    // Latency that percent of the values are at or below; 0 when empty
+    public synchronized double getPercentileMs(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percent / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(valueOf(i), maxMicros) / 1000.0;
+            }
+        }
+        return maxMicros / 1000.0;
+    }
+    
+    public double getP50Ms() {
+        return getPercentileMs(50);
+    }
+    
+    public double getP95Ms() {
+        return getPercentileMs(95);
+    }
+    
+    public double getP99Ms() {
+        return getPercentileMs(99);
+    }
+    
+    public synchronized long getCount() {
+        return count;
+    }
+    
+    public synchronized double getMeanMs() {
+        return count == 0 ? 0 : (double) sumMicros / count / 1000;
+    }
+    
+    public synchronized double getMaxMs() {
+        return maxMicros / 1000.0;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return "LatencyHistogram{count=" + count + ", p50=" + getP50Ms() + "ms, p95=" + getP95Ms()
+            + "ms, p99=" + getP99Ms() + "ms, max=" + getMaxMs() + "ms}";
+    }
+}
\ No newline at end of file
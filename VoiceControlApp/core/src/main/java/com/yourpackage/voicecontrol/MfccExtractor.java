@@ -0,0 +1,208 @@
+package com.yourpackage.voicecontrol;
+
+// MFCC front end: pre-emphasis, 25 ms Hamming frames every 10 ms, real FFT, mel
+// filterbank, log and DCT-II. Allocates nothing once constructed.
+public class MfccExtractor {
+    public interface FrameListener {
+        // coefficients is reused for the next frame; copy it if it must be kept
+        void onFrame(float[] coefficients, long frameIndex);
+    }
+    
+    public static final int DEFAULT_FRAME_MS = 25;
+    public static final int DEFAULT_HOP_MS = 10;
+    public static final int DEFAULT_FILTERS = 26;
+    public static final int DEFAULT_COEFFICIENTS = 13;
+    
+    private static final float PRE_EMPHASIS = 0.97f;
+    private static final float LOG_FLOOR = 1e-10f;
+    
+    private final int sampleRate;
+    private final int frameLength;
+    private final int hopLength;
+    private final int numFilters;
+    private final int numCoefficients;
+    
+    private final RealFft fft;
+    private final float[] window;
+    private final int[] filterStart;
+    private final float[][] filterWeights;
+    private final float[][] dct;
+    
+    // Working buffers; computeFrame() pre-emphasizes into its own, the streaming frame
+    // being assembled stays untouched
+    private final float[] frameScratch;
+    private final float[] fftInput;
+    private final float[] power;
+    private final float[] melEnergies;
+    private final float[] coefficients;
+    
+    // Streaming state: pre-emphasized samples of the frame being assembled
+    private final float[] pending;
+    private int pendingCount;
+    private float previousSample;
+    private long frameIndex;
+    private FrameListener listener;
+    
+    public MfccExtractor(int sampleRate) {
+        this(sampleRate, DEFAULT_FRAME_MS, DEFAULT_HOP_MS, DEFAULT_FILTERS, DEFAULT_COEFFICIENTS);
+    }
+    
+    public MfccExtractor(int sampleRate, int frameMs, int hopMs, int numFilters, int numCoefficients) {
+        if (numCoefficients > numFilters) {
+            throw new IllegalArgumentException("More coefficients than filters");
+        }
+        this.sampleRate = sampleRate;
+        this.frameLength = sampleRate * frameMs / 1000;
+        this.hopLength = sampleRate * hopMs / 1000;
+        this.numFilters = numFilters;
+        this.numCoefficients = numCoefficients;
+        
+        int fftSize = Integer.highestOneBit(frameLength);
+        if (fftSize < frameLength) {
+            fftSize <<= 1;
+        }
+        this.fft = new RealFft(fftSize);
+        
+        fftInput = new float[fftSize];
+        power = new float[fftSize / 2 + 1];
+        melEnergies = new float[numFilters];
+        coefficients = new float[numCoefficients];
+        pending = new float[frameLength];
+        frameScratch = new float[frameLength];
+        
+        window = new float[frameLength];
+        for (int i = 0; i < frameLength; i++) {
+            window[i] = (float) (0.54 - 0.46 * Math.cos(2 * Math.PI * i / (frameLength - 1)));
+        }
+        
+        // Triangular filters evenly spaced on the mel scale between 0 Hz and Nyquist
+        double melMax = hzToMel(sampleRate / 2.0);
+        int[] bins = new int[numFilters + 2];
+        for (int i = 0; i < bins.length; i++) {
+            double hz = melToHz(melMax * i / (numFilters + 1));
+            bins[i] = (int) Math.floor((fftSize + 1) * hz / sampleRate);
+        }
+        filterStart = new int[numFilters];
+        filterWeights = new float[numFilters][];
+        for (int m = 0; m < numFilters; m++) {
+            int left = bins[m], center = bins[m + 1], right = bins[m + 2];
+            filterStart[m] = left;
+            float[] weights = new float[Math.max(1, right - left + 1)];
+            for (int k = left; k <= right; k++) {
+                if (k < center) {
+                    weights[k - left] = (float) (k - left) / Math.max(1, center - left);
+                } else {
+                    weights[k - left] = (float) (right - k) / Math.max(1, right - center);
+                }
+            }
+            filterWeights[m] = weights;
+        }
+        
+        // Orthonormal DCT-II
+        dct = new float[numCoefficients][numFilters];
+        for (int i = 0; i < numCoefficients; i++) {
+            double scale = Math.sqrt((i == 0 ? 1.0 : 2.0) / numFilters);
+            for (int j = 0; j < numFilters; j++) {
+                dct[i][j] = (float) (scale * Math.cos(Math.PI * i * (j + 0.5) / numFilters));
+            }
+        }
+    }
+    
+    private static double hzToMel(double hz) {
+        return 2595 * Math.log10(1 + hz / 700);
+    }
+    
+    private static double melToHz(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+    
+    public void setFrameListener(FrameListener listener) {
+        this.listener = listener;
+    }
+    
+    public void reset() {
+        pendingCount = 0;
+        previousSample = 0;
+        frameIndex = 0;
+    }
+    
+    // Streams samples in; a frame is emitted to the listener every hop once a full frame is buffered
+    public void accept(short[] samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            float sample = samples[i];
+            pending[pendingCount++] = sample - PRE_EMPHASIS * previousSample;
+            previousSample = sample;
+            
+            if (pendingCount == frameLength) {
+                computeEmphasized(pending, coefficients);
+                if (listener != null) {
+                    listener.onFrame(coefficients, frameIndex);
+                }
+                frameIndex++;
+                System.arraycopy(pending, hopLength, pending, 0, frameLength - hopLength);
+                pendingCount = frameLength - hopLength;
+            }
+        }
+    }
+    
+    // Computes one frame of frameLength samples starting at offset, independent of the stream state
+    public void computeFrame(short[] samples, int offset, float[] out) {
+        float previous = offset > 0 ? samples[offset - 1] : 0;
+        for (int i = 0; i < frameLength; i++) {
+            float sample = samples[offset + i];
+            frameScratch[i] = sample - PRE_EMPHASIS * previous;
+            previous = sample;
+        }
+        computeEmphasized(frameScratch, out);
+    }
+    
+    private void computeEmphasized(float[] frame, float[] out) {
+        for (int i = 0; i < frameLength; i++) {
+            fftInput[i] = frame[i] * window[i];
+        }
+        for (int i = frameLength; i < fftInput.length; i++) {
+            fftInput[i] = 0;
+        }
+        
+        fft.powerSpectrum(fftInput, power);
+        
+        for (int m = 0; m < numFilters; m++) {
+            float[] weights = filterWeights[m];
+            int start = filterStart[m];
+            float sum = 0;
+            for (int k = 0; k < weights.length && start + k < power.length; k++) {
+                sum += weights[k] * power[start + k];
+            }
+            melEnergies[m] = (float) Math.log(Math.max(sum, LOG_FLOOR));
+        }
+        
+        for (int i = 0; i < numCoefficients; i++) {
+            float[] basis = dct[i];
+            float sum = 0;
+            for (int j = 0; j < numFilters; j++) {
+                sum += basis[j] * melEnergies[j];
+            }
+            out[i] = sum;
+        }
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public int getFrameLength() {
+        return frameLength;
+    }
+    
+    public int getHopLength() {
+        return hopLength;
+    }
+    
+    public int getNumCoefficients() {
+        return numCoefficients;
+    }
+    
+    public long getFrameCount() {
+        return frameIndex;
+    }
+}
\ No newline at end of file
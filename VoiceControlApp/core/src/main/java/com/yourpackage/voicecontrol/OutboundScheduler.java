@@ -0,0 +1,254 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Outgoing commands in three lanes drained in order: SAFETY, MOTION (latest only), NORMAL.
+// Producers never block; a command that never comes out is reported to the drop listener.
+public class OutboundScheduler {
+    public enum Priority {
+        SAFETY,
+        MOTION,
+        NORMAL
+    }
+    
+    public enum DropReason {
+        // Discarded by the normal lane's overflow policy
+        OVERFLOW,
+        // The same command was still queued and goes out in its place
+        COALESCED,
+        // A newer motion command took the motion slot
+        SUPERSEDED,
+        // A safety command discarded the pending motion command
+        PREEMPTED,
+        // Removed by clear(), e.g. when the link is disconnected
+        CLEARED
+    }
+    
+    public interface DropListener {
+        // Called on the thread that offered or cleared; must not block
+        void onDropped(Command command, DropReason reason);
+    }
+    
+    // One command handed to offer(): the payload, a number that tells repeats of the same
+    // payload apart, and when it was issued. Equal by payload, which is what COALESCE compares.
+    // The table entry it was sent for, if any, says how it is encoded.
+    public static final class Command {
+        public final String data;
+        public final CommandTable.Entry entry;
+        public final long id;
+        public final long issuedNanos;
+        
+        public Command(String data, long id, long issuedNanos) {
+            this(data, null, id, issuedNanos);
+        }
+        
+        public Command(String data, CommandTable.Entry entry, long id, long issuedNanos) {
+            this.data = data;
+            this.entry = entry;
+            this.id = id;
+            this.issuedNanos = issuedNanos;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Command && ((Command) other).data.equals(data);
+        }
+        
+        @Override
+        public int hashCode() {
+            return data.hashCode();
+        }
+        
+        @Override
+        public String toString() {
+            return data + "#" + id;
+        }
+    }
+    
+    private static final Map<String, Priority> DEFAULT_PRIORITIES = new HashMap<>();
+    static {
+        DEFAULT_PRIORITIES.put("STOP", Priority.SAFETY);
+        DEFAULT_PRIORITIES.put("MOVE_FORWARD", Priority.MOTION);
+        DEFAULT_PRIORITIES.put("MOVE_BACKWARD", Priority.MOTION);
+        DEFAULT_PRIORITIES.put("TURN_LEFT", Priority.MOTION);
+        DEFAULT_PRIORITIES.put("TURN_RIGHT", Priority.MOTION);
+    }
+    
+    private final Map<String, Priority> priorities = new ConcurrentHashMap<>(DEFAULT_PRIORITIES);
+    private final CommandQueue<Command> safetyLane;
+    private final AtomicReference<Command> motionSlot = new AtomicReference<>();
+    private final CommandQueue<Command> normalLane;
+    private volatile Thread consumer;
+    private volatile DropListener dropListener;
+    
+    private final AtomicLong supersededCount = new AtomicLong();
+    private final AtomicLong preemptedCount = new AtomicLong();
+    
+    public OutboundScheduler(int capacity, CommandQueue.OverflowPolicy overflowPolicy) {
+        this.safetyLane = new CommandQueue<>(capacity, CommandQueue.OverflowPolicy.COALESCE);
+        this.normalLane = new CommandQueue<>(capacity, overflowPolicy);
+        CommandQueue.OverflowListener<Command> overflow = new CommandQueue.OverflowListener<Command>() {
+            @Override
+            public void onOverflow(Command dropped) {
+                notifyDropped(dropped, DropReason.OVERFLOW);
+            }
+        };
+        safetyLane.setOverflowListener(overflow);
+        normalLane.setOverflowListener(overflow);
+    }
+    
+    public void setDropListener(DropListener listener) {
+        this.dropListener = listener;
+    }
+    
+    // What every scheduler starts with for the built-in commands, NORMAL for the rest
+    public static Priority getDefaultPriority(String command) {
+        Priority priority = DEFAULT_PRIORITIES.get(command);
+        return priority != null ? priority : Priority.NORMAL;
+    }
+    
+    public void setPriority(String command, Priority priority) {
+        priorities.put(command, priority);
+    }
+    
+    public Priority getPriority(String command) {
+        Priority priority = priorities.get(command);
+        return priority != null ? priority : Priority.NORMAL;
+    }
+    
+    public void offer(Command command) {
+        Command replaced;
+        switch (getPriority(command.data)) {
+            case SAFETY:
+                if (!safetyLane.offer(command)) {
+                    notifyDropped(command, DropReason.COALESCED);
+                }
+                // Whatever motion was pending is obsolete once the robot is told to stop
+                replaced = motionSlot.getAndSet(null);
+                if (replaced != null) {
+                    preemptedCount.incrementAndGet();
+                    notifyDropped(replaced, DropReason.PREEMPTED);
+                }
+                break;
+            case MOTION:
+                replaced = motionSlot.getAndSet(command);
+                if (replaced != null) {
+                    supersededCount.incrementAndGet();
+                    notifyDropped(replaced, DropReason.SUPERSEDED);
+                }
+                break;
+            default:
+                if (!normalLane.offer(command)) {
+                    notifyDropped(command, DropReason.COALESCED);
+                }
+                break;
+        }
+        
+        Thread waiting = consumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+    
+    public Command poll() {
+        Command command = safetyLane.poll();
+        if (command == null) {
+            command = motionSlot.getAndSet(null);
+        }
+        if (command == null) {
+            command = normalLane.poll();
+        }
+        return command;
+    }
+    
+    public Command poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(unit.toNanos(timeout));
+    }
+    
+    public Command take() throws InterruptedException {
+        return await(-1);
+    }
+    
+    private Command await(long timeoutNanos) throws InterruptedException {
+        Command command = poll();
+        if (command != null) {
+            return command;
+        }
+        
+        long deadline = System.nanoTime() + timeoutNanos;
+        consumer = Thread.currentThread();
+        try {
+            while ((command = poll()) == null) {
+                if (timeoutNanos < 0) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return command;
+        } finally {
+            consumer = null;
+        }
+    }
+    
+    public void clear() {
+        List<Command> cleared = new ArrayList<>();
+        safetyLane.drainTo(cleared);
+        Command motion = motionSlot.getAndSet(null);
+        if (motion != null) {
+            cleared.add(motion);
+        }
+        normalLane.drainTo(cleared);
+        for (int i = 0; i < cleared.size(); i++) {
+            notifyDropped(cleared.get(i), DropReason.CLEARED);
+        }
+    }
+    
+    private void notifyDropped(Command command, DropReason reason) {
+        DropListener l = dropListener;
+        if (l != null) {
+            l.onDropped(command, reason);
+        }
+    }
+    
+    public int getDepth() {
+        return safetyLane.getDepth() + (motionSlot.get() != null ? 1 : 0) + normalLane.getDepth();
+    }
+    
+    public int getMaxDepth() {
+        return normalLane.getMaxDepth();
+    }
+    
+    public long getDroppedCount() {
+        return safetyLane.getDroppedCount() + normalLane.getDroppedCount();
+    }
+    
+    public long getCoalescedCount() {
+        return safetyLane.getCoalescedCount() + normalLane.getCoalescedCount();
+    }
+    
+    // Motion commands replaced by a newer motion command before being sent
+    public long getSupersededCount() {
+        return supersededCount.get();
+    }
+    
+    // Motion commands discarded because a safety command arrived
+    public long getPreemptedCount() {
+        return preemptedCount.get();
+    }
+}
\ No newline at end of file
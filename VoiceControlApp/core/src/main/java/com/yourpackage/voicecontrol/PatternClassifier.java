@@ -0,0 +1,94 @@
+package com.yourpackage.voicecontrol;
+
+// Duration / amplitude / syllable signatures per command, scored by CommandMatcher. Can
+// also commit early once one command is clearly ahead of the rest.
+public class PatternClassifier implements UtteranceClassifier {
+    // Below this much audio the summary features are too unstable to decide on
+    private static final long MIN_SAMPLES = 1000;
+    
+    private final CommandMatcher commandMatcher;
+    private double earlyCommitMinScore = 0.85;
+    private double earlyCommitMinMargin = 0.1;
+    
+    public PatternClassifier() {
+        this(createDefaultMatcher());
+    }
+    
+    public PatternClassifier(CommandMatcher commandMatcher) {
+        this.commandMatcher = commandMatcher;
+    }
+    
+    public void setEarlyCommitThresholds(double minScore, double minMargin) {
+        this.earlyCommitMinScore = minScore;
+        this.earlyCommitMinMargin = minMargin;
+    }
+    
+    @Override
+    public String getName() {
+        return "patterns";
+    }
+    
+    @Override
+    public boolean classify(UtteranceFeatures features, RecognitionResult result) {
+        return commandMatcher.findMatches(features.getDuration(), features.getAverageAmplitude(),
+                features.getSyllables(), result);
+    }
+    
+    @Override
+    public boolean classifyPartial(UtteranceFeatures features, RecognitionResult result) {
+        if (features.getSampleCount() < MIN_SAMPLES) {
+            result.reset();
+            return false;
+        }
+        if (!commandMatcher.findMatches(features.getDuration(), features.getAverageAmplitude(),
+                features.getSyllables(), result)) {
+            return false;
+        }
+        if (result.getConfidence() < earlyCommitMinScore || result.getMargin() < earlyCommitMinMargin) {
+            result.reset();
+            return false;
+        }
+        return true;
+    }
+    
+    public static CommandMatcher createDefaultMatcher() {
+        CommandMatcher commandMatcher = new CommandMatcher();
+        
+        // "turn on" - 2 syllables, medium duration
+        CommandPattern turnOn = new CommandPattern("turn on");
+        turnOn.addSignature(0.8, 1.5, 1500, 3500, 2);
+        commandMatcher.addPattern("turn_on", turnOn);
+        
+        // "turn off" - 2 syllables, medium duration
+        CommandPattern turnOff = new CommandPattern("turn off");
+        turnOff.addSignature(0.8, 1.5, 1500, 3500, 2);
+        commandMatcher.addPattern("turn_off", turnOff);
+        
+        // "forward" - 2 syllables, medium duration
+        CommandPattern forward = new CommandPattern("forward");
+        forward.addSignature(0.6, 1.2, 2000, 4000, 2);
+        commandMatcher.addPattern("forward", forward);
+        
+        // "backward" - 2 syllables, medium duration
+        CommandPattern backward = new CommandPattern("backward");
+        backward.addSignature(0.7, 1.3, 2000, 4000, 2);
+        commandMatcher.addPattern("backward", backward);
+        
+        // "left" - 1 syllable, short duration
+        CommandPattern left = new CommandPattern("left");
+        left.addSignature(0.3, 0.8, 1800, 3500, 1);
+        commandMatcher.addPattern("left", left);
+        
+        // "right" - 1 syllable, short duration
+        CommandPattern right = new CommandPattern("right");
+        right.addSignature(0.3, 0.8, 1800, 3500, 1);
+        commandMatcher.addPattern("right", right);
+        
+        // "stop" - 1 syllable, short duration, sharp
+        CommandPattern stop = new CommandPattern("stop");
+        stop.addSignature(0.2, 0.7, 2500, 5000, 1);
+        commandMatcher.addPattern("stop", stop);
+        
+        return commandMatcher;
+    }
+}
\ No newline at end of file
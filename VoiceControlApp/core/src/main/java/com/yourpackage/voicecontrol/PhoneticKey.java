@@ -0,0 +1,181 @@
+package com.yourpackage.voicecontrol;
+
+// Sound-alike key of an English phrase, a reduced Metaphone applied word by word.
+public final class PhoneticKey {
+    private PhoneticKey() {
+    }
+    
+    public static String encode(String text) {
+        String word = text.toLowerCase();
+        StringBuilder key = new StringBuilder(word.length());
+        int start = -1;
+        for (int i = 0; i <= word.length(); i++) {
+            boolean letter = i < word.length() && Character.isLetterOrDigit(word.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (key.length() > 0) {
+                    key.append(' ');
+                }
+                encodeWord(word, start, i, key);
+                start = -1;
+            }
+        }
+        return key.toString();
+    }
+    
+    private static void encodeWord(String s, int start, int end, StringBuilder key) {
+        int i = start;
+        // Silent first letters
+        if (end - i >= 2) {
+            char first = s.charAt(i);
+            char second = s.charAt(i + 1);
+            if ((second == 'n' && (first == 'k' || first == 'g' || first == 'p'))
+                    || (first == 'w' && second == 'r') || (first == 'a' && second == 'e')) {
+                i++;
+            } else if (first == 'w' && second == 'h') {
+                key.append('w');
+                i += 2;
+            }
+        }
+        if (i < end && s.charAt(i) == 'x') {
+            key.append('s');
+            i++;
+        }
+        
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            char next = at(s, i + 1, end);
+            char previous = i > start ? s.charAt(i - 1) : 0;
+            if (c == previous && c != 'c') {
+                continue;
+            }
+            
+            switch (c) {
+                case 'a':
+                case 'e':
+                case 'i':
+                case 'o':
+                case 'u':
+                    if (i == start) {
+                        key.append('a');
+                    }
+                    break;
+                case 'b':
+                    if (!(previous == 'm' && i + 1 == end)) {
+                        key.append('b');
+                    }
+                    break;
+                case 'c':
+                    if (next == 'i' && at(s, i + 2, end) == 'a' || next == 'h') {
+                        key.append(previous == 's' && next == 'h' ? 'k' : 'x');
+                        if (next == 'h') {
+                            i++;
+                        }
+                    } else if (next == 'i' || next == 'e' || next == 'y') {
+                        if (previous != 's') {
+                            key.append('s');
+                        }
+                    } else {
+                        key.append('k');
+                    }
+                    break;
+                case 'd':
+                    if (next == 'g' && isSoft(at(s, i + 2, end))) {
+                        key.append('j');
+                        i++;
+                    } else {
+                        key.append('t');
+                    }
+                    break;
+                case 'g':
+                    if (next == 'h' && i + 2 < end && !isVowel(at(s, i + 2, end))) {
+                        // Silent as in "right"
+                        i++;
+                    } else if (next == 'h' && i + 2 == end) {
+                        key.append('f');
+                        i++;
+                    } else if (next == 'n' && (i + 2 == end || s.startsWith("ned", i + 1) && i + 4 == end)) {
+                        break;
+                    } else if (isSoft(next)) {
+                        key.append('j');
+                    } else {
+                        key.append('k');
+                    }
+                    break;
+                case 'h':
+                    if (isVowel(next) && "cgpst".indexOf(previous) < 0) {
+                        key.append('h');
+                    }
+                    break;
+                case 'k':
+                    if (previous != 'c') {
+                        key.append('k');
+                    }
+                    break;
+                case 'p':
+                    if (next == 'h') {
+                        key.append('f');
+                        i++;
+                    } else {
+                        key.append('p');
+                    }
+                    break;
+                case 'q':
+                    key.append('k');
+                    break;
+                case 's':
+                    if (next == 'h' || next == 'i' && (at(s, i + 2, end) == 'o' || at(s, i + 2, end) == 'a')) {
+                        key.append('x');
+                        if (next == 'h') {
+                            i++;
+                        }
+                    } else {
+                        key.append('s');
+                    }
+                    break;
+                case 't':
+                    if (next == 'i' && (at(s, i + 2, end) == 'o' || at(s, i + 2, end) == 'a')) {
+                        key.append('x');
+                    } else if (next == 'h') {
+                        key.append('0');
+                        i++;
+                    } else if (!(next == 'c' && at(s, i + 2, end) == 'h')) {
+                        key.append('t');
+                    }
+                    break;
+                case 'v':
+                    key.append('f');
+                    break;
+                case 'w':
+                case 'y':
+                    if (isVowel(next)) {
+                        key.append(c);
+                    }
+                    break;
+                case 'x':
+                    key.append("ks");
+                    break;
+                case 'z':
+                    key.append('s');
+                    break;
+                default:
+                    // f, j, l, m, n, r, digits and letters of other alphabets
+                    key.append(c);
+                    break;
+            }
+        }
+    }
+    
+    private static char at(String s, int i, int end) {
+        return i < end ? s.charAt(i) : 0;
+    }
+    
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+    
+    private static boolean isSoft(char c) {
+        return c == 'e' || c == 'i' || c == 'y';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.yourpackage.voicecontrol;
+
+// How regularly capture frames arrive. One thread writes; copyFrom() snapshots from any.
+public class ReadJitterStats {
+    // Odd while the writer is updating the fields below
+    private volatile int version;
+    volatile long expectedNanos;
+    volatile long frameCount;
+    volatile long lateFrames;
+    volatile double sumAbsNanos;
+    volatile double sumSquaresNanos;
+    volatile long maxAbsNanos;
+    
+    public void reset(long expectedNanos) {
+        version++;
+        this.expectedNanos = expectedNanos;
+        frameCount = 0;
+        lateFrames = 0;
+        sumAbsNanos = 0;
+        sumSquaresNanos = 0;
+        maxAbsNanos = 0;
+        version++;
+    }
+    
+    public void record(long intervalNanos) {
+        long deviation = Math.abs(intervalNanos - expectedNanos);
+        version++;
+        frameCount++;
+        sumAbsNanos += deviation;
+        sumSquaresNanos += (double) deviation * deviation;
+        maxAbsNanos = Math.max(maxAbsNanos, deviation);
+        // Half a frame late means the next frame was already waiting in the buffer
+        if (intervalNanos > expectedNanos + expectedNanos / 2) {
+            lateFrames++;
+        }
+        version++;
+    }
+    
+    // Retries until it has read other between two updates
+    public void copyFrom(ReadJitterStats other) {
+        while (true) {
+            int before = other.version;
+            if ((before & 1) == 0) {
+                long expected = other.expectedNanos;
+                long frames = other.frameCount;
+                long late = other.lateFrames;
+                double sumAbs = other.sumAbsNanos;
+                double sumSquares = other.sumSquaresNanos;
+                long maxAbs = other.maxAbsNanos;
+                if (other.version == before) {
+                    version++;
+                    expectedNanos = expected;
+                    frameCount = frames;
+                    lateFrames = late;
+                    sumAbsNanos = sumAbs;
+                    sumSquaresNanos = sumSquares;
+                    maxAbsNanos = maxAbs;
+                    version++;
+                    return;
+                }
+            }
+            Thread.yield();
+        }
+    }
+    
+    public long getFrameCount() {
+        return frameCount;
+    }
+    
+    public long getLateFrames() {
+        return lateFrames;
+    }
+    
+    public double getFrameMs() {
+        return expectedNanos / 1e6;
+    }
+    
+    public double getMeanJitterMs() {
+        return frameCount == 0 ? 0 : sumAbsNanos / frameCount / 1e6;
+    }
+    
+    public double getRmsJitterMs() {
+        return frameCount == 0 ? 0 : Math.sqrt(sumSquaresNanos / frameCount) / 1e6;
+    }
+    
+    public double getMaxJitterMs() {
+        return maxAbsNanos / 1e6;
+    }
+    
+    @Override
+    public String toString() {
+        return "ReadJitterStats{frame=" + getFrameMs() + "ms, frames=" + frameCount + ", late=" + lateFrames
+            + ", mean=" + getMeanJitterMs() + "ms, rms=" + getRmsJitterMs() + "ms, max=" + getMaxJitterMs() + "ms}";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.yourpackage.voicecontrol;
+
+// Power spectrum of a real signal from an N/2-point complex radix-2 FFT.
+public class RealFft {
+    private final int size;
+    private final int half;
+    private final int[] bitReverse;
+    private final float[] cos;
+    private final float[] sin;
+    private final float[] splitCos;
+    private final float[] splitSin;
+    private final float[] re;
+    private final float[] im;
+    
+    public RealFft(int size) {
+        if (size < 4 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two >= 4: " + size);
+        }
+        this.size = size;
+        this.half = size / 2;
+        this.re = new float[half];
+        this.im = new float[half];
+        
+        int bits = Integer.numberOfTrailingZeros(half);
+        bitReverse = new int[half];
+        for (int i = 0; i < half; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        
+        // Twiddles for the N/2-point complex FFT
+        cos = new float[half / 2];
+        sin = new float[half / 2];
+        for (int i = 0; i < half / 2; i++) {
+            double angle = -2 * Math.PI * i / half;
+            cos[i] = (float) Math.cos(angle);
+            sin[i] = (float) Math.sin(angle);
+        }
+        
+        // Twiddles for splitting the packed result into the N-point real spectrum
+        splitCos = new float[half + 1];
+        splitSin = new float[half + 1];
+        for (int k = 0; k <= half; k++) {
+            double angle = 2 * Math.PI * k / size;
+            splitCos[k] = (float) Math.cos(angle);
+            splitSin[k] = (float) Math.sin(angle);
+        }
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    // Writes |X[k]|^2 for k = 0..N/2 into power (length >= N/2 + 1)
+    public void powerSpectrum(float[] input, float[] power) {
+        // Pack even samples into the real part and odd samples into the imaginary part
+        for (int i = 0; i < half; i++) {
+            int j = bitReverse[i];
+            re[j] = input[2 * i];
+            im[j] = input[2 * i + 1];
+        }
+        
+        transform();
+        
+        for (int k = 0; k <= half; k++) {
+            int a = k == half ? 0 : k;
+            int b = k == 0 ? 0 : half - k;
+            float ar = re[a], ai = im[a];
+            float br = re[b], bi = im[b];
+            
+            float evenRe = (ar + br) * 0.5f;
+            float evenIm = (ai - bi) * 0.5f;
+            float oddRe = (ai + bi) * 0.5f;
+            float oddIm = (br - ar) * 0.5f;
+            
+            float c = splitCos[k];
+            float s = splitSin[k];
+            float xr = evenRe + c * oddRe + s * oddIm;
+            float xi = evenIm + c * oddIm - s * oddRe;
+            power[k] = xr * xr + xi * xi;
+        }
+    }
+    
+    private void transform() {
+        for (int length = 2; length <= half; length <<= 1) {
+            int step = half / length;
+            int halfLength = length >> 1;
+            for (int start = 0; start < half; start += length) {
+                for (int j = 0; j < halfLength; j++) {
+                    float wr = cos[j * step];
+                    float wi = sin[j * step];
+                    int p = start + j;
+                    int q = p + halfLength;
+                    float tr = re[q] * wr - im[q] * wi;
+                    float ti = re[q] * wi + im[q] * wr;
+                    re[q] = re[p] - tr;
+                    im[q] = im[p] - ti;
+                    re[p] += tr;
+                    im[p] += ti;
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
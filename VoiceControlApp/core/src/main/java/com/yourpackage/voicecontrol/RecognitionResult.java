@@ -0,0 +1,161 @@
+package com.yourpackage.voicecontrol;
+
+// Reusable N-best list of one recognition, best first, with its stage timings.
+// Not thread-safe; hand a copy() to other threads.
+public class RecognitionResult {
+    public static final int DEFAULT_CAPACITY = 3;
+    
+    final String[] commands;
+    final double[] scores;
+    final int[] commandIds;
+    int count;
+    private final RecognitionTimings timings = new RecognitionTimings();
+    
+    public RecognitionResult() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public RecognitionResult(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        commands = new String[capacity];
+        scores = new double[capacity];
+        commandIds = new int[capacity];
+    }
+    
+    public void reset() {
+        for (int i = 0; i < count; i++) {
+            commands[i] = null;
+        }
+        count = 0;
+    }
+    
+    // Keeps the command if it is among the best so far. A command offered again keeps its
+    // higher score, so each command appears once.
+    public void offer(String command, double score) {
+        int position = count;
+        for (int i = 0; i < count; i++) {
+            if (commands[i].equals(command)) {
+                if (scores[i] >= score) {
+                    return;
+                }
+                position = i;
+                break;
+            }
+        }
+        if (position == count) {
+            if (count < commands.length) {
+                count++;
+            } else if (score > scores[count - 1]) {
+                position = count - 1;
+            } else {
+                return;
+            }
+        }
+        while (position > 0 && scores[position - 1] < score) {
+            commands[position] = commands[position - 1];
+            scores[position] = scores[position - 1];
+            commandIds[position] = commandIds[position - 1];
+            position--;
+        }
+        commands[position] = command;
+        scores[position] = score;
+        commandIds[position] = CommandTable.NO_COMMAND;
+    }
+    
+    // Looks up the table id of every command, NO_COMMAND for those not configured
+    public void resolveCommandIds(CommandTable table) {
+        for (int i = 0; i < count; i++) {
+            commandIds[i] = table.idOf(commands[i]);
+        }
+    }
+    
+    public void copyFrom(RecognitionResult other) {
+        reset();
+        count = Math.min(other.count, commands.length);
+        System.arraycopy(other.commands, 0, commands, 0, count);
+        System.arraycopy(other.scores, 0, scores, 0, count);
+        System.arraycopy(other.commandIds, 0, commandIds, 0, count);
+        timings.copyFrom(other.timings);
+    }
+    
+    public RecognitionResult copy() {
+        RecognitionResult copy = new RecognitionResult(commands.length);
+        copy.copyFrom(this);
+        return copy;
+    }
+    
+    public int getCapacity() {
+        return commands.length;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public boolean isEmpty() {
+        return count == 0;
+    }
+    
+    public String getCommand(int rank) {
+        if (rank >= count) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + count);
+        }
+        return commands[rank];
+    }
+    
+    public double getScore(int rank) {
+        if (rank >= count) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + count);
+        }
+        return scores[rank];
+    }
+    
+    public int getCommandId(int rank) {
+        if (rank >= count) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + count);
+        }
+        return commandIds[rank];
+    }
+    
+    // Best command, or null if nothing matched
+    public String getCommand() {
+        return count > 0 ? commands[0] : null;
+    }
+    
+    public int getCommandId() {
+        return count > 0 ? commandIds[0] : CommandTable.NO_COMMAND;
+    }
+    
+    public double getConfidence() {
+        return count > 0 ? scores[0] : 0;
+    }
+    
+    // How far the best command is ahead of the next one; small when two commands sound alike
+    public double getMargin() {
+        return getConfidence() - (count > 1 ? scores[1] : 0);
+    }
+    
+    // Sure enough to act on: at least minConfidence, and ahead of the runner-up by minMargin.
+    // Two commands scored the same, like the built-in left and right patterns, never are.
+    public boolean isConfident(double minConfidence, double minMargin) {
+        return count > 0 && getConfidence() >= minConfidence && getMargin() >= minMargin;
+    }
+    
+    public RecognitionTimings getTimings() {
+        return timings;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("RecognitionResult{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(commands[i]).append('=').append(scores[i]);
+        }
+        return text.append('}').toString();
+    }
+}
\ No newline at end of file
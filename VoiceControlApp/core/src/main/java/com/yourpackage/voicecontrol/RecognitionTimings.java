@@ -0,0 +1,111 @@
+package com.yourpackage.voicecontrol;
+
+// Per-stage timestamps of one recognition: audio times in ms since listening started,
+// wall-clock times from System.nanoTime(). Unset stages are -1.
+public class RecognitionTimings {
+    long listenStartNanos = -1;
+    long speechStartNanos = -1;
+    long lastSpeechNanos = -1;
+    long decisionNanos = -1;
+    long speechStartAudioMs = -1;
+    long lastSpeechAudioMs = -1;
+    long decisionAudioMs = -1;
+    boolean earlyCommit;
+    
+    public void reset() {
+        listenStartNanos = -1;
+        speechStartNanos = -1;
+        lastSpeechNanos = -1;
+        decisionNanos = -1;
+        speechStartAudioMs = -1;
+        lastSpeechAudioMs = -1;
+        decisionAudioMs = -1;
+        earlyCommit = false;
+    }
+    
+    public void copyFrom(RecognitionTimings other) {
+        listenStartNanos = other.listenStartNanos;
+        speechStartNanos = other.speechStartNanos;
+        lastSpeechNanos = other.lastSpeechNanos;
+        decisionNanos = other.decisionNanos;
+        speechStartAudioMs = other.speechStartAudioMs;
+        lastSpeechAudioMs = other.lastSpeechAudioMs;
+        decisionAudioMs = other.decisionAudioMs;
+        earlyCommit = other.earlyCommit;
+    }
+    
+    public void markListenStart() {
+        listenStartNanos = System.nanoTime();
+    }
+    
+    public void markSpeech(long audioMs) {
+        long now = System.nanoTime();
+        if (speechStartNanos < 0) {
+            speechStartNanos = now;
+            speechStartAudioMs = audioMs;
+        }
+        lastSpeechNanos = now;
+        lastSpeechAudioMs = audioMs;
+    }
+    
+    public void markDecision(long audioMs, boolean early) {
+        decisionNanos = System.nanoTime();
+        decisionAudioMs = audioMs;
+        earlyCommit = early;
+    }
+    
+    public long getListenStartNanos() {
+        return listenStartNanos;
+    }
+    
+    public long getSpeechStartNanos() {
+        return speechStartNanos;
+    }
+    
+    public long getLastSpeechNanos() {
+        return lastSpeechNanos;
+    }
+    
+    public long getDecisionNanos() {
+        return decisionNanos;
+    }
+    
+    public long getSpeechStartAudioMs() {
+        return speechStartAudioMs;
+    }
+    
+    public long getLastSpeechAudioMs() {
+        return lastSpeechAudioMs;
+    }
+    
+    public long getDecisionAudioMs() {
+        return decisionAudioMs;
+    }
+    
+    public boolean isEarlyCommit() {
+        return earlyCommit;
+    }
+    
+    // Audio spent waiting after the last speech frame before deciding; the silence timeout
+    // shows up here, an early commit brings it to zero
+    public long getEndOfSpeechWaitMs() {
+        if (decisionAudioMs < 0 || lastSpeechAudioMs < 0) {
+            return -1;
+        }
+        return Math.max(0, decisionAudioMs - lastSpeechAudioMs);
+    }
+    
+    public long getSpeechToDecisionNanos() {
+        if (decisionNanos < 0 || speechStartNanos < 0) {
+            return -1;
+        }
+        return decisionNanos - speechStartNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return "RecognitionTimings{speechStart=" + speechStartAudioMs + "ms, lastSpeech=" + lastSpeechAudioMs
+            + "ms, decision=" + decisionAudioMs + "ms, endOfSpeechWait=" + getEndOfSpeechWaitMs()
+            + "ms, early=" + earlyCommit + "}";
+    }
+}
\ No newline at end of file
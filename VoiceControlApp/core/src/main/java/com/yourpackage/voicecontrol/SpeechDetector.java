@@ -0,0 +1,12 @@
+package com.yourpackage.voicecontrol;
+
+// VAD stage of the recognition pipeline. Fed every captured frame on the analysis thread.
+public interface SpeechDetector {
+    void reset();
+    
+    // Returns whether speech is in progress, including any hangover
+    boolean process(short[] samples, int offset, int length);
+    
+    // Whether the last frame itself carried speech, as opposed to being carried by the hangover
+    boolean isFrameActive();
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.yourpackage.voicecontrol;
+
+// Incremental version of AudioFeatures, with the same results over the same samples.
+public class StreamingFeatureExtractor {
+    private static final int SYLLABLE_WINDOW_MS = 100;
+    private static final double SYLLABLE_ONSET_ENERGY = 1000000;
+    private static final double SYLLABLE_OFFSET_ENERGY = 500000;
+    
+    private final int sampleRate;
+    private final int windowSize;
+    
+    private long sampleCount;
+    private double amplitudeSum;
+    private double windowSum;
+    private int windowIndex;
+    private boolean inSyllable;
+    private int syllables;
+    
+    public StreamingFeatureExtractor(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.windowSize = sampleRate * SYLLABLE_WINDOW_MS / 1000;
+    }
+    
+    public void reset() {
+        sampleCount = 0;
+        amplitudeSum = 0;
+        windowSum = 0;
+        windowIndex = 0;
+        inSyllable = false;
+        syllables = 0;
+    }
+    
+    public void accept(short[] samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            int sample = samples[i];
+            amplitudeSum += Math.abs(sample);
+            windowSum += (double) (sample * sample);
+            windowIndex++;
+            
+            if (windowIndex >= windowSize) {
+                double avgEnergy = windowSum / windowSize;
+                
+                if (avgEnergy > SYLLABLE_ONSET_ENERGY && !inSyllable) {
+                    syllables++;
+                    inSyllable = true;
+                } else if (avgEnergy < SYLLABLE_OFFSET_ENERGY) {
+                    inSyllable = false;
+                }
+                
+                windowSum = 0;
+                windowIndex = 0;
+            }
+        }
+        sampleCount += length;
+    }
+    
+    public long getSampleCount() {
+        return sampleCount;
+    }
+    
+    public double getDuration() {
+        return sampleCount / (double) sampleRate;
+    }
+    
+    public double getAverageAmplitude() {
+        return sampleCount == 0 ? 0 : amplitudeSum / sampleCount;
+    }
+    
+    public int getSyllables() {
+        return Math.max(1, syllables); // At least 1 syllable
+    }
+}
\ No newline at end of file
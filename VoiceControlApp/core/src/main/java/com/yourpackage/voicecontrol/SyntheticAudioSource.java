@@ -0,0 +1,119 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class SyntheticAudioSource implements AudioSource {
+    private final int sampleRate;
+    private final long seed;
+    private final List<Segment> segments = new ArrayList<>();
+    private Random random;
+    private int segmentIndex;
+    private int segmentPosition;
+    private double phase;
+    
+    private static class Segment {
+        final int length;
+        final double frequency;
+        final double toneAmplitude;
+        final double noiseAmplitude;
+        
+        Segment(int length, double frequency, double toneAmplitude, double noiseAmplitude) {
+            this.length = length;
+            this.frequency = frequency;
+            this.toneAmplitude = toneAmplitude;
+            this.noiseAmplitude = noiseAmplitude;
+        }
+    }
+    
+    public SyntheticAudioSource(int sampleRate, long seed) {
+        this.sampleRate = sampleRate;
+        this.seed = seed;
+    }
+    
+    public SyntheticAudioSource addSilence(int durationMs) {
+        return addSegment(durationMs, 0, 0, 0);
+    }
+    
+    public SyntheticAudioSource addNoise(double amplitude, int durationMs) {
+        return addSegment(durationMs, 0, 0, amplitude);
+    }
+    
+    public SyntheticAudioSource addTone(double frequency, double amplitude, int durationMs) {
+        return addSegment(durationMs, frequency, amplitude, 0);
+    }
+    
+    public SyntheticAudioSource addSegment(int durationMs, double frequency, double toneAmplitude, double noiseAmplitude) {
+        int length = (int) ((long) durationMs * sampleRate / 1000);
+        segments.add(new Segment(length, frequency, toneAmplitude, noiseAmplitude));
+        return this;
+    }
+    
+    public int getLengthInSamples() {
+        int total = 0;
+        for (Segment segment : segments) {
+            total += segment.length;
+        }
+        return total;
+    }
+    
+    @Override
+    public boolean start() {
+        random = new Random(seed);
+        segmentIndex = 0;
+        segmentPosition = 0;
+        phase = 0;
+        return true;
+    }
+    
+    @Override
+    public int read(short[] buffer, int offset, int length) {
+        int written = 0;
+        while (written < length && segmentIndex < segments.size()) {
+            Segment segment = segments.get(segmentIndex);
+            double step = 2 * Math.PI * segment.frequency / sampleRate;
+            int count = Math.min(length - written, segment.length - segmentPosition);
+            
+            for (int i = 0; i < count; i++) {
+                double value = segment.toneAmplitude * Math.sin(phase);
+                if (segment.noiseAmplitude > 0) {
+                    value += segment.noiseAmplitude * (random.nextDouble() * 2 - 1);
+                }
+                phase += step;
+                if (phase > 2 * Math.PI) {
+                    phase -= 2 * Math.PI;
+                }
+                buffer[offset + written + i] = clip(value);
+            }
+            
+            written += count;
+            segmentPosition += count;
+            if (segmentPosition >= segment.length) {
+                segmentIndex++;
+                segmentPosition = 0;
+            }
+        }
+        return written > 0 ? written : -1;
+    }
+    
+    @Override
+    public void stop() {
+        segmentIndex = segments.size();
+    }
+    
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    private static short clip(double value) {
+        if (value > Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        }
+        if (value < Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+        return (short) value;
+    }
+}
\ No newline at end of file
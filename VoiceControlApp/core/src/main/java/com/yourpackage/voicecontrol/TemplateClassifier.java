@@ -0,0 +1,80 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.List;
+
+// Matches the utterance's MFCC frames against user-recorded templates by DTW
+public class TemplateClassifier implements UtteranceClassifier {
+    // Per-frame DTW distance above which a recorded template is not considered a match
+    public static final float DEFAULT_MAX_DISTANCE = 30f;
+    
+    private final int dimension;
+    private float maxDistance = DEFAULT_MAX_DISTANCE;
+    // Replaced as a whole so the analysis thread always sees a complete set
+    private volatile DtwMatcher matcher;
+    private DtwMatcher.Match match = new DtwMatcher.Match(RecognitionResult.DEFAULT_CAPACITY);
+    
+    public TemplateClassifier(int dimension) {
+        this.dimension = dimension;
+    }
+    
+    public void setMaxDistance(float maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+    
+    // Replaces the templates; an empty list disables the classifier
+    public void setTemplates(List<CommandTemplate> templates) {
+        if (templates.isEmpty()) {
+            matcher = null;
+            return;
+        }
+        DtwMatcher replacement = new DtwMatcher(dimension);
+        replacement.setMaxDistance(maxDistance);
+        for (CommandTemplate template : templates) {
+            replacement.addTemplate(template);
+        }
+        matcher = replacement;
+    }
+    
+    public boolean hasTemplates() {
+        return matcher != null;
+    }
+    
+    @Override
+    public String getName() {
+        return "templates";
+    }
+    
+    @Override
+    public boolean classify(UtteranceFeatures features, RecognitionResult result) {
+        result.reset();
+        DtwMatcher current = matcher;
+        if (current == null) {
+            return false;
+        }
+        if (match.getCapacity() < result.getCapacity()) {
+            match = new DtwMatcher.Match(result.getCapacity());
+        }
+        if (!current.findBestMatch(features.getFrames(), features.getFrameCount(), match)) {
+            return false;
+        }
+        for (int i = 0; i < match.getCount(); i++) {
+            result.offer(match.getCommand(i), confidence(match.getDistance(i), current.getMaxDistance()));
+        }
+        return true;
+    }
+    
+    @Override
+    public boolean classifyPartial(UtteranceFeatures features, RecognitionResult result) {
+        // Needs the whole utterance
+        result.reset();
+        return false;
+    }
+    
+    // 1 for an exact match, falling to 0 at the distance where templates stop matching
+    private static double confidence(float distance, float maxDistance) {
+        if (Float.isInfinite(maxDistance)) {
+            return 1 / (1 + distance);
+        }
+        return Math.max(0, 1 - distance / maxDistance);
+    }
+}
\ No newline at end of file
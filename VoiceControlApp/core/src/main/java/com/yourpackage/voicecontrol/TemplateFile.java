@@ -0,0 +1,447 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Versioned binary store for recorded command templates, read through a memory mapping.
+// Layout, little-endian:
+//   header  magic "VCTP", u16 version, u8 encoding, u8 reserved, u16 dimension, u16 reserved,
+//           u32 command count, u32 template count, u32 index length, u32 data length,
+//           u32 CRC-32 of header bytes 0-27 plus index, u32 CRC-32 of data
+//   index   per command: u16 slot, u16 name length, UTF-8 name, u16 template count,
+//           then per template: u16 frame count, u32 offset into data
+//   data    FLOAT16: frameCount * dimension half floats
+//           INT8:    dimension float scales, then frameCount * dimension signed bytes
+public class TemplateFile {
+    public static final int MAGIC = 0x50544356; // "VCTP"
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 36;
+    private static final int INDEX_CRC_OFFSET = 28;
+    
+    public enum Encoding {
+        FLOAT16(1), INT8(2);
+        
+        final int id;
+        
+        Encoding(int id) {
+            this.id = id;
+        }
+        
+        static Encoding fromId(int id) {
+            for (Encoding encoding : values()) {
+                if (encoding.id == id) {
+                    return encoding;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private final File file;
+    private final MappedByteBuffer map;
+    private final Encoding encoding;
+    private final int dimension;
+    private final int dataStart;
+    private final int dataLength;
+    private final int indexCrc;
+    private final int dataCrc;
+    private boolean dataVerified;
+    
+    // Command index
+    private final int[] slots;
+    private final String[] names;
+    private final int[] firstTemplate;
+    private final int[] templateCounts;
+    private final int[] frameCounts;
+    private final int[] dataOffsets;
+    
+    private TemplateFile(File file, MappedByteBuffer map) throws IOException {
+        this.file = file;
+        this.map = map;
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        
+        if (map.limit() < HEADER_SIZE || map.getInt(0) != MAGIC) {
+            throw corrupt("not a template file");
+        }
+        int version = map.getShort(4) & 0xFFFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported template file version " + version + ": " + file);
+        }
+        encoding = Encoding.fromId(map.get(6) & 0xFF);
+        dimension = map.getShort(8) & 0xFFFF;
+        int commandCount = map.getInt(12);
+        int templateCount = map.getInt(16);
+        int indexLength = map.getInt(20);
+        dataLength = map.getInt(24);
+        indexCrc = map.getInt(INDEX_CRC_OFFSET);
+        dataCrc = map.getInt(32);
+        dataStart = HEADER_SIZE + indexLength;
+        
+        if (encoding == null || dimension == 0 || commandCount < 0 || templateCount < 0
+                || indexLength < 0 || dataLength < 0 || (long) HEADER_SIZE + indexLength + dataLength != map.limit()) {
+            throw corrupt("bad header");
+        }
+        
+        CRC32 crc = new CRC32();
+        update(crc, 0, INDEX_CRC_OFFSET);
+        update(crc, HEADER_SIZE, indexLength);
+        if ((int) crc.getValue() != indexCrc) {
+            throw corrupt("index checksum mismatch");
+        }
+        
+        slots = new int[commandCount];
+        names = new String[commandCount];
+        firstTemplate = new int[commandCount];
+        templateCounts = new int[commandCount];
+        frameCounts = new int[templateCount];
+        dataOffsets = new int[templateCount];
+        
+        int pos = HEADER_SIZE;
+        int template = 0;
+        try {
+            for (int c = 0; c < commandCount; c++) {
+                slots[c] = map.getShort(pos) & 0xFFFF;
+                int nameLength = map.getShort(pos + 2) & 0xFFFF;
+                byte[] name = new byte[nameLength];
+                ((ByteBuffer) map.duplicate().position(pos + 4)).get(name);
+                names[c] = new String(name, StandardCharsets.UTF_8);
+                pos += 4 + nameLength;
+                
+                int count = map.getShort(pos) & 0xFFFF;
+                pos += 2;
+                firstTemplate[c] = template;
+                templateCounts[c] = count;
+                for (int t = 0; t < count; t++, template++) {
+                    frameCounts[template] = map.getShort(pos) & 0xFFFF;
+                    dataOffsets[template] = map.getInt(pos + 2);
+                    pos += 6;
+                    long end = (long) dataOffsets[template] + blockLength(frameCounts[template]);
+                    if (dataOffsets[template] < 0 || end > dataLength) {
+                        throw corrupt("template data out of range");
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw corrupt("truncated index");
+        }
+        if (template != templateCount || pos != dataStart) {
+            throw corrupt("index size mismatch");
+        }
+    }
+    
+    // Maps the file and validates its header and command index
+    public static TemplateFile open(File file) throws IOException {
+        MappedByteBuffer map;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new TemplateFile(file, map);
+    }
+    
+    private IOException corrupt(String reason) {
+        return new IOException("Corrupt template file (" + reason + "): " + file);
+    }
+    
+    // CRC32.update(ByteBuffer) needs API 26, so checksum the mapping in small chunks
+    private void update(CRC32 crc, int offset, int length) {
+        ByteBuffer view = map.duplicate();
+        view.position(offset);
+        byte[] chunk = new byte[Math.min(length, 4096)];
+        while (length > 0) {
+            int count = Math.min(length, chunk.length);
+            view.get(chunk, 0, count);
+            crc.update(chunk, 0, count);
+            length -= count;
+        }
+    }
+    
+    private int blockLength(int frameCount) {
+        if (encoding == Encoding.FLOAT16) {
+            return frameCount * dimension * 2;
+        }
+        return dimension * 4 + frameCount * dimension;
+    }
+    
+    public Encoding getEncoding() {
+        return encoding;
+    }
+    
+    public int getDimension() {
+        return dimension;
+    }
+    
+    public int getCommandCount() {
+        return slots.length;
+    }
+    
+    public int getCommandSlot(int command) {
+        return slots[command];
+    }
+    
+    public String getCommandName(int command) {
+        return names[command];
+    }
+    
+    public int getTemplateCount(int command) {
+        return templateCounts[command];
+    }
+    
+    // Identifies the content without reading the frame data, e.g. to skip unchanged reloads
+    public long getChecksum() {
+        return ((long) indexCrc << 32) | (dataCrc & 0xFFFFFFFFL);
+    }
+    
+    public int getTotalTemplateCount() {
+        return frameCounts.length;
+    }
+    
+    // Index of the command stored for a slot, or -1
+    public int findSlot(int slot) {
+        for (int c = 0; c < slots.length; c++) {
+            if (slots[c] == slot) {
+                return c;
+            }
+        }
+        return -1;
+    }
+    
+    public void verifyData() throws IOException {
+        if (dataVerified) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        update(crc, dataStart, dataLength);
+        if ((int) crc.getValue() != dataCrc) {
+            throw corrupt("data checksum mismatch");
+        }
+        dataVerified = true;
+    }
+    
+    // Dequantizes one template straight from the mapping
+    public CommandTemplate loadTemplate(int command, int index) throws IOException {
+        verifyData();
+        int template = firstTemplate[command] + index;
+        int frameCount = frameCounts[template];
+        int pos = dataStart + dataOffsets[template];
+        float[] frames = new float[frameCount * dimension];
+        // Bulk copies out of the mapping are much cheaper than per-value absolute gets
+        ByteBuffer view = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.position(pos);
+        
+        if (encoding == Encoding.FLOAT16) {
+            short[] halves = new short[frames.length];
+            view.asShortBuffer().get(halves);
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = fromHalf(halves[i]);
+            }
+        } else {
+            float[] scales = new float[dimension];
+            view.asFloatBuffer().get(scales);
+            byte[] values = new byte[frames.length];
+            view.position(pos + dimension * 4);
+            view.get(values);
+            for (int i = 0; i < frames.length; i += dimension) {
+                for (int d = 0; d < dimension; d++) {
+                    frames[i + d] = values[i + d] * scales[d];
+                }
+            }
+        }
+        return new CommandTemplate(names[command], frames, frameCount, dimension);
+    }
+    
+    public List<CommandTemplate> loadTemplates() throws IOException {
+        List<CommandTemplate> templates = new ArrayList<>(frameCounts.length);
+        for (int c = 0; c < slots.length; c++) {
+            for (int t = 0; t < templateCounts[c]; t++) {
+                templates.add(loadTemplate(c, t));
+            }
+        }
+        return templates;
+    }
+    
+    // Builds a template file in memory and replaces the target atomically
+    public static class Writer {
+        private final int dimension;
+        private final Encoding encoding;
+        private final List<Integer> slots = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<List<CommandTemplate>> templates = new ArrayList<>();
+        
+        public Writer(int dimension, Encoding encoding) {
+            this.dimension = dimension;
+            this.encoding = encoding;
+        }
+        
+        public Writer addCommand(int slot, String command, List<CommandTemplate> commandTemplates) {
+            for (CommandTemplate template : commandTemplates) {
+                if (template.dimension != dimension) {
+                    throw new IllegalArgumentException("Template dimension " + template.dimension + " != " + dimension);
+                }
+                if (template.frameCount > 0xFFFF) {
+                    throw new IllegalArgumentException("Template too long: " + template.frameCount + " frames");
+                }
+            }
+            if (commandTemplates.size() > 0xFFFF) {
+                throw new IllegalArgumentException("Too many templates for " + command);
+            }
+            slots.add(slot);
+            names.add(command);
+            templates.add(new ArrayList<>(commandTemplates));
+            return this;
+        }
+        
+        public void write(File target) throws IOException {
+            int templateCount = 0;
+            int indexLength = 0;
+            int dataLength = 0;
+            byte[][] nameBytes = new byte[names.size()][];
+            for (int c = 0; c < names.size(); c++) {
+                nameBytes[c] = names.get(c).getBytes(StandardCharsets.UTF_8);
+                if (nameBytes[c].length > 0xFFFF) {
+                    throw new IllegalArgumentException("Command name too long");
+                }
+                indexLength += 6 + nameBytes[c].length;
+                for (CommandTemplate template : templates.get(c)) {
+                    indexLength += 6;
+                    dataLength += blockLength(template.frameCount);
+                    templateCount++;
+                }
+            }
+            
+            ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + indexLength + dataLength)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putShort((short) VERSION).put((byte) encoding.id).put((byte) 0)
+                    .putShort((short) dimension).putShort((short) 0)
+                    .putInt(names.size()).putInt(templateCount).putInt(indexLength).putInt(dataLength)
+                    .putInt(0).putInt(0);
+            
+            int dataStart = HEADER_SIZE + indexLength;
+            int dataOffset = 0;
+            for (int c = 0; c < names.size(); c++) {
+                out.putShort((short) (int) slots.get(c)).putShort((short) nameBytes[c].length).put(nameBytes[c]);
+                out.putShort((short) templates.get(c).size());
+                for (CommandTemplate template : templates.get(c)) {
+                    out.putShort((short) template.frameCount).putInt(dataOffset);
+                    writeBlock(out, dataStart + dataOffset, template);
+                    dataOffset += blockLength(template.frameCount);
+                }
+            }
+            
+            CRC32 crc = new CRC32();
+            crc.update(out.array(), 0, INDEX_CRC_OFFSET);
+            crc.update(out.array(), HEADER_SIZE, indexLength);
+            out.putInt(INDEX_CRC_OFFSET, (int) crc.getValue());
+            crc.reset();
+            crc.update(out.array(), dataStart, dataLength);
+            out.putInt(INDEX_CRC_OFFSET + 4, (int) crc.getValue());
+            
+            File temp = new File(target.getPath() + ".tmp");
+            try (FileOutputStream stream = new FileOutputStream(temp)) {
+                stream.write(out.array());
+                stream.getFD().sync();
+            }
+            if (!temp.renameTo(target)) {
+                temp.delete();
+                throw new IOException("Failed to replace " + target);
+            }
+        }
+        
+        private int blockLength(int frameCount) {
+            if (encoding == Encoding.FLOAT16) {
+                return frameCount * dimension * 2;
+            }
+            return dimension * 4 + frameCount * dimension;
+        }
+        
+        private void writeBlock(ByteBuffer out, int pos, CommandTemplate template) {
+            float[] frames = template.frames;
+            int length = template.frameCount * dimension;
+            if (encoding == Encoding.FLOAT16) {
+                for (int i = 0; i < length; i++) {
+                    out.putShort(pos + i * 2, toHalf(frames[i]));
+                }
+                return;
+            }
+            
+            // Symmetric per-dimension scale so every coefficient uses the full int8 range
+            for (int d = 0; d < dimension; d++) {
+                float max = 0;
+                for (int i = d; i < length; i += dimension) {
+                    max = Math.max(max, Math.abs(frames[i]));
+                }
+                float scale = max > 0 ? max / 127 : 1;
+                out.putFloat(pos + d * 4, scale);
+                for (int i = d; i < length; i += dimension) {
+                    out.put(pos + dimension * 4 + i, (byte) Math.round(frames[i] / scale));
+                }
+            }
+        }
+    }
+    
+    // IEEE 754 binary16 conversion, round to nearest even
+    static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+        
+        if (((bits >>> 23) & 0xFF) == 0xFF) {
+            // Infinity or NaN
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        if (exponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            // Subnormal half
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        
+        int half = (exponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            // May carry into the exponent, which correctly rounds up to the next power or infinity
+            half++;
+        }
+        return (short) (sign | half);
+    }
+    
+    static float fromHalf(short value) {
+        int bits = value & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        
+        if (exponent == 0) {
+            float magnitude = mantissa * 5.9604645e-8f; // 2^-24
+            return sign != 0 ? -magnitude : magnitude;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+}
\ No newline at end of file
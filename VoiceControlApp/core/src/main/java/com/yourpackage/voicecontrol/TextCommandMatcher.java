@@ -0,0 +1,215 @@
+package com.yourpackage.voicecontrol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Finds the command meant by recognized text by exact phrase, phonetic key or a BK-tree
+// search within a few edits. Immutable and safe to share between threads.
+public final class TextCommandMatcher {
+    public static final double PHONETIC_SCORE = 0.9;
+    private static final int NONE = -1;
+    
+    // Phrase i answers with command labels[i]
+    private final String[] terms;
+    private final String[] labels;
+    private final Map<String, Integer> byTerm = new HashMap<>();
+    // Phrases sharing a key are chained through nextSameKey
+    private final Map<String, Integer> byKey = new HashMap<>();
+    private final int[] nextSameKey;
+    // BK-tree, node i holds phrase i; children are chained through nextSibling
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] edgeDistance;
+    private final int[] maxChildEdge;
+    
+    public static class Builder {
+        private final List<String> terms = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+        
+        // Text that means the command spelled label; a later phrase with the same
+        // normalized text replaces the earlier one
+        public Builder add(String phrase, String label) {
+            String term = normalize(phrase);
+            if (term.isEmpty()) {
+                return this;
+            }
+            Integer existing = index.get(term);
+            if (existing != null) {
+                labels.set(existing, label);
+            } else {
+                index.put(term, terms.size());
+                terms.add(term);
+                labels.add(label);
+            }
+            return this;
+        }
+        
+        public TextCommandMatcher build() {
+            return new TextCommandMatcher(terms.toArray(new String[0]), labels.toArray(new String[0]));
+        }
+    }
+    
+    private TextCommandMatcher(String[] terms, String[] labels) {
+        this.terms = terms;
+        this.labels = labels;
+        nextSameKey = new int[terms.length];
+        firstChild = new int[terms.length];
+        nextSibling = new int[terms.length];
+        edgeDistance = new int[terms.length];
+        maxChildEdge = new int[terms.length];
+        
+        for (int i = 0; i < terms.length; i++) {
+            byTerm.put(terms[i], i);
+            
+            Integer sameKey = byKey.put(PhoneticKey.encode(terms[i]), i);
+            nextSameKey[i] = sameKey != null ? sameKey : NONE;
+            
+            firstChild[i] = NONE;
+            nextSibling[i] = NONE;
+            if (i > 0) {
+                insert(i, new int[terms[i].length() + 2], new int[terms[i].length() + 2]);
+            }
+        }
+    }
+    
+    private void insert(int node, int[] previous, int[] current) {
+        String term = terms[node];
+        int parent = 0;
+        while (true) {
+            int limit = Math.max(terms[parent].length(), term.length());
+            int distance = distance(terms[parent], term, limit, previous, current);
+            int child = firstChild[parent];
+            while (child != NONE && edgeDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child == NONE) {
+                edgeDistance[node] = distance;
+                nextSibling[node] = firstChild[parent];
+                firstChild[parent] = node;
+                maxChildEdge[parent] = Math.max(maxChildEdge[parent], distance);
+                return;
+            }
+            parent = child;
+        }
+    }
+    
+    // Lowercase words separated by single spaces, punctuation dropped
+    public static String normalize(String text) {
+        StringBuilder term = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (space && term.length() > 0) {
+                    term.append(' ');
+                }
+                term.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return term.toString();
+    }
+    
+    // Edits tolerated for text of this length: none for short words, where one edit
+    // already makes a different word, up to three for long phrases
+    public static int maxEdits(int length) {
+        return length < 4 ? 0 : Math.min(3, length / 4);
+    }
+    
+    public int size() {
+        return terms.length;
+    }
+    
+    // Offers the labels of the commands the text may mean to result, best first. Returns
+    // false if none is close enough.
+    public boolean match(String text, RecognitionResult result) {
+        result.reset();
+        String query = normalize(text);
+        if (query.isEmpty() || terms.length == 0) {
+            return false;
+        }
+        
+        Integer exact = byTerm.get(query);
+        if (exact != null) {
+            result.offer(labels[exact], 1);
+        }
+        
+        Integer sameKey = byKey.get(PhoneticKey.encode(query));
+        for (int i = sameKey != null ? sameKey : NONE; i != NONE; i = nextSameKey[i]) {
+            result.offer(labels[i], PHONETIC_SCORE);
+        }
+        
+        int bound = maxEdits(query.length());
+        if (bound > 0 && exact == null) {
+            search(query, bound, result);
+        }
+        return !result.isEmpty();
+    }
+    
+    private void search(String query, int bound, RecognitionResult result) {
+        int rowLength = query.length() + 2;
+        int[] previous = new int[rowLength];
+        int[] current = new int[rowLength];
+        int[] stack = new int[terms.length];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            // Pruning needs the exact distance, unless it is too large for any child edge to be
+            // within bound of it
+            int distance = distance(terms[node], query, maxChildEdge[node] + bound, previous, current);
+            if (distance <= bound) {
+                int length = Math.max(query.length(), terms[node].length());
+                result.offer(labels[node], 1 - (double) distance / length);
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (Math.abs(edgeDistance[child] - distance) <= bound) {
+                    stack[top++] = child;
+                }
+            }
+        }
+    }
+    
+    // Levenshtein distance of a and b, or limit + 1 if it is larger than limit. Only cells
+    // within limit of the diagonal are computed. The rows need b.length() + 2 entries.
+    static int distance(String a, String b, int limit, int[] previous, int[] current) {
+        int m = a.length();
+        int n = b.length();
+        int outside = limit + 1;
+        if (Math.abs(m - n) > limit) {
+            return outside;
+        }
+        int band = Math.min(n, limit);
+        for (int j = 0; j <= band; j++) {
+            previous[j] = j;
+        }
+        previous[band + 1] = outside;
+        
+        for (int i = 1; i <= m; i++) {
+            char c = a.charAt(i - 1);
+            int from = Math.max(1, i - limit);
+            int to = Math.min(n, i + limit);
+            current[from - 1] = from == 1 ? i : outside;
+            int rowMin = current[from - 1];
+            for (int j = from; j <= to; j++) {
+                int cost = c == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            current[to + 1] = outside;
+            if (rowMin > limit) {
+                return outside;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[n], outside);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Opens byte-stream connections to a device; RFCOMM on Android, plain sockets or
+// in-memory streams off-device
+public interface Transport {
+    interface Connection extends Closeable {
+        OutputStream getOutputStream() throws IOException;
+        InputStream getInputStream() throws IOException;
+        boolean isConnected();
+    }
+    
+    Connection connect(String address) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.yourpackage.voicecontrol;
+
+// Classifier stage of the recognition pipeline. Called on the analysis thread only, so
+// implementations can keep reusable scratch state.
+public interface UtteranceClassifier {
+    String getName();
+    
+    // Fills result with the best commands for a finished utterance, best first, with a 0..1
+    // confidence each. Returns false and leaves it empty if nothing matched well enough.
+    boolean classify(UtteranceFeatures features, RecognitionResult result);
+    
+    // Same while speech is still arriving, but only if one command is already clearly ahead.
+    // Only the summary features are up to date at this point.
+    boolean classifyPartial(UtteranceFeatures features, RecognitionResult result);
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.yourpackage.voicecontrol;
+
+// Everything the classifiers look at, computed once per utterance as speech frames arrive.
+public class UtteranceFeatures implements FrameQueue.Sink {
+    private final StreamingFeatureExtractor summary;
+    private final MfccExtractor mfcc;
+    private final FeatureRecorder frames;
+    
+    public UtteranceFeatures(int sampleRate, int maxUtteranceMs) {
+        this(sampleRate, new MfccExtractor(sampleRate), maxUtteranceMs);
+    }
+    
+    public UtteranceFeatures(int sampleRate, MfccExtractor mfcc, int maxUtteranceMs) {
+        this.summary = new StreamingFeatureExtractor(sampleRate);
+        this.mfcc = mfcc;
+        int maxFrames = maxUtteranceMs * sampleRate / 1000 / mfcc.getHopLength();
+        this.frames = new FeatureRecorder(maxFrames, mfcc.getNumCoefficients());
+        mfcc.setFrameListener(frames);
+    }
+    
+    public void reset() {
+        summary.reset();
+        mfcc.reset();
+        frames.reset();
+    }
+    
+    @Override
+    public void accept(short[] samples, int offset, int length) {
+        summary.accept(samples, offset, length);
+        mfcc.accept(samples, offset, length);
+    }
+    
+    // End of utterance: cepstral mean normalization of the collected frames
+    public void finish() {
+        frames.normalize();
+    }
+    
+    public long getSampleCount() {
+        return summary.getSampleCount();
+    }
+    
+    public double getDuration() {
+        return summary.getDuration();
+    }
+    
+    public double getAverageAmplitude() {
+        return summary.getAverageAmplitude();
+    }
+    
+    public int getSyllables() {
+        return summary.getSyllables();
+    }
+    
+    public float[] getFrames() {
+        return frames.getFrames();
+    }
+    
+    public int getFrameCount() {
+        return frames.getFrameCount();
+    }
+    
+    public int getDimension() {
+        return frames.getDimension();
+    }
+    
+    public CommandTemplate toTemplate(String command) {
+        return frames.toTemplate(command);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.yourpackage.voicecontrol;
+
+// Frame-by-frame voice activity detector with an adaptive noise floor, onset time and
+// hangover.
+public class VoiceActivityDetector implements SpeechDetector {
+    public static final double DEFAULT_ONSET_DB = 10;
+    public static final double DEFAULT_OFFSET_DB = 6;
+    public static final int DEFAULT_ONSET_MS = 30;
+    public static final int DEFAULT_HANGOVER_MS = 200;
+    public static final double DEFAULT_MIN_SPEECH_RMS = 200;
+    // Voiced speech crosses zero far less often than hiss or broadband noise (about 0.5)
+    public static final double DEFAULT_MAX_ONSET_ZCR = 0.35;
+    // Below this the "sound" is a thump or rumble rather than a voice
+    private static final double MIN_ONSET_ZCR = 0.01;
+    
+    private static final double MIN_NOISE_FLOOR = 100; // mean square, RMS 10
+    private static final double FLOOR_FALL_SECONDS = 0.1;
+    private static final double FLOOR_RISE_DB_PER_SECOND = 6;
+    private static final double FLOOR_RISE_IN_SPEECH_DB_PER_SECOND = 2;
+    
+    private final int sampleRate;
+    private double onsetRatio = Math.pow(10, DEFAULT_ONSET_DB / 10);
+    private double offsetRatio = Math.pow(10, DEFAULT_OFFSET_DB / 10);
+    private double minOnsetEnergy = DEFAULT_MIN_SPEECH_RMS * DEFAULT_MIN_SPEECH_RMS;
+    private double maxOnsetZcr = DEFAULT_MAX_ONSET_ZCR;
+    private int onsetSamples;
+    private int hangoverSamples;
+    
+    // Smoothing factors for the last frame length, recomputed only when it changes
+    private int cachedLength = -1;
+    private double fallAlpha;
+    private double riseFactor;
+    private double riseInSpeechFactor;
+    
+    private boolean initialized;
+    private double noiseFloor;
+    private boolean speech;
+    private boolean frameActive;
+    private int onsetCount;
+    private int hangoverLeft;
+    private double energy;
+    private double zeroCrossingRate;
+    private long speechStarts;
+    
+    public VoiceActivityDetector(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.onsetSamples = sampleRate * DEFAULT_ONSET_MS / 1000;
+        this.hangoverSamples = sampleRate * DEFAULT_HANGOVER_MS / 1000;
+        reset();
+    }
+    
+    // Onset and offset levels in dB above the noise floor; offset should be the lower one
+    public void setThresholds(double onsetDb, double offsetDb) {
+        this.onsetRatio = Math.pow(10, onsetDb / 10);
+        this.offsetRatio = Math.pow(10, offsetDb / 10);
+    }
+    
+    // Absolute level speech must reach regardless of how quiet the room is
+    public void setMinSpeechRms(double rms) {
+        this.minOnsetEnergy = rms * rms;
+    }
+    
+    public void setMaxOnsetZeroCrossingRate(double rate) {
+        this.maxOnsetZcr = rate;
+    }
+    
+    public void setOnsetMs(int ms) {
+        this.onsetSamples = sampleRate * ms / 1000;
+    }
+    
+    public void setHangoverMs(int ms) {
+        this.hangoverSamples = sampleRate * ms / 1000;
+    }
+    
+    @Override
+    public void reset() {
+        initialized = false;
+        noiseFloor = MIN_NOISE_FLOOR;
+        speech = false;
+        frameActive = false;
+        onsetCount = 0;
+        hangoverLeft = 0;
+        energy = 0;
+        zeroCrossingRate = 0;
+    }
+    
+    // Feeds one frame and returns whether speech is in progress (including hangover)
+    @Override
+    public boolean process(short[] samples, int offset, int length) {
+        if (length <= 0) {
+            return speech;
+        }
+        
+        double sum = 0;
+        int crossings = 0;
+        int previous = samples[offset];
+        for (int i = offset; i < offset + length; i++) {
+            int sample = samples[i];
+            sum += (double) (sample * sample);
+            if ((sample ^ previous) < 0) {
+                crossings++;
+            }
+            previous = sample;
+        }
+        energy = sum / length;
+        zeroCrossingRate = (double) crossings / length;
+        
+        if (length != cachedLength) {
+            double seconds = (double) length / sampleRate;
+            fallAlpha = 1 - Math.exp(-seconds / FLOOR_FALL_SECONDS);
+            riseFactor = Math.pow(10, FLOOR_RISE_DB_PER_SECOND * seconds / 10);
+            riseInSpeechFactor = Math.pow(10, FLOOR_RISE_IN_SPEECH_DB_PER_SECOND * seconds / 10);
+            cachedLength = length;
+        }
+        
+        if (!initialized) {
+            noiseFloor = Math.max(energy, MIN_NOISE_FLOOR);
+            initialized = true;
+        }
+        
+        if (speech) {
+            frameActive = energy > Math.max(noiseFloor * offsetRatio, minOnsetEnergy / 4);
+            if (frameActive) {
+                hangoverLeft = hangoverSamples;
+            } else {
+                hangoverLeft -= length;
+                if (hangoverLeft <= 0) {
+                    speech = false;
+                    onsetCount = 0;
+                }
+            }
+        } else {
+            frameActive = energy > Math.max(noiseFloor * onsetRatio, minOnsetEnergy)
+                    && zeroCrossingRate >= MIN_ONSET_ZCR && zeroCrossingRate <= maxOnsetZcr;
+            if (frameActive) {
+                onsetCount += length;
+                if (onsetCount >= onsetSamples) {
+                    speech = true;
+                    hangoverLeft = hangoverSamples;
+                    speechStarts++;
+                }
+            } else {
+                onsetCount = 0;
+            }
+        }
+        
+        // Moving minimum: follow quieter frames quickly, louder ones only slowly
+        if (energy < noiseFloor) {
+            noiseFloor += (energy - noiseFloor) * fallAlpha;
+        } else {
+            noiseFloor = Math.min(energy, noiseFloor * (speech ? riseInSpeechFactor : riseFactor));
+        }
+        noiseFloor = Math.max(noiseFloor, MIN_NOISE_FLOOR);
+        
+        return speech;
+    }
+    
+    public boolean isSpeech() {
+        return speech;
+    }
+    
+    // Whether the last frame itself was above the threshold for the current state, as
+    // opposed to being carried by the hangover
+    @Override
+    public boolean isFrameActive() {
+        return frameActive;
+    }
+    
+    public double getNoiseFloorRms() {
+        return Math.sqrt(noiseFloor);
+    }
+    
+    public double getEnergy() {
+        return Math.sqrt(energy);
+    }
+    
+    public double getZeroCrossingRate() {
+        return zeroCrossingRate;
+    }
+    
+    public long getSpeechStartCount() {
+        return speechStarts;
+    }
+}
\ No newline at end of file
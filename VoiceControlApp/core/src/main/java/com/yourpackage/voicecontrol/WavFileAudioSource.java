@@ -0,0 +1,107 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+public class WavFileAudioSource implements AudioSource {
+    private static final int FORMAT_PCM = 1;
+    
+    private final int sampleRate;
+    private final ShortBuffer samples;
+    
+    public WavFileAudioSource(File file, int expectedSampleRate) throws IOException {
+        MappedByteBuffer map;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        
+        if (map.remaining() < 12 || map.getInt(0) != 0x46464952 || map.getInt(8) != 0x45564157) {
+            throw new IOException("Not a RIFF/WAVE file: " + file);
+        }
+        
+        int format = -1, channels = -1, rate = -1, bitsPerSample = -1;
+        int dataOffset = -1, dataLength = -1;
+        int pos = 12;
+        while (pos + 8 <= map.limit()) {
+            int chunkId = map.getInt(pos);
+            // Sizes are unsigned 32-bit
+            long chunkSize = map.getInt(pos + 4) & 0xFFFFFFFFL;
+            int body = pos + 8;
+            long available = map.limit() - body;
+            if (chunkId == 0x61746164) { // "data"
+                // Recorders that were cut off leave the size too large, or 0xFFFFFFFF while streaming
+                dataOffset = body;
+                dataLength = (int) Math.min(chunkSize, available);
+                break;
+            }
+            if (chunkSize > available) {
+                throw new IOException("Chunk at " + pos + " claims " + chunkSize + " bytes, "
+                    + available + " left: " + file);
+            }
+            if (chunkId == 0x20746d66) { // "fmt "
+                if (chunkSize < 16) {
+                    throw new IOException("Truncated fmt chunk (" + chunkSize + " bytes): " + file);
+                }
+                format = map.getShort(body) & 0xFFFF;
+                channels = map.getShort(body + 2) & 0xFFFF;
+                rate = map.getInt(body + 4);
+                bitsPerSample = map.getShort(body + 14) & 0xFFFF;
+            }
+            pos = (int) (body + chunkSize + (chunkSize & 1));
+        }
+        
+        if (format != FORMAT_PCM || channels != 1 || bitsPerSample != 16) {
+            throw new IOException("Expected 16-bit mono PCM, got format=" + format
+                + " channels=" + channels + " bits=" + bitsPerSample);
+        }
+        if (rate != expectedSampleRate) {
+            throw new IOException("Expected " + expectedSampleRate + " Hz, got " + rate + " Hz");
+        }
+        if (dataOffset < 0) {
+            throw new IOException("Missing data chunk: " + file);
+        }
+        
+        map.position(dataOffset);
+        map.limit(dataOffset + (dataLength & ~1));
+        this.samples = map.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        this.sampleRate = rate;
+    }
+    
+    @Override
+    public boolean start() {
+        samples.rewind();
+        return true;
+    }
+    
+    @Override
+    public int read(short[] buffer, int offset, int length) {
+        int count = Math.min(length, samples.remaining());
+        if (count <= 0) {
+            return -1;
+        }
+        samples.get(buffer, offset, count);
+        return count;
+    }
+    
+    @Override
+    public void stop() {
+        // Nothing to release, the mapping is reused on the next start()
+    }
+    
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public int getLengthInSamples() {
+        return samples.capacity();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+// AudioFramer over a scripted source that returns odd-sized chunks, empty reads and an
+// early end: frames come out whole and in order, and empty reads cost a backoff, not a spin.
+public class AudioFramerTest {
+    private static final int SAMPLE_RATE = 16000;
+    
+    private final AudioFramer framer = new AudioFramer(SAMPLE_RATE, 10);
+    private final int frameSamples = framer.getFrameSamples();
+    
+    @Test
+    public void finishesFramesInterruptedByEmptyReads() {
+        // 3.5 frames in chunks of 70, with an empty read after every second chunk
+        ScriptedSource source = new ScriptedSource(frameSamples * 7 / 2, 70, 2);
+        short[] buffer = new short[frameSamples];
+        int next = 0;
+        int frames = 0;
+        int empty = 0;
+        int read;
+        while ((read = framer.readFrame(source, buffer, 0)) >= 0) {
+            if (read == 0) {
+                empty++;
+                continue;
+            }
+            assertEquals(frameSamples, read);
+            for (int i = 0; i < frameSamples; i++) {
+                assertEquals(next++, buffer[i]);
+            }
+            frames++;
+        }
+        // The half frame before the end is dropped
+        assertEquals(3, frames);
+        assertTrue(empty > 0);
+    }
+    
+    @Test
+    public void startsOverWhenTheBufferChanges() {
+        ScriptedSource source = new ScriptedSource(frameSamples * 2, frameSamples / 2, 1);
+        short[] first = new short[frameSamples];
+        short[] second = new short[frameSamples];
+        assertEquals(0, framer.readFrame(source, first, 0));
+        // The half frame read into first is given up
+        int read;
+        while ((read = framer.readFrame(source, second, 0)) == 0) {
+            // Empty reads between chunks
+        }
+        assertEquals(frameSamples, read);
+        assertEquals(frameSamples / 2, second[0]);
+    }
+    
+    @Test
+    public void backsOffWhileTheSourceHasNothing() {
+        ScriptedSource source = new ScriptedSource(0, 1, 0);
+        short[] buffer = new short[frameSamples];
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < 100000000L) {
+            assertEquals(0, framer.readFrame(source, buffer, 0));
+        }
+        // Backing off to a frame (10 ms) allows about a dozen polls in 100 ms
+        assertTrue("polled " + source.reads + " times", source.reads < 30);
+    }
+    
+    @Test
+    public void jitterSnapshotsAreConsistentWhileFramesArrive() throws Exception {
+        final ReadJitterStats stats = new ReadJitterStats();
+        final long frameNanos = 10000000;
+        stats.reset(frameNanos);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        // Every frame is 1 us late, so the sums follow from the count
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    stats.record(frameNanos + 1000);
+                }
+            }
+        });
+        writer.start();
+        ReadJitterStats copy = new ReadJitterStats();
+        long deadline = System.nanoTime() + 200000000L;
+        long snapshots = 0;
+        try {
+            while (System.nanoTime() < deadline) {
+                copy.copyFrom(stats);
+                long frames = copy.getFrameCount();
+                assertEquals(frames * 1000.0, copy.sumAbsNanos, 0);
+                assertEquals(frames * 1000000.0, copy.sumSquaresNanos, 0);
+                assertEquals(frames > 0 ? 1000 : 0, copy.maxAbsNanos);
+                assertEquals(0, copy.getLateFrames());
+                snapshots++;
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+        assertTrue(snapshots > 0);
+        assertTrue(copy.getFrameCount() > 0);
+    }
+    
+    // Counts up from 0, chunk samples per read; emptyEvery > 0 puts an empty read after that
+    // many chunks. Never ends when total is 0.
+    private static class ScriptedSource implements AudioSource {
+        private final int total;
+        private final int chunk;
+        private final int emptyEvery;
+        private int position;
+        private int chunks;
+        int reads;
+        
+        ScriptedSource(int total, int chunk, int emptyEvery) {
+            this.total = total;
+            this.chunk = chunk;
+            this.emptyEvery = emptyEvery;
+        }
+        
+        @Override
+        public boolean start() {
+            return true;
+        }
+        
+        @Override
+        public int read(short[] buffer, int offset, int length) {
+            reads++;
+            if (total == 0) {
+                return 0;
+            }
+            if (position >= total) {
+                return -1;
+            }
+            if (emptyEvery > 0 && chunks == emptyEvery) {
+                chunks = 0;
+                return 0;
+            }
+            chunks++;
+            int n = Math.min(Math.min(length, chunk), total - position);
+            for (int i = 0; i < n; i++) {
+                buffer[offset + i] = (short) position++;
+            }
+            return n;
+        }
+        
+        @Override
+        public void stop() {
+        }
+        
+        @Override
+        public int getSampleRate() {
+            return SAMPLE_RATE;
+        }
+    }
+}
\ No newline at end of file
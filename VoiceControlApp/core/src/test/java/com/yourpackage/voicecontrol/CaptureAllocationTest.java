@@ -0,0 +1,77 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.junit.Test;
+
+// The capture path runs for every 10-20 ms of audio, so once warmed up it must not allocate:
+// frames are read into the preallocated FrameQueue and folded into the features in place.
+public class CaptureAllocationTest {
+    private static final int SAMPLE_RATE = 16000;
+    
+    private final SyntheticAudioSource source = new SyntheticAudioSource(SAMPLE_RATE, 7)
+        .addSilence(300)
+        .addSegment(400, 180, 3000, 400)
+        .addSegment(400, 240, 2500, 400)
+        .addSilence(900);
+    private final AudioFramer framer = new AudioFramer(SAMPLE_RATE, 20);
+    private final FrameQueue queue = new FrameQueue(framer.getFrameSamples(), 50, 10);
+    private final VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE);
+    private final UtteranceFeatures features = new UtteranceFeatures(SAMPLE_RATE, 4000);
+    
+    @Test
+    public void steadyStateCaptureAllocatesNothing() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        
+        // The first pass loads classes and sizes the buffers
+        capture();
+        capture();
+        
+        source.start();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        int frames = captureStarted();
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+        
+        assertTrue(frames > 90);
+        assertTrue(features.getSampleCount() > 0);
+        assertEquals(0, allocated);
+    }
+    
+    private void capture() {
+        source.start();
+        captureStarted();
+    }
+    
+    // Capture thread and analysis thread steps interleaved on one thread
+    private int captureStarted() {
+        queue.reset();
+        framer.reset();
+        vad.reset();
+        features.reset();
+        int frames = 0;
+        while (true) {
+            int slot = queue.claim();
+            int read = framer.readFrame(source, queue.array(), slot);
+            if (read < 0) {
+                return frames;
+            }
+            if (read == 0) {
+                continue;
+            }
+            queue.publish(read);
+            
+            int frame = queue.poll();
+            if (vad.process(queue.array(), frame, queue.length()) && vad.isFrameActive()) {
+                features.accept(queue.array(), frame, queue.length());
+            }
+            frames++;
+        }
+    }
+}
\ No newline at end of file
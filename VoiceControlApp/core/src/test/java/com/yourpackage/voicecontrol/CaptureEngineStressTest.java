@@ -0,0 +1,322 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+// CaptureEngine and its FrameQueue under concurrent start()/stop() from several threads,
+// against a fake source that numbers its frames. Every frame must arrive whole and in order,
+// every frame read is either analyzed or counted as dropped, every opened source is stopped
+// exactly once, and sessions never overlap.
+public class CaptureEngineStressTest {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 300;
+    private static final int QUEUE_FRAMES = 1000 / CaptureEngine.DEFAULT_FRAME_MS;
+    
+    private final CaptureEngine engine = new CaptureEngine(SAMPLE_RATE);
+    private final int frameSamples = SAMPLE_RATE * CaptureEngine.DEFAULT_FRAME_MS / 1000;
+    private final AtomicReference<String> failure = new AtomicReference<>();
+    
+    @After
+    public void tearDown() {
+        engine.release();
+    }
+    
+    @Test
+    public void survivesConcurrentStartAndStop() throws Exception {
+        final List<CountingSource> sources = new ArrayList<>();
+        final AtomicInteger started = new AtomicInteger();
+        final CheckingProcessor processor = new CheckingProcessor();
+        final CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final Random random = new Random(t);
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int round = 0; round < ROUNDS; round++) {
+                        CountingSource source = new CountingSource(random.nextInt(8) == 0);
+                        synchronized (sources) {
+                            sources.add(source);
+                        }
+                        processor.endAfter = random.nextInt(4) == 0 ? 1 + random.nextInt(20) : -1;
+                        CaptureEngine.StartResult result = engine.start(source, processor);
+                        if (result == CaptureEngine.StartResult.STARTED) {
+                            started.incrementAndGet();
+                        }
+                        if (random.nextBoolean()) {
+                            Thread.yield();
+                        }
+                        engine.stop();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join(60000);
+            assertFalse("start/stop thread hung", thread.isAlive());
+        }
+        engine.stop();
+        
+        assertNull(failure.get(), failure.get());
+        assertEquals(CaptureEngine.State.IDLE, engine.getState());
+        assertTrue(started.get() > 0);
+        assertEquals(started.get(), processor.sessionsStarted.get());
+        assertEquals(started.get(), processor.sessionsEnded.get());
+        assertEquals(started.get(), processor.sessionsClosed.get());
+        for (CountingSource source : sources) {
+            assertEquals(source.startCount, source.stopCount);
+            assertTrue(source.stopCount <= 1);
+        }
+    }
+    
+    @Test
+    public void accountsForEveryFrameWhenAnalysisFallsBehind() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            CountingSource source = new CountingSource(false);
+            CheckingProcessor processor = new CheckingProcessor();
+            // A slow processor makes capture overrun the queue now and then
+            processor.delayNanos = round % 2 == 0 ? 200000 : 0;
+            assertEquals(CaptureEngine.StartResult.STARTED, engine.start(source, processor));
+            Thread.sleep(30);
+            engine.stop();
+            
+            assertNull(failure.get(), failure.get());
+            assertEquals(CaptureEngine.State.IDLE, engine.getState());
+            assertEquals(1, source.stopCount);
+            // Frames still queued when stop() came are drained without analysis, at most a
+            // queue (one second) of them
+            long unaccounted = source.frames.get() - processor.frames.get() - engine.getDroppedFrames();
+            assertTrue("unaccounted " + unaccounted, unaccounted >= 0 && unaccounted <= QUEUE_FRAMES + 1);
+        }
+    }
+    
+    @Test
+    public void startsAgainFromSessionClosed() throws Exception {
+        final AtomicInteger restarts = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        CheckingProcessor processor = new CheckingProcessor() {
+            @Override
+            public void onSessionClosed() {
+                super.onSessionClosed();
+                if (restarts.incrementAndGet() > 5) {
+                    done.countDown();
+                } else if (engine.start(new CountingSource(false), this) != CaptureEngine.StartResult.STARTED) {
+                    CaptureEngineStressTest.this.fail("Restart turned away");
+                }
+            }
+        };
+        // Each session ends itself after three frames
+        processor.endAfter = 3;
+        assertEquals(CaptureEngine.StartResult.STARTED, engine.start(new CountingSource(false), processor));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(failure.get(), failure.get());
+        assertEquals(6, processor.sessionsClosed.get());
+    }
+    
+    @Test
+    public void processorFailureEndsOnlyItsSession() throws Exception {
+        final CountDownLatch closed = new CountDownLatch(2);
+        CheckingProcessor processor = new CheckingProcessor() {
+            @Override
+            public boolean onFrame(short[] samples, int offset, int length) {
+                if (sessionsStarted.get() == 1 && frames.get() == 5) {
+                    throw new IllegalStateException("Broken classifier");
+                }
+                return super.onFrame(samples, offset, length);
+            }
+            
+            @Override
+            public void onSessionClosed() {
+                super.onSessionClosed();
+                closed.countDown();
+                if (sessionsClosed.get() == 2) {
+                    throw new IllegalStateException("Broken listener");
+                }
+            }
+        };
+        processor.endAfter = 10;
+        CountingSource first = new CountingSource(false);
+        assertEquals(CaptureEngine.StartResult.STARTED, engine.start(first, processor));
+        while (processor.sessionsClosed.get() < 1) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, engine.getProcessorFailures());
+        assertEquals(1, processor.sessionsFailed.get());
+        assertEquals(0, processor.sessionsEnded.get());
+        assertEquals(1, first.stopCount);
+        assertTrue(processor.lastError instanceof IllegalStateException);
+        
+        // The engine threads carry on with the next session
+        CountingSource second = new CountingSource(false);
+        assertEquals(CaptureEngine.StartResult.STARTED, engine.start(second, processor));
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertNull(failure.get(), failure.get());
+        assertEquals(1, processor.sessionsEnded.get());
+        assertEquals(15, processor.frames.get());
+        // A failing onSessionClosed is counted too
+        while (engine.getProcessorFailures() < 2) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, processor.sessionsFailed.get());
+        assertEquals(CaptureEngine.State.IDLE, engine.getState());
+    }
+    
+    private void fail(String message) {
+        failure.compareAndSet(null, message);
+    }
+    
+    // The framer asks for one frame per read. The first two samples carry the frame number,
+    // the rest count up from it, so a torn frame shows.
+    private class CountingSource implements AudioSource {
+        private final boolean failToOpen;
+        final AtomicInteger frames = new AtomicInteger();
+        volatile int startCount;
+        volatile int stopCount;
+        private volatile boolean stopped;
+        
+        CountingSource(boolean failToOpen) {
+            this.failToOpen = failToOpen;
+        }
+        
+        @Override
+        public boolean start() {
+            if (failToOpen) {
+                return false;
+            }
+            startCount++;
+            return true;
+        }
+        
+        @Override
+        public int read(short[] buffer, int offset, int length) {
+            if (stopped) {
+                fail("Read after stop");
+            }
+            if (length != frameSamples) {
+                fail("Read of " + length + " samples");
+            }
+            int frame = frames.getAndIncrement();
+            buffer[offset] = (short) (frame >>> 16);
+            buffer[offset + 1] = (short) frame;
+            for (int i = 2; i < length; i++) {
+                buffer[offset + i] = (short) (frame + i);
+            }
+            return length;
+        }
+        
+        @Override
+        public void stop() {
+            stopped = true;
+            stopCount++;
+        }
+        
+        @Override
+        public int getSampleRate() {
+            return SAMPLE_RATE;
+        }
+    }
+    
+    private class CheckingProcessor implements CaptureEngine.FrameProcessor {
+        final AtomicInteger sessionsStarted = new AtomicInteger();
+        final AtomicInteger sessionsEnded = new AtomicInteger();
+        final AtomicInteger sessionsClosed = new AtomicInteger();
+        final AtomicInteger sessionsFailed = new AtomicInteger();
+        volatile RuntimeException lastError;
+        final AtomicInteger frames = new AtomicInteger();
+        volatile int endAfter = -1;
+        volatile long delayNanos;
+        private boolean inSession;
+        private int sessionFrames;
+        private int limit;
+        private int lastFrame;
+        
+        @Override
+        public void onSessionStart() {
+            if (inSession) {
+                fail("Session started twice");
+            }
+            inSession = true;
+            sessionFrames = 0;
+            limit = endAfter;
+            sessionsStarted.incrementAndGet();
+        }
+        
+        @Override
+        public boolean onFrame(short[] samples, int offset, int length) {
+            if (!inSession) {
+                fail("Frame outside a session");
+            }
+            if (length != frameSamples) {
+                fail("Frame of " + length + " samples");
+            }
+            int frame = (samples[offset] << 16) | (samples[offset + 1] & 0xFFFF);
+            for (int i = 2; i < length; i++) {
+                if (samples[offset + i] != (short) (frame + i)) {
+                    fail("Frame " + frame + " torn at " + i);
+                    break;
+                }
+            }
+            // Dropped frames leave a gap, never a step back
+            if (sessionFrames > 0 && frame <= lastFrame) {
+                fail("Frame " + frame + " after " + lastFrame);
+            }
+            lastFrame = frame;
+            sessionFrames++;
+            frames.incrementAndGet();
+            if (delayNanos > 0) {
+                long until = System.nanoTime() + delayNanos;
+                while (System.nanoTime() < until) {
+                    // Busy analysis
+                }
+            }
+            return limit < 0 || sessionFrames < limit;
+        }
+        
+        @Override
+        public void onSessionEnd(boolean endOfStream) {
+            if (!inSession) {
+                fail("Session ended twice");
+            }
+            inSession = false;
+            sessionsEnded.incrementAndGet();
+        }
+        
+        @Override
+        public void onSessionFailed(RuntimeException error) {
+            if (!inSession) {
+                fail("Session failed after it ended");
+            }
+            inSession = false;
+            lastError = error;
+            sessionsFailed.incrementAndGet();
+        }
+        
+        @Override
+        public void onSessionClosed() {
+            if (engine.getState() == CaptureEngine.State.PROCESSING) {
+                fail("Closed while processing");
+            }
+            sessionsClosed.incrementAndGet();
+        }
+    }
+}
\ No newline at end of file
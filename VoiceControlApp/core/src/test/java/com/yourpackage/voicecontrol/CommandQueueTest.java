@@ -0,0 +1,94 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+// CommandQueue's overflow policies, with a single producer and with several offering the
+// same commands at once.
+public class CommandQueueTest {
+    private static final int PRODUCERS = 8;
+    
+    @Test
+    public void dropOldestHandsEveryDiscardToTheListener() {
+        CommandQueue<String> queue = new CommandQueue<>(3, CommandQueue.OverflowPolicy.DROP_OLDEST);
+        final List<String> dropped = new ArrayList<>();
+        queue.setOverflowListener(new CommandQueue.OverflowListener<String>() {
+            @Override
+            public void onOverflow(String command) {
+                dropped.add(command);
+            }
+        });
+        for (String command : Arrays.asList("A", "B", "A", "C", "D")) {
+            assertTrue(queue.offer(command));
+        }
+        assertEquals(Arrays.asList("A", "B"), dropped);
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(3, queue.getMaxDepth());
+        assertEquals("A", queue.poll());
+        assertEquals("C", queue.poll());
+        assertEquals("D", queue.poll());
+        assertNull(queue.poll());
+    }
+    
+    @Test
+    public void coalesceSkipsAPendingCopy() {
+        CommandQueue<String> queue = new CommandQueue<>(2, CommandQueue.OverflowPolicy.COALESCE);
+        assertTrue(queue.offer("A"));
+        assertFalse(queue.offer("A"));
+        assertTrue(queue.offer("B"));
+        // Full of different commands: the oldest still makes room
+        assertTrue(queue.offer("C"));
+        assertEquals(1, queue.getCoalescedCount());
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals("B", queue.poll());
+        // Once taken, the same command queues again
+        assertTrue(queue.offer("B"));
+        assertEquals(2, queue.getDepth());
+    }
+    
+    @Test
+    public void concurrentProducersQueueEachCommandOnce() throws Exception {
+        final CommandQueue<String> queue = new CommandQueue<>(16, CommandQueue.OverflowPolicy.COALESCE);
+        final List<String> commands = Arrays.asList("STOP", "LED_ON", "LED_OFF", "HORN");
+        final CountDownLatch go = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        queue.offer(commands.get(i % commands.size()));
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        go.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        
+        List<String> pending = new ArrayList<>();
+        assertEquals(commands.size(), queue.drainTo(pending));
+        Collections.sort(pending);
+        List<String> expected = new ArrayList<>(commands);
+        Collections.sort(expected);
+        assertEquals(expected, pending);
+        assertEquals(PRODUCERS * 1000, queue.getOfferedCount());
+        assertEquals(PRODUCERS * 1000 - commands.size(), queue.getCoalescedCount());
+    }
+}
\ No newline at end of file
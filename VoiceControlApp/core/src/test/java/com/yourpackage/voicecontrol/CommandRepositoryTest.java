@@ -0,0 +1,158 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// CommandRepository's log recovery: a torn tail from a crashed write is cut off by the next
+// commit, while damage with intact records behind it makes writes fail instead of losing them
+// until salvage() rewrites the file around the damaged record.
+public class CommandRepositoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void commitTruncatesATornTail() throws IOException {
+        File file = folder.newFile("commands.bin");
+        file.delete();
+        CommandRepository repository = new CommandRepository(file);
+        repository.edit().put(1, "forward", "MOVE_FORWARD").commit();
+        repository.edit().put(2, "stop", "STOP").commit();
+        long intact = file.length();
+        
+        // Half of a third record, as a writer that died mid-append leaves it
+        repository.edit().put(3, "left", "TURN_LEFT").commit();
+        long full = file.length();
+        truncate(file, intact + (full - intact) / 2);
+        
+        CommandRepository reopened = new CommandRepository(file);
+        reopened.reload();
+        assertEquals(2, reopened.size());
+        reopened.edit().put(4, "right", "TURN_RIGHT").commit();
+        
+        CommandRepository check = new CommandRepository(file);
+        check.reload();
+        assertEquals(3, check.size());
+        assertNull(check.find(3));
+        assertEquals("TURN_RIGHT", check.find(4).getData());
+    }
+    
+    @Test
+    public void commitTruncatesAZeroFilledTail() throws IOException {
+        File file = folder.newFile("commands.bin");
+        file.delete();
+        CommandRepository repository = new CommandRepository(file);
+        repository.edit().put(1, "forward", "MOVE_FORWARD").commit();
+        // Space the file system allocated before the data reached it
+        truncate(file, file.length() + 64);
+        
+        CommandRepository reopened = new CommandRepository(file);
+        reopened.reload();
+        reopened.edit().put(2, "stop", "STOP").commit();
+        
+        CommandRepository check = new CommandRepository(file);
+        check.reload();
+        assertEquals(2, check.size());
+    }
+    
+    @Test
+    public void longTornTailIsScannedQuickly() throws IOException {
+        File file = folder.newFile("commands.bin");
+        file.delete();
+        CommandRepository repository = new CommandRepository(file);
+        repository.edit().put(1, "forward", "MOVE_FORWARD").commit();
+        long intact = file.length();
+        
+        // Four megabytes of garbage in which every fourth offset reads as a record length of
+        // a megabyte that fits, each of which would cost a checksum over that megabyte
+        byte[] tail = new byte[4 << 20];
+        for (int i = 2; i < tail.length; i += 4) {
+            tail[i] = 0x10;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(intact);
+            raf.write(tail);
+        }
+        
+        CommandRepository reopened = new CommandRepository(file);
+        reopened.reload();
+        assertEquals(1, reopened.size());
+        reopened.edit().put(2, "stop", "STOP").commit();
+        
+        CommandRepository check = new CommandRepository(file);
+        check.reload();
+        assertEquals(2, check.size());
+        assertTrue(file.length() < intact + 64);
+    }
+    
+    @Test
+    public void refusesToWriteOverDamageUntilSalvaged() throws IOException {
+        File file = folder.newFile("commands.bin");
+        file.delete();
+        CommandRepository repository = new CommandRepository(file);
+        repository.edit().put(1, "forward", "MOVE_FORWARD").commit();
+        long second = file.length();
+        repository.edit().put(2, "stop", "STOP").commit();
+        repository.edit().put(3, "left", "TURN_LEFT").commit();
+        long length = file.length();
+        
+        // A flipped bit in the second record's label
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long pos = second + 8 + 5;
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0x10);
+        }
+        
+        CommandRepository reopened = new CommandRepository(file);
+        reopened.reload();
+        // Readers get what comes before the damage
+        assertEquals(1, reopened.size());
+        try {
+            reopened.edit().put(4, "right", "TURN_RIGHT").commit();
+            fail("Committed over a damaged record");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("damaged record"));
+        }
+        try {
+            reopened.compact();
+            fail("Compacted over a damaged record");
+        } catch (IOException expected) {
+            // Would drop the third record as well
+        }
+        assertEquals(length, file.length());
+        
+        // Salvage keeps the records on both sides of the damage and unblocks writes
+        assertTrue(reopened.salvage());
+        assertEquals(2, reopened.size());
+        assertNull(reopened.find(2));
+        assertEquals("TURN_LEFT", reopened.find(3).getData());
+        assertFalse(reopened.salvage());
+        reopened.edit().put(4, "right", "TURN_RIGHT").commit();
+        reopened.compact();
+        
+        CommandRepository check = new CommandRepository(file);
+        check.reload();
+        assertEquals(3, check.size());
+        assertEquals("MOVE_FORWARD", check.find(1).getData());
+        assertEquals("TURN_LEFT", check.find(3).getData());
+        assertEquals("TURN_RIGHT", check.find(4).getData());
+        check.edit().put(2, "stop", "STOP").commit();
+    }
+    
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+}
\ No newline at end of file
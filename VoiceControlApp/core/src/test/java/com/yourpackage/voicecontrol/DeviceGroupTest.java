@@ -0,0 +1,217 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+// DeviceGroup over MemoryTransport: a slow or unreachable member holds up only its own
+// deliveries, and every dispatch ends up accounted for on every member, whether the command
+// was delivered, replaced in the queue, discarded, or the member left the group.
+public class DeviceGroupTest {
+    private static final long TIMEOUT_MS = 5000;
+    
+    private final MemoryTransport transport = new MemoryTransport();
+    private final DeviceGroup group = new DeviceGroup(transport, 2, CommandQueue.OverflowPolicy.DROP_OLDEST);
+    private final RecordingListener listener = new RecordingListener();
+    
+    @After
+    public void tearDown() {
+        group.disconnect();
+    }
+    
+    @Test
+    public void slowMemberDoesNotHoldUpTheOthers() throws Exception {
+        transport.addDevice("slow").setWriteDelay(1000);
+        transport.addDevice("a");
+        transport.addDevice("b");
+        setUp("slow", "a", "b");
+        awaitConnected(3);
+        
+        List<DeviceGroup.Dispatch> dispatches = new ArrayList<>();
+        for (String command : Arrays.asList("LED_ON", "LED_OFF")) {
+            dispatches.add(group.send(command));
+        }
+        long deadline = System.currentTimeMillis() + 500;
+        while (!deliveredTo(dispatches, 1, 2) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        
+        assertTrue(deliveredTo(dispatches, 1, 2));
+        // Still inside the first write to the slow device
+        for (DeviceGroup.Dispatch dispatch : dispatches) {
+            assertEquals(DeviceGroup.Dispatch.PENDING, dispatch.getLatencyNanos(0));
+        }
+    }
+    
+    @Test
+    public void unreachableMemberDoesNotHoldUpTheOthers() throws Exception {
+        transport.addDevice("down").setOnline(false);
+        transport.addDevice("a");
+        setUp("down", "a");
+        
+        DeviceGroup.Dispatch dispatch = group.send("LED_ON");
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!deliveredTo(Collections.singletonList(dispatch), 1) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(deliveredTo(Collections.singletonList(dispatch), 1));
+        assertEquals(DeviceGroup.Dispatch.PENDING, dispatch.getLatencyNanos(0));
+        
+        // Giving up on the device settles the dispatch
+        assertTrue(group.remove("down"));
+        assertTrue(dispatch.await(0, TimeUnit.MILLISECONDS));
+        assertEquals(DeviceGroup.Dispatch.DROPPED, dispatch.getLatencyNanos(0));
+        assertEquals(1, listener.count(OutboundScheduler.DropReason.CLEARED));
+    }
+    
+    @Test
+    public void commandsDiscardedInTheQueueCompleteTheirDispatch() throws Exception {
+        // Never connects, so everything stays queued
+        transport.addDevice("down").setOnline(false);
+        setUp("down");
+        
+        DeviceGroup.Dispatch first = group.send("LED_ON");
+        DeviceGroup.Dispatch second = group.send("LED_OFF");
+        DeviceGroup.Dispatch third = group.send("HORN");
+        assertEquals(DeviceGroup.Dispatch.DROPPED, first.getLatencyNanos(0));
+        assertEquals(1, listener.count(OutboundScheduler.DropReason.OVERFLOW));
+        
+        DeviceGroup.Dispatch forward = group.send("MOVE_FORWARD");
+        DeviceGroup.Dispatch left = group.send("TURN_LEFT");
+        assertEquals(DeviceGroup.Dispatch.SUPERSEDED, forward.getLatencyNanos(0));
+        DeviceGroup.Dispatch stop = group.send("STOP");
+        assertEquals(DeviceGroup.Dispatch.DROPPED, left.getLatencyNanos(0));
+        assertEquals(1, listener.count(OutboundScheduler.DropReason.PREEMPTED));
+        // A second STOP goes out as the first one
+        DeviceGroup.Dispatch again = group.send("STOP");
+        assertEquals(DeviceGroup.Dispatch.SUPERSEDED, again.getLatencyNanos(0));
+        assertEquals(1, listener.count(OutboundScheduler.DropReason.COALESCED));
+        
+        group.disconnect();
+        for (DeviceGroup.Dispatch dispatch : Arrays.asList(second, third, stop)) {
+            assertTrue(dispatch.isComplete());
+            assertEquals(DeviceGroup.Dispatch.DROPPED, dispatch.getLatencyNanos(0));
+        }
+        assertEquals(3, listener.count(OutboundScheduler.DropReason.CLEARED));
+    }
+    
+    @Test
+    public void repeatsOfACommandAreTrackedSeparately() throws Exception {
+        transport.addDevice("a").setAcknowledging(true, 50);
+        group.setBinaryFraming(true);
+        group.setAcknowledgements(true);
+        setUp("a");
+        awaitConnected(1);
+        
+        DeviceGroup.Dispatch first = group.send("LED_ON");
+        Thread.sleep(10);
+        // The first one is in flight; its ACK must not answer for this one
+        DeviceGroup.Dispatch second = group.send("LED_ON");
+        assertTrue(first.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(second.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(first.getLatencyNanos(0) >= 0);
+        assertTrue(second.getLatencyNanos(0) >= 0);
+        assertEquals(2, listener.delivered);
+    }
+    
+    @Test
+    public void switchingDevicesFailsWhatTheOldOneHadNotAcknowledged() throws Exception {
+        MemoryTransport.Device old = transport.addDevice("old");
+        old.setAcknowledging(true, 0);
+        old.dropAcks(Integer.MAX_VALUE);
+        transport.addDevice("new").setAcknowledging(true, 0);
+        group.setBinaryFraming(true);
+        group.setAcknowledgements(true);
+        group.setAckTimeout(60000, 0);
+        setUp("old");
+        awaitConnected(1);
+        
+        DeviceGroup.Dispatch inFlight = group.send("LED_ON");
+        DeviceLink link = group.getLink("old");
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (link.getInFlightCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, link.getInFlightCount());
+        
+        group.setDevices(Collections.singletonList("new"));
+        assertTrue(inFlight.isComplete());
+        assertEquals(DeviceGroup.Dispatch.DROPPED, inFlight.getLatencyNanos(0));
+        
+        DeviceGroup.Dispatch next = group.send("LED_OFF");
+        assertTrue(next.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("new", next.getAddress(0));
+        assertTrue(next.getLatencyNanos(0) >= 0);
+    }
+    
+    private void setUp(String... addresses) {
+        group.setListener(listener);
+        group.setBackoff(10, 50);
+        for (String address : addresses) {
+            group.add(address);
+        }
+    }
+    
+    private void awaitConnected(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (group.getConnectedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, group.getConnectedCount());
+    }
+    
+    private static boolean deliveredTo(List<DeviceGroup.Dispatch> dispatches, int... devices) {
+        for (DeviceGroup.Dispatch dispatch : dispatches) {
+            for (int device : devices) {
+                if (dispatch.getLatencyNanos(device) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static class RecordingListener implements DeviceGroup.Listener {
+        private final int[] dropped = new int[OutboundScheduler.DropReason.values().length];
+        volatile int delivered;
+        
+        synchronized int count(OutboundScheduler.DropReason reason) {
+            return dropped[reason.ordinal()];
+        }
+        
+        @Override
+        public void onConnected(String address) {
+        }
+        
+        @Override
+        public void onConnectionFailed(String address, IOException error, long retryDelayMs) {
+        }
+        
+        @Override
+        public void onDisconnected(String address, IOException error) {
+        }
+        
+        @Override
+        public synchronized void onDelivered(DeviceGroup.Dispatch dispatch, String address, long latencyNanos) {
+            delivered++;
+        }
+        
+        @Override
+        public void onDeliveryFailed(DeviceGroup.Dispatch dispatch, String address) {
+        }
+        
+        @Override
+        public synchronized void onDropped(DeviceGroup.Dispatch dispatch, String address,
+                                           OutboundScheduler.DropReason reason) {
+            dropped[reason.ordinal()]++;
+        }
+    }
+}
\ No newline at end of file
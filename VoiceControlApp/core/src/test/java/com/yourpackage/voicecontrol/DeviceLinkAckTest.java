@@ -0,0 +1,252 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// The acknowledged binary protocol over MemoryTransport: a lost ACK is made up for by a
+// retransmission with the same sequence number, a late ACK for a retransmitted frame counts
+// as a duplicate, no more than a window of frames is ever unacknowledged, and whatever was in
+// flight when the connection broke goes out again after the reconnect.
+public class DeviceLinkAckTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long TIMEOUT_MS = 5000;
+    
+    private final MemoryTransport transport = new MemoryTransport();
+    private final MemoryTransport.Device device = transport.addDevice("robot");
+    private final DeviceLink link = new DeviceLink(transport, 128, CommandQueue.OverflowPolicy.DROP_OLDEST);
+    private final RecordingListener listener = new RecordingListener();
+    
+    @Before
+    public void setUp() {
+        link.setListener(listener);
+        link.setBinaryFraming(true);
+        link.setAcknowledgements(true);
+        link.setBackoff(10, 50);
+    }
+    
+    @After
+    public void tearDown() {
+        link.disconnect();
+    }
+    
+    @Test
+    public void retransmitsWhenAnAckIsLost() throws Exception {
+        device.setAcknowledging(true, 0);
+        device.dropAcks(1);
+        link.setAckTimeout(50, 3);
+        link.connect("robot");
+        
+        link.send("LED_ON");
+        listener.awaitDelivered(1);
+        
+        List<Frame> frames = receivedFrames();
+        assertEquals(2, frames.size());
+        assertEquals("LED_ON", frames.get(1).command);
+        // The same frame again, not a new one
+        assertEquals(frames.get(0).sequence, frames.get(1).sequence);
+        assertEquals(1, link.getRetransmitCount());
+        assertEquals(0, link.getDuplicateAckCount());
+        assertEquals(0, link.getFailedCommandCount());
+    }
+    
+    @Test
+    public void countsAcksOfRetransmittedCopiesAsDuplicates() throws Exception {
+        // Every ACK arrives after the link has given up waiting for it at least once
+        device.setAcknowledging(true, 150);
+        link.setAckTimeout(40, 10);
+        link.connect("robot");
+        
+        link.send("LED_ON");
+        listener.awaitDelivered(1);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (link.getDuplicateAckCount() < link.getRetransmitCount()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        
+        assertTrue(link.getRetransmitCount() > 0);
+        // One ACK per copy: the first delivers, the rest are duplicates
+        assertEquals(link.getRetransmitCount(), link.getDuplicateAckCount());
+        assertEquals(Collections.singletonList("LED_ON"), listener.getDelivered());
+        assertEquals(0, link.getInFlightCount());
+    }
+    
+    @Test
+    public void acksOfHeartbeatsAreNotDuplicates() throws Exception {
+        device.setAcknowledging(true, 0);
+        device.setAcknowledgingHeartbeats(true);
+        link.setHeartbeatInterval(5);
+        link.connect("robot");
+        
+        link.send("LED_ON");
+        listener.awaitDelivered(1);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (link.getHeartbeatCount() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        link.send("LED_OFF");
+        listener.awaitDelivered(2);
+        
+        assertTrue(link.getHeartbeatCount() >= 5);
+        assertEquals(0, link.getDuplicateAckCount());
+        assertEquals(Arrays.asList("LED_ON", "LED_OFF"), listener.getDelivered());
+    }
+    
+    @Test
+    public void waitsForAcksWhileTheWindowIsFull() throws Exception {
+        device.setAcknowledging(true, 300);
+        link.setAckTimeout(60000, 0);
+        link.connect("robot");
+        awaitConnected();
+        
+        int count = AckTracker.WINDOW + 5;
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            commands.add("C" + i);
+            link.send("C" + i);
+        }
+        Thread.sleep(150);
+        // Before the first ACK: a full window on the wire, the rest still queued
+        assertEquals(AckTracker.WINDOW, link.getInFlightCount());
+        assertEquals(AckTracker.WINDOW, receivedFrames().size());
+        assertEquals(5, link.getQueueDepth());
+        
+        listener.awaitDelivered(count);
+        assertEquals(commands, listener.getDelivered());
+        assertEquals(count, receivedFrames().size());
+        assertEquals(0, link.getRetransmitCount());
+    }
+    
+    @Test
+    public void resendsWhatWasInFlightAfterReconnecting() throws Exception {
+        device.setAcknowledging(true, 0);
+        device.dropAcks(Integer.MAX_VALUE);
+        link.setAckTimeout(60000, 0);
+        // Heartbeats notice the broken connection
+        link.setHeartbeatInterval(20);
+        link.connect("robot");
+        
+        List<String> commands = Arrays.asList("LED_ON", "HORN", "LED_OFF");
+        for (String command : commands) {
+            link.send(command);
+        }
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (link.getInFlightCount() < commands.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(commands.size(), link.getInFlightCount());
+        
+        device.setOnline(false);
+        deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (link.getReconnectCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        device.dropAcks(0);
+        device.setOnline(true);
+        listener.awaitDelivered(commands.size());
+        
+        assertEquals(commands, listener.getDelivered());
+        assertEquals(2, device.getConnectCount());
+        assertEquals(1, link.getReconnectCount());
+        assertEquals(0, link.getFailedCommandCount());
+        // Each command went out once on either connection
+        List<String> sent = new ArrayList<>();
+        for (Frame frame : receivedFrames()) {
+            sent.add(frame.command);
+        }
+        List<String> twice = new ArrayList<>(commands);
+        twice.addAll(commands);
+        assertEquals(twice, sent);
+    }
+    
+    private void awaitConnected() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!link.isConnected() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(link.isConnected());
+    }
+    
+    // Command frames the device got, heartbeats left out
+    private List<Frame> receivedFrames() {
+        final List<Frame> frames = new ArrayList<>();
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(int sequence, int commandId, byte[] payload, int offset, int length) {
+                if (commandId != FrameEncoder.HEARTBEAT_COMMAND_ID) {
+                    frames.add(new Frame(sequence, new String(payload, offset, length, UTF_8)));
+                }
+            }
+        });
+        byte[] received = device.getReceived();
+        decoder.feed(received, 0, received.length);
+        return frames;
+    }
+    
+    private static class Frame {
+        final int sequence;
+        final String command;
+        
+        Frame(int sequence, String command) {
+            this.sequence = sequence;
+            this.command = command;
+        }
+    }
+    
+    private static class RecordingListener implements DeviceLink.Listener {
+        private final List<String> delivered = new ArrayList<>();
+        
+        synchronized List<String> getDelivered() {
+            return new ArrayList<>(delivered);
+        }
+        
+        synchronized void awaitDelivered(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (delivered.size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                assertTrue("delivered " + delivered, remaining > 0);
+                wait(remaining);
+            }
+        }
+        
+        @Override
+        public synchronized void onDelivered(String address, long sendId, String command) {
+            delivered.add(command);
+            notifyAll();
+        }
+        
+        @Override
+        public void onDeliveryFailed(String address, long sendId, String command) {
+        }
+        
+        @Override
+        public void onDropped(long sendId, String command, OutboundScheduler.DropReason reason) {
+        }
+        
+        @Override
+        public void onConnected(String address) {
+        }
+        
+        @Override
+        public void onConnectionFailed(String address, IOException error, long retryDelayMs) {
+        }
+        
+        @Override
+        public void onDisconnected(String address, IOException error) {
+        }
+        
+        @Override
+        public void onSent(String lastCommand, int count) {
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+
+// DeviceLink against local TCP servers through SocketTransport: command size limits in both
+// framings, and a link that is disconnected and pointed at another device straight away.
+public class DeviceLinkTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long TIMEOUT_MS = 5000;
+    
+    private final List<Server> servers = new ArrayList<>();
+    private final DeviceLink link = new DeviceLink(new SocketTransport(1000), 16,
+        CommandQueue.OverflowPolicy.DROP_OLDEST);
+    
+    @After
+    public void tearDown() throws IOException {
+        link.disconnect();
+        for (Server server : servers) {
+            server.close();
+        }
+    }
+    
+    @Test
+    public void rejectsCommandsLongerThanOneFrame() throws Exception {
+        Server server = startServer();
+        link.connect(server.address);
+        
+        String longest = repeat('x', DeviceLink.MAX_COMMAND_BYTES);
+        assertTrue(link.send(longest));
+        assertRejected(longest + "x");
+        // Counted in UTF-8 bytes, not chars
+        assertTrue(DeviceLink.isSendable(repeat('\u00e9', DeviceLink.MAX_COMMAND_BYTES / 2)));
+        assertRejected(repeat('\u00e9', DeviceLink.MAX_COMMAND_BYTES / 2 + 1));
+        assertRejected(repeat('\u20ac', DeviceLink.MAX_COMMAND_BYTES / 3 + 1));
+        assertTrue(link.send("LED_ON"));
+        
+        server.awaitLines(Arrays.asList(longest, "LED_ON"));
+    }
+    
+    @Test
+    public void sendsLongestRawCommandInOneBinaryFrame() throws Exception {
+        Server server = startServer();
+        link.setBinaryFraming(true);
+        link.setHeartbeatInterval(0);
+        link.connect(server.address);
+        
+        String longest = repeat('y', DeviceLink.MAX_COMMAND_BYTES);
+        assertTrue(link.send(longest));
+        assertTrue(link.send("LED_OFF"));
+        
+        final List<String> frames = new ArrayList<>();
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(int sequence, int commandId, byte[] payload, int offset, int length) {
+                frames.add(new String(payload, offset, length, UTF_8));
+            }
+        });
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        int fed = 0;
+        while (frames.size() < 2 && System.currentTimeMillis() < deadline) {
+            byte[] received = server.getReceived();
+            decoder.feed(received, fed, received.length - fed);
+            fed = received.length;
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(longest, "LED_OFF"), frames);
+    }
+    
+    @Test
+    public void slotsSharingDataKeepTheirOwnIds() throws Exception {
+        Server server = startServer();
+        link.setBinaryFraming(true);
+        link.setHeartbeatInterval(0);
+        link.connect(server.address);
+        
+        CommandTable table = new CommandTable.Builder()
+                .add(3, "light", "LED_ON")
+                .add(7, "lamp", "LED_ON")
+                .build();
+        assertTrue(link.send(table.get(3), System.nanoTime()));
+        assertTrue(link.send(table.get(7), System.nanoTime()));
+        // Plain data is sent as text even if a slot has it
+        assertTrue(link.send("LED_ON"));
+        
+        final List<String> frames = new ArrayList<>();
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(int sequence, int commandId, byte[] payload, int offset, int length) {
+                frames.add(commandId + ":" + new String(payload, offset, length, UTF_8));
+            }
+        });
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        int fed = 0;
+        while (frames.size() < 3 && System.currentTimeMillis() < deadline) {
+            byte[] received = server.getReceived();
+            decoder.feed(received, fed, received.length - fed);
+            fed = received.length;
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList("3:", "7:", FrameEncoder.RAW_COMMAND_ID + ":LED_ON"), frames);
+    }
+    
+    @Test
+    public void disconnectAndConnectElsewhereKeepsOneLinkThread() throws Exception {
+        Server first = startServer();
+        Server second = startServer();
+        link.setHeartbeatInterval(5);
+        link.connect(first.address);
+        link.send("A1");
+        first.awaitLines(Arrays.asList("A1"));
+        
+        for (int round = 0; round < 20; round++) {
+            link.disconnect();
+            link.connect((round & 1) == 0 ? second.address : first.address);
+        }
+        link.send("B1");
+        link.send("B2");
+        
+        // The last round went back to the first server
+        first.awaitLines(Arrays.asList("A1", "B1", "B2"));
+        assertTrue(second.getLines().isEmpty());
+        Thread.sleep(100);
+        assertEquals(1, countLinkThreads());
+        
+        link.disconnect();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (countLinkThreads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, countLinkThreads());
+    }
+    
+    private void assertRejected(String data) {
+        assertFalse(DeviceLink.isSendable(data));
+        try {
+            link.send(data);
+            fail("Accepted a command of " + data.getBytes(UTF_8).length + " bytes");
+        } catch (IllegalArgumentException expected) {
+            // Never queued
+        }
+    }
+    
+    private Server startServer() throws IOException {
+        Server server = new Server();
+        servers.add(server);
+        return server;
+    }
+    
+    private static int countLinkThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("DeviceLink-")
+                    && !thread.getName().startsWith("DeviceLink-reader-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+    
+    // Accepts any number of connections and records everything written to any of them
+    private static class Server {
+        final ServerSocket socket;
+        final String address;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        
+        Server() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            address = "127.0.0.1:" + socket.getLocalPort();
+            Thread acceptor = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    accept();
+                }
+            }, "Server-" + address);
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+        
+        private void accept() {
+            try {
+                while (true) {
+                    final Socket client = socket.accept();
+                    Thread reader = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            read(client);
+                        }
+                    });
+                    reader.setDaemon(true);
+                    reader.start();
+                }
+            } catch (IOException e) {
+                // Closed by the test
+            }
+        }
+        
+        private void read(Socket client) {
+            byte[] buffer = new byte[512];
+            try {
+                InputStream in = client.getInputStream();
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    synchronized (received) {
+                        received.write(buffer, 0, n);
+                    }
+                }
+                client.close();
+            } catch (IOException e) {
+                // The link dropped the connection
+            }
+        }
+        
+        byte[] getReceived() {
+            synchronized (received) {
+                return received.toByteArray();
+            }
+        }
+        
+        // Text-mode commands, without the blank heartbeat lines
+        List<String> getLines() {
+            List<String> lines = new ArrayList<>();
+            for (String line : new String(getReceived(), UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+            return lines;
+        }
+        
+        void awaitLines(List<String> expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (getLines().size() < expected.size() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50);
+            assertEquals(expected, getLines());
+        }
+        
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+}
\ No newline at end of file
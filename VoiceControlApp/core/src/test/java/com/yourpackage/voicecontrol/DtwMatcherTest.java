@@ -0,0 +1,279 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+// DtwMatcher's pruning (LB_Keogh bounds, the bound-ordered heap, early abandoning) against a
+// plain DTW that aligns every template over the whole band: the closest commands and their
+// distances must come out the same, only with fewer alignments.
+public class DtwMatcherTest {
+    private static final int DIMENSION = 4;
+    
+    @Test
+    public void pruningMatchesAFullAlignmentOfEveryTemplate() {
+        Random random = new Random(7);
+        int pruned = 0;
+        int aligned = 0;
+        for (int round = 0; round < 40; round++) {
+            float bandFraction = round % 2 == 0 ? DtwMatcher.DEFAULT_BAND_FRACTION : 1;
+            DtwMatcher matcher = new DtwMatcher(DIMENSION);
+            matcher.setBandFraction(bandFraction);
+            List<CommandTemplate> templates = new ArrayList<>();
+            List<float[]> shapes = new ArrayList<>();
+            for (int c = 0; c < 8; c++) {
+                float[] shape = walk(random, 30);
+                shapes.add(shape);
+                for (int k = 0; k < 1 + random.nextInt(4); k++) {
+                    int frames = 12 + random.nextInt(30);
+                    CommandTemplate template = new CommandTemplate("cmd" + c, warp(random, shape, 30, frames, 0.3f), frames, DIMENSION);
+                    templates.add(template);
+                    matcher.addTemplate(template);
+                }
+            }
+            
+            for (int q = 0; q < 10; q++) {
+                int frames = 10 + random.nextInt(40);
+                float[] query = warp(random, shapes.get(random.nextInt(shapes.size())), 30, frames, 0.3f);
+                DtwMatcher.Match match = new DtwMatcher.Match(1 + random.nextInt(4));
+                boolean found = matcher.findBestMatch(query, frames, match);
+                
+                List<Ranked> expected = reference(templates, query, frames, bandFraction);
+                assertCloseTo(expected, match);
+                assertEquals(!expected.isEmpty(), found);
+                assertEquals(templates.size(), match.getAlignedCount() + match.getPrunedCount());
+                pruned += match.getPrunedCount();
+                aligned += match.getAlignedCount();
+            }
+        }
+        // The comparison is only worth something if both paths actually ran
+        assertTrue("pruned " + pruned, pruned > 0);
+        assertTrue("aligned " + aligned, aligned > 0);
+    }
+    
+    @Test
+    public void ranksEachCommandOnceByItsClosestTemplate() {
+        Random random = new Random(11);
+        float[] forward = walk(random, 20);
+        float[] stop = walk(random, 20);
+        DtwMatcher matcher = new DtwMatcher(DIMENSION);
+        // Several takes of "forward", all closer than anything else
+        matcher.addTemplate(new CommandTemplate("forward", forward, 20, DIMENSION));
+        for (int k = 0; k < 3; k++) {
+            matcher.addTemplate(new CommandTemplate("forward", warp(random, forward, 20, 18 + k, 0.05f), 18 + k, DIMENSION));
+        }
+        matcher.addTemplate(new CommandTemplate("stop", stop, 20, DIMENSION));
+        matcher.addTemplate(new CommandTemplate("left", walk(random, 20), 20, DIMENSION));
+        
+        DtwMatcher.Match match = new DtwMatcher.Match(3);
+        assertTrue(matcher.findBestMatch(forward, 20, match));
+        assertEquals(3, match.getCount());
+        assertEquals("forward", match.getCommand(0));
+        assertEquals(0, match.getDistance(0), 0);
+        assertFalse("forward".equals(match.getCommand(1)));
+        assertFalse("forward".equals(match.getCommand(2)));
+        assertTrue(match.getDistance(1) <= match.getDistance(2));
+        
+        // A closer take of another command replaces that command's entry, not the last one
+        matcher.addTemplate(new CommandTemplate("stop", warp(random, forward, 20, 20, 0.01f), 20, DIMENSION));
+        assertTrue(matcher.findBestMatch(forward, 20, match));
+        assertEquals("forward", match.getCommand(0));
+        assertEquals("stop", match.getCommand(1));
+        assertFalse("stop".equals(match.getCommand(2)));
+        assertNull(match.getCommand(3));
+    }
+    
+    @Test
+    public void ignoresTemplatesBeyondTheLengthRatio() {
+        Random random = new Random(5);
+        float[] query = walk(random, 10);
+        DtwMatcher matcher = new DtwMatcher(DIMENSION);
+        // Every query frame twice plus one more: a perfect alignment, but too long
+        matcher.addTemplate(new CommandTemplate("slow", stretch(query, 10, 21), 21, DIMENSION));
+        DtwMatcher.Match match = new DtwMatcher.Match();
+        assertFalse(matcher.findBestMatch(query, 10, match));
+        assertEquals(1, match.getPrunedCount());
+        assertEquals(0, match.getAlignedCount());
+        
+        // Exactly twice as long is still compared
+        matcher.addTemplate(new CommandTemplate("twice", stretch(query, 10, 20), 20, DIMENSION));
+        assertTrue(matcher.findBestMatch(query, 10, match));
+        assertEquals(1, match.getCount());
+        assertEquals("twice", match.getCommand());
+        assertEquals(0, match.getDistance(), 0);
+        
+        // And the same the other way round
+        float[] longQuery = stretch(query, 10, 20);
+        matcher.clear();
+        matcher.addTemplate(new CommandTemplate("fast", walk(random, 9), 9, DIMENSION));
+        assertFalse(matcher.findBestMatch(longQuery, 20, match));
+        matcher.addTemplate(new CommandTemplate("short", query, 10, DIMENSION));
+        assertTrue(matcher.findBestMatch(longQuery, 20, match));
+        assertEquals("short", match.getCommand());
+    }
+    
+    @Test
+    public void maxDistanceRejectsAMatchAtOrBeyondIt() {
+        Random random = new Random(3);
+        float[] shape = walk(random, 20);
+        float[] query = warp(random, shape, 20, 22, 0.2f);
+        DtwMatcher matcher = new DtwMatcher(DIMENSION);
+        matcher.addTemplate(new CommandTemplate("forward", shape, 20, DIMENSION));
+        matcher.addTemplate(new CommandTemplate("stop", walk(random, 20), 20, DIMENSION));
+        
+        DtwMatcher.Match match = new DtwMatcher.Match();
+        assertTrue(matcher.findBestMatch(query, 22, match));
+        assertEquals("forward", match.getCommand());
+        float best = match.getDistance();
+        float runnerUp = match.getRunnerUpDistance();
+        assertTrue(best > 0 && runnerUp > best);
+        
+        // Between the two: the runner-up is dropped
+        matcher.setMaxDistance((best + runnerUp) / 2);
+        assertTrue(matcher.findBestMatch(query, 22, match));
+        assertEquals(1, match.getCount());
+        assertEquals(best, match.getDistance(), 0);
+        
+        // At the best distance: nothing is left
+        matcher.setMaxDistance(best);
+        assertFalse(matcher.findBestMatch(query, 22, match));
+        assertEquals(0, match.getCount());
+        assertNull(match.getCommand());
+        assertEquals(Float.POSITIVE_INFINITY, match.getDistance(), 0);
+        assertEquals(2, match.getAlignedCount() + match.getPrunedCount());
+    }
+    
+    private static void assertCloseTo(List<Ranked> expected, DtwMatcher.Match match) {
+        int count = Math.min(expected.size(), match.getCapacity());
+        assertEquals(count, match.getCount());
+        Map<String, Float> distances = new HashMap<>();
+        for (Ranked ranked : expected) {
+            distances.put(ranked.command, ranked.distance);
+        }
+        for (int rank = 0; rank < count; rank++) {
+            float distance = match.getDistance(rank);
+            assertEquals("rank " + rank, expected.get(rank).distance, distance, 1e-4f * distance);
+            // Another command is only acceptable if it is as close, to float rounding
+            assertEquals(match.getCommand(rank), distances.get(match.getCommand(rank)), distance, 1e-4f * distance);
+        }
+    }
+    
+    private static final class Ranked implements Comparable<Ranked> {
+        final String command;
+        final float distance;
+        
+        Ranked(String command, float distance) {
+            this.command = command;
+            this.distance = distance;
+        }
+        
+        @Override
+        public int compareTo(Ranked other) {
+            return Float.compare(distance, other.distance);
+        }
+    }
+    
+    // Every command's closest template by full DTW, closest first
+    private static List<Ranked> reference(List<CommandTemplate> templates, float[] query, int n, float bandFraction) {
+        Map<String, Float> best = new HashMap<>();
+        for (CommandTemplate template : templates) {
+            int m = template.getFrameCount();
+            if (m > 2 * n || n > 2 * m) {
+                continue;
+            }
+            float distance = (float) dtw(query, n, template.getFrames(), m, bandFraction);
+            Float previous = best.get(template.getCommand());
+            if (previous == null || distance < previous) {
+                best.put(template.getCommand(), distance);
+            }
+        }
+        List<Ranked> ranked = new ArrayList<>();
+        for (Map.Entry<String, Float> entry : best.entrySet()) {
+            ranked.add(new Ranked(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(ranked);
+        return ranked;
+    }
+    
+    // Squared Euclidean frame cost over the whole matrix, restricted only to the band as
+    // documented: template frame i meets query frame j when j is within the radius of the
+    // diagonal, the radius being at least the slope
+    private static double dtw(float[] query, int n, float[] template, int m, float bandFraction) {
+        int slope = (n - 2 + m - 1) / (m - 1);
+        int radius = Math.max(1, Math.max(slope, (int) Math.ceil(bandFraction * Math.max(n, m))));
+        double[][] cost = new double[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                long offset = (long) j * (m - 1) - (long) i * (n - 1);
+                if (Math.abs(offset) > (long) radius * (m - 1)) {
+                    cost[i][j] = Double.POSITIVE_INFINITY;
+                    continue;
+                }
+                double frame = 0;
+                for (int d = 0; d < DIMENSION; d++) {
+                    double diff = template[i * DIMENSION + d] - query[j * DIMENSION + d];
+                    frame += diff * diff;
+                }
+                double step = i == 0 && j == 0 ? 0 : Double.POSITIVE_INFINITY;
+                if (i > 0) {
+                    step = Math.min(step, cost[i - 1][j]);
+                }
+                if (j > 0) {
+                    step = Math.min(step, cost[i][j - 1]);
+                }
+                if (i > 0 && j > 0) {
+                    step = Math.min(step, cost[i - 1][j - 1]);
+                }
+                cost[i][j] = frame + step;
+            }
+        }
+        return cost[m - 1][n - 1] / (n + m);
+    }
+    
+    // Smooth random trajectory, frames of DIMENSION values
+    private static float[] walk(Random random, int frames) {
+        float[] walk = new float[frames * DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            float value = (float) random.nextGaussian();
+            for (int i = 0; i < frames; i++) {
+                value += 0.5f * (float) random.nextGaussian();
+                walk[i * DIMENSION + d] = value;
+            }
+        }
+        return walk;
+    }
+    
+    // The shape resampled to another length with an uneven tempo, plus some noise
+    private static float[] warp(Random random, float[] shape, int shapeFrames, int frames, float noise) {
+        float[] warped = new float[frames * DIMENSION];
+        float bend = 0.3f * (random.nextFloat() - 0.5f);
+        for (int i = 0; i < frames; i++) {
+            float t = (float) i / (frames - 1);
+            t = Math.max(0, Math.min(1, t + bend * t * (1 - t)));
+            int source = Math.round(t * (shapeFrames - 1));
+            for (int d = 0; d < DIMENSION; d++) {
+                warped[i * DIMENSION + d] = shape[source * DIMENSION + d] + noise * (float) random.nextGaussian();
+            }
+        }
+        return warped;
+    }
+    
+    // Each frame repeated, then the last one repeated as needed
+    private static float[] stretch(float[] shape, int shapeFrames, int frames) {
+        float[] stretched = new float[frames * DIMENSION];
+        for (int i = 0; i < frames; i++) {
+            int source = Math.min(i / 2, shapeFrames - 1);
+            System.arraycopy(shape, source * DIMENSION, stretched, i * DIMENSION, DIMENSION);
+        }
+        return stretched;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+// FrameEncoder and FrameDecoder over a loopback stream: whatever is written comes back as
+// the same frames, however the reads split it, and damage costs only the damaged frame.
+public class FrameCodecTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    
+    private final List<String> frames = new ArrayList<>();
+    private final FrameDecoder decoder = new FrameDecoder(new FrameDecoder.FrameListener() {
+        @Override
+        public void onFrame(int sequence, int commandId, byte[] payload, int offset, int length) {
+            frames.add(sequence + ":" + commandId + ":" + new String(payload, offset, length, UTF_8));
+        }
+    });
+    
+    @Test
+    public void roundTripsBatchedFramesInAnySplit() throws IOException {
+        FrameEncoder encoder = new FrameEncoder(1024);
+        ByteArrayOutputStream loopback = new ByteArrayOutputStream();
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String text = i % 3 == 0 ? "CUSTOM_" + i : "";
+            int sequence = text.isEmpty() ? encoder.append(1 + i % 20) : appendText(encoder, text);
+            sent.add(sequence + ":" + (text.isEmpty() ? 1 + i % 20 : FrameEncoder.RAW_COMMAND_ID) + ":" + text);
+            if (i % 8 == 7) {
+                encoder.writeTo(loopback);
+            }
+        }
+        encoder.writeTo(loopback);
+        
+        Random random = new Random(3);
+        read(new ByteArrayInputStream(loopback.toByteArray()), random);
+        assertEquals(sent, frames);
+        assertEquals(0, decoder.getCorruptCount());
+    }
+    
+    @Test
+    public void skipsGarbageBetweenFrames() throws IOException {
+        FrameEncoder encoder = new FrameEncoder(1024);
+        ByteArrayOutputStream loopback = new ByteArrayOutputStream();
+        loopback.write(new byte[] {1, 2, (byte) FrameEncoder.SYNC, 0, 7});
+        encoder.append(5);
+        encoder.writeTo(loopback);
+        loopback.write(new byte[] {'x', 'y'});
+        appendText(encoder, "LED_ON");
+        encoder.writeTo(loopback);
+        // The garbage SYNC claims the next frame's SYNC as its length; the frames it covered
+        // come out once that much has arrived
+        for (int i = 0; i < 40; i++) {
+            encoder.append(FrameEncoder.HEARTBEAT_COMMAND_ID);
+        }
+        encoder.writeTo(loopback);
+        
+        read(new ByteArrayInputStream(loopback.toByteArray()), new Random(1));
+        assertEquals("[0:5:, 1:0:LED_ON]", frames.subList(0, 2).toString());
+        assertEquals(42, frames.size());
+    }
+    
+    @Test
+    public void corruptLengthDoesNotSwallowFollowingFrames() throws IOException {
+        FrameEncoder encoder = new FrameEncoder(1024);
+        encoder.append(3);
+        for (int i = 0; i < 60; i++) {
+            // ACK-sized frames, the kind a device sends back
+            encoder.append(FrameEncoder.ACK_COMMAND_ID);
+        }
+        byte[] bytes = encoder.array().clone();
+        int size = encoder.size();
+        // The first frame now claims a 200 byte payload that runs over 41 of the others
+        bytes[3] = (byte) 200;
+        
+        decoder.feed(bytes, 0, size);
+        assertEquals(60, frames.size());
+        for (int i = 0; i < 60; i++) {
+            assertEquals((i + 1) + ":254:", frames.get(i));
+        }
+        assertEquals(1, decoder.getCorruptCount());
+    }
+    
+    @Test
+    public void corruptPayloadLosesOnlyThatFrame() throws IOException {
+        FrameEncoder encoder = new FrameEncoder(1024);
+        appendText(encoder, "MOVE_FORWARD");
+        appendText(encoder, "STOP");
+        byte[] bytes = encoder.array().clone();
+        bytes[FrameEncoder.HEADER_SIZE + 2] ^= 0x10;
+        
+        read(new ByteArrayInputStream(bytes, 0, encoder.size()), new Random(5));
+        assertEquals("[1:0:STOP]", frames.toString());
+        assertEquals(1, decoder.getCorruptCount());
+    }
+    
+    private static int appendText(FrameEncoder encoder, String text) {
+        byte[] bytes = text.getBytes(UTF_8);
+        return encoder.append(FrameEncoder.RAW_COMMAND_ID, bytes, 0, bytes.length);
+    }
+    
+    // Reads like a socket does, in chunks of whatever size happens to be available
+    private void read(InputStream in, Random random) throws IOException {
+        byte[] buffer = new byte[64];
+        int n;
+        while ((n = in.read(buffer, 0, 1 + random.nextInt(buffer.length))) > 0) {
+            decoder.feed(buffer, 0, n);
+        }
+    }
+}
\ No newline at end of file
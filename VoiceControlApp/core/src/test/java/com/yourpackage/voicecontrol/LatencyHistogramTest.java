@@ -0,0 +1,130 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+// LatencyHistogram's buckets, exact up to 32us and 1/32 of the value wide above, and its
+// percentiles against the exact ones of the recorded values.
+public class LatencyHistogramTest {
+    private static final long MAX_MICROS = 1L << 31;
+    
+    @Test
+    public void smallValuesHaveABucketEach() {
+        for (long micros = 0; micros < 32; micros++) {
+            assertEquals(micros, LatencyHistogram.bucketOf(micros));
+            assertEquals(micros, LatencyHistogram.valueOf((int) micros));
+        }
+        // Where the exact range meets the first split power of two
+        assertEquals(15, LatencyHistogram.bucketOf(15));
+        assertEquals(16, LatencyHistogram.bucketOf(16));
+        assertEquals(32, LatencyHistogram.bucketOf(32));
+        assertEquals(32, LatencyHistogram.bucketOf(33));
+        assertEquals(33, LatencyHistogram.valueOf(32));
+    }
+    
+    @Test
+    public void bucketsSplitEveryPowerOfTwoInSixteen() {
+        for (int exponent = 5; exponent <= 30; exponent++) {
+            long edge = 1L << exponent;
+            long width = edge / 16;
+            int bucket = LatencyHistogram.bucketOf(edge);
+            assertEquals("2^" + exponent, bucket - 1, LatencyHistogram.bucketOf(edge - 1));
+            assertEquals("2^" + exponent, bucket, LatencyHistogram.bucketOf(edge + width - 1));
+            assertEquals("2^" + exponent, bucket + 1, LatencyHistogram.bucketOf(edge + width));
+            assertEquals("2^" + exponent, edge + width / 2, LatencyHistogram.valueOf(bucket));
+            // The last bucket below the next power of two
+            assertEquals("2^" + exponent, bucket + 15, LatencyHistogram.bucketOf(2 * edge - 1));
+        }
+        
+        // Every value is reported within half a bucket, 1/32 of itself
+        Random random = new Random(1);
+        int previous = 0;
+        for (long micros = 1; micros < MAX_MICROS; micros += 1 + micros / 100 + random.nextInt(3)) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue(micros + "us", bucket >= previous);
+            previous = bucket;
+            long value = LatencyHistogram.valueOf(bucket);
+            assertTrue(micros + "us as " + value, Math.abs(value - micros) * 32 <= micros);
+        }
+    }
+    
+    @Test
+    public void valuesBeyondTheRangeShareTheTopBucket() {
+        int top = LatencyHistogram.bucketOf(MAX_MICROS - 1);
+        assertEquals(LatencyHistogram.bucketOf(MAX_MICROS - MAX_MICROS / 32), top);
+        assertEquals(top, LatencyHistogram.bucketOf(MAX_MICROS));
+        assertEquals(top, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(top, bucketWithCount(histogram));
+        // The maximum itself is exact, the percentile only names the bucket
+        assertEquals(Long.MAX_VALUE / 1000 / 1000.0, histogram.getMaxMs(), 0);
+        assertEquals(LatencyHistogram.valueOf(top) / 1000.0, histogram.getP99Ms(), 0);
+    }
+    
+    @Test
+    public void percentilesAreWithinHalfABucketOfTheExactOnes() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            int n = 1 + random.nextInt(5000);
+            long[] micros = new long[n];
+            for (int i = 0; i < n; i++) {
+                // Log-normal around 20ms, as delivery latencies are
+                long nanos = (long) (20e6 * Math.exp(random.nextGaussian()));
+                micros[i] = nanos / 1000;
+                histogram.record(nanos);
+            }
+            Arrays.sort(micros);
+            
+            assertEquals(n, histogram.getCount());
+            assertEquals(micros[n - 1] / 1000.0, histogram.getMaxMs(), 0);
+            assertPercentile(micros, 50, histogram.getP50Ms());
+            assertPercentile(micros, 95, histogram.getP95Ms());
+            assertPercentile(micros, 99, histogram.getP99Ms());
+            assertPercentile(micros, 100, histogram.getPercentileMs(100));
+            assertPercentile(micros, 0, histogram.getPercentileMs(0));
+        }
+    }
+    
+    @Test
+    public void addSumsTheCounts() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        assertEquals(0, first.getP50Ms(), 0);
+        for (int i = 1; i <= 100; i++) {
+            (i % 2 == 0 ? first : second).record(i * 1000000L);
+        }
+        first.add(second);
+        assertEquals(100, first.getCount());
+        assertEquals(50.5, first.getMeanMs(), 1e-9);
+        assertEquals(100, first.getMaxMs(), 0);
+        assertEquals(50, first.getP50Ms(), 50 / 32.0);
+        assertEquals(50, second.getCount());
+    }
+    
+    // The value at rank ceil(n * percent / 100) of the sorted values, and never above the
+    // largest one
+    private static void assertPercentile(long[] sorted, double percent, double reportedMs) {
+        int rank = Math.max(1, (int) Math.ceil(sorted.length * percent / 100));
+        long exact = sorted[rank - 1];
+        assertEquals("p" + percent + " of " + sorted.length, exact / 1000.0, reportedMs, exact / 32 / 1000.0);
+        assertTrue(reportedMs <= sorted[sorted.length - 1] / 1000.0);
+    }
+    
+    private static int bucketWithCount(LatencyHistogram histogram) {
+        int found = -1;
+        for (int i = 0; i < histogram.counts.length; i++) {
+            if (histogram.counts[i] > 0) {
+                assertEquals("only one bucket", -1, found);
+                found = i;
+            }
+        }
+        return found;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-process Transport for exercising links without hardware. Each address is a Device that
+// records the bytes written to it; a device can be taken offline, which also breaks its open
+// connections, or made slow, which stalls every write to it like a congested RFCOMM link.
+// An acknowledging device answers each binary command frame with an ACK frame after a set
+// delay, and can be told to lose some ACKs to exercise retransmission or to ACK heartbeats.
+public class MemoryTransport implements Transport {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    
+    public static class Device {
+        private final String address;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private volatile boolean online = true;
+        private volatile long writeDelayMs;
+        private volatile int connectCount;
+        private volatile boolean acknowledging;
+        private volatile long ackDelayMs;
+        private volatile boolean acknowledgingHeartbeats;
+        private int acksToDrop;
+        
+        Device(String address) {
+            this.address = address;
+        }
+        
+        public String getAddress() {
+            return address;
+        }
+        
+        // Connecting fails and open connections fail on their next write while offline
+        public void setOnline(boolean online) {
+            this.online = online;
+        }
+        
+        public boolean isOnline() {
+            return online;
+        }
+        
+        public void setWriteDelay(long ms) {
+            this.writeDelayMs = ms;
+        }
+        
+        public int getConnectCount() {
+            return connectCount;
+        }
+        
+        public void setAcknowledging(boolean acknowledging, long delayMs) {
+            this.acknowledging = acknowledging;
+            this.ackDelayMs = delayMs;
+        }
+        
+        public void setAcknowledgingHeartbeats(boolean acknowledging) {
+            this.acknowledgingHeartbeats = acknowledging;
+        }
+        
+        // The next count ACKs are never sent
+        public synchronized void dropAcks(int count) {
+            acksToDrop = count;
+        }
+        
+        synchronized boolean takeDroppedAck() {
+            if (acksToDrop > 0) {
+                acksToDrop--;
+                return true;
+            }
+            return false;
+        }
+        
+        public byte[] getReceived() {
+            synchronized (received) {
+                return received.toByteArray();
+            }
+        }
+        
+        public String getReceivedText() {
+            return new String(getReceived(), UTF_8);
+        }
+        
+        void receive(byte[] bytes, int offset, int length) throws IOException {
+            long delay = writeDelayMs;
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Write to " + address + " interrupted");
+                }
+            }
+            if (!online) {
+                throw new IOException("Connection reset by " + address);
+            }
+            synchronized (received) {
+                received.write(bytes, offset, length);
+            }
+        }
+    }
+    
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    
+    public Device addDevice(String address) {
+        Device device = new Device(address);
+        devices.put(address, device);
+        return device;
+    }
+    
+    public Device getDevice(String address) {
+        return devices.get(address);
+    }
+    
+    @Override
+    public Connection connect(String address) throws IOException {
+        Device device = devices.get(address);
+        if (device == null || !device.online) {
+            throw new IOException("No route to " + address);
+        }
+        device.connectCount++;
+        return new MemoryConnection(device);
+    }
+    
+    // What a device sends back; each chunk becomes readable once its delay has passed
+    private static class ReplyStream extends InputStream {
+        private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+        private final ArrayDeque<Long> readyNanos = new ArrayDeque<>();
+        private boolean closed;
+        
+        synchronized void add(byte[] chunk, long delayMs) {
+            chunks.add(chunk);
+            readyNanos.add(System.nanoTime() + delayMs * 1000000);
+            notifyAll();
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+        
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                while (!closed) {
+                    long wait = chunks.isEmpty() ? 0 : readyNanos.peek() - System.nanoTime();
+                    if (!chunks.isEmpty() && wait <= 0) {
+                        byte[] chunk = chunks.peek();
+                        int n = Math.min(length, chunk.length);
+                        System.arraycopy(chunk, 0, buffer, offset, n);
+                        if (n == chunk.length) {
+                            chunks.poll();
+                            readyNanos.poll();
+                        } else {
+                            chunks.poll();
+                            chunks.addFirst(Arrays.copyOfRange(chunk, n, chunk.length));
+                        }
+                        return n;
+                    }
+                    wait(chunks.isEmpty() ? 0 : Math.max(1, wait / 1000000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Read interrupted");
+            }
+            return -1;
+        }
+        
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+    
+    private static class MemoryConnection implements Connection, FrameDecoder.FrameListener {
+        private final Device device;
+        private volatile boolean closed;
+        private final ReplyStream replies = new ReplyStream();
+        private final FrameDecoder decoder = new FrameDecoder(this);
+        private final FrameEncoder ack = new FrameEncoder(FrameEncoder.MAX_FRAME_SIZE);
+        private final OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+            
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+                device.receive(bytes, offset, length);
+                if (device.acknowledging) {
+                    synchronized (decoder) {
+                        decoder.feed(bytes, offset, length);
+                    }
+                }
+            }
+        };
+        
+        MemoryConnection(Device device) {
+            this.device = device;
+        }
+        
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+        
+        @Override
+        public void onFrame(int sequence, int commandId, byte[] payload, int offset, int length) {
+            if ((commandId == FrameEncoder.HEARTBEAT_COMMAND_ID && !device.acknowledgingHeartbeats)
+                    || device.takeDroppedAck()) {
+                return;
+            }
+            ack.clear();
+            ack.appendFrame(sequence, FrameEncoder.ACK_COMMAND_ID, payload, offset, 0);
+            replies.add(Arrays.copyOf(ack.array(), ack.size()), device.ackDelayMs);
+        }
+        
+        @Override
+        public InputStream getInputStream() {
+            return replies;
+        }
+        
+        @Override
+        public boolean isConnected() {
+            return !closed && device.online;
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+            replies.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+// MfccExtractor against golden vectors, and computeFrame() calls interleaved with streaming.
+// The tone vector comes from a double-precision reference with a naive DFT and the same
+// filterbank definition, so it checks the FFT, tables and float rounding together.
+public class MfccExtractorTest {
+    private static final int SAMPLE_RATE = 16000;
+    
+    // Default settings, first frame of tone() (pre-emphasis starting from 0)
+    private static final float[] TONE_MFCC = {
+        79.9976f, 4.7439f, -4.8625f, 0.1810f, 1.2427f, -7.6430f, -11.2462f,
+        -2.5652f, 4.7876f, 1.8763f, -0.9739f, 3.4680f, 6.1518f
+    };
+    
+    private final MfccExtractor extractor = new MfccExtractor(SAMPLE_RATE);
+    
+    @Test
+    public void matchesReferenceForTone() {
+        float[] out = new float[extractor.getNumCoefficients()];
+        extractor.computeFrame(tone(extractor.getFrameLength()), 0, out);
+        assertArrayEquals(TONE_MFCC, out, 0.01f);
+    }
+    
+    @Test
+    public void silenceHitsTheLogFloorInEveryBand() {
+        float[] out = new float[extractor.getNumCoefficients()];
+        extractor.computeFrame(new short[extractor.getFrameLength()], 0, out);
+        // Every log energy is ln(1e-10); the orthonormal DCT keeps only c0 = sqrt(26) * that
+        assertEquals(Math.sqrt(MfccExtractor.DEFAULT_FILTERS) * Math.log(1e-10), out[0], 0.01);
+        for (int i = 1; i < out.length; i++) {
+            assertEquals(0, out[i], 0.01);
+        }
+    }
+    
+    @Test
+    public void streamedFramesMatchComputeFrame() {
+        short[] samples = tone(SAMPLE_RATE / 4);
+        List<float[]> streamed = stream(extractor, samples);
+        
+        int frameLength = extractor.getFrameLength();
+        int hop = extractor.getHopLength();
+        float[] out = new float[extractor.getNumCoefficients()];
+        for (int i = 0; i < streamed.size(); i++) {
+            extractor.computeFrame(samples, i * hop, out);
+            assertArrayEquals("frame " + i, streamed.get(i), out, 1e-3f);
+        }
+        assertEquals((samples.length - frameLength) / hop + 1, streamed.size());
+    }
+    
+    @Test
+    public void computeFrameLeavesTheStreamAlone() {
+        short[] samples = tone(SAMPLE_RATE / 4);
+        List<float[]> expected = stream(new MfccExtractor(SAMPLE_RATE), samples);
+        
+        // Same stream, with a one-off frame of something else computed between every chunk
+        short[] other = new short[extractor.getFrameLength()];
+        for (int i = 0; i < other.length; i++) {
+            other[i] = (short) (i * 37);
+        }
+        final List<float[]> frames = new ArrayList<>();
+        extractor.setFrameListener(new MfccExtractor.FrameListener() {
+            @Override
+            public void onFrame(float[] coefficients, long frameIndex) {
+                frames.add(coefficients.clone());
+            }
+        });
+        float[] scratch = new float[extractor.getNumCoefficients()];
+        for (int offset = 0; offset < samples.length; offset += 123) {
+            extractor.accept(samples, offset, Math.min(123, samples.length - offset));
+            extractor.computeFrame(other, 0, scratch);
+        }
+        assertEquals(expected.size(), frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertArrayEquals("frame " + i, expected.get(i), frames.get(i), 0f);
+        }
+    }
+    
+    private static List<float[]> stream(MfccExtractor extractor, short[] samples) {
+        final List<float[]> frames = new ArrayList<>();
+        extractor.reset();
+        extractor.setFrameListener(new MfccExtractor.FrameListener() {
+            @Override
+            public void onFrame(float[] coefficients, long frameIndex) {
+                frames.add(coefficients.clone());
+            }
+        });
+        extractor.accept(samples, 0, samples.length);
+        extractor.setFrameListener(null);
+        return frames;
+    }
+    
+    // 440 Hz plus a weaker 1800 Hz, rounded to 16 bits
+    private static short[] tone(int length) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) Math.round(8000 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE)
+                + 3000 * Math.sin(2 * Math.PI * 1800 * i / SAMPLE_RATE));
+        }
+        return samples;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+
+// The confidence gate motion commands pass before they are sent: a high enough score, and a
+// lead over the runner-up.
+public class RecognitionResultTest {
+    private static final double MIN_CONFIDENCE = 0.75;
+    private static final double MIN_MARGIN = 0.05;
+    
+    private final RecognitionResult result = new RecognitionResult();
+    
+    @Test
+    public void builtInLeftAndRightTieAndAreNeverConfident() {
+        CommandMatcher matcher = PatternClassifier.createDefaultMatcher();
+        // One short syllable, too quiet for "stop"
+        assertTrue(matcher.findMatches(0.55, 2200, 1, result));
+        assertEquals(2, result.getCount());
+        assertEquals(new HashSet<>(Arrays.asList("left", "right")),
+                new HashSet<>(Arrays.asList(result.getCommand(0), result.getCommand(1))));
+        assertTrue("confidence " + result.getConfidence(), result.getConfidence() >= MIN_CONFIDENCE);
+        assertEquals(0, result.getMargin(), 0);
+        assertFalse(result.isConfident(MIN_CONFIDENCE, MIN_MARGIN));
+        assertFalse(result.isConfident(0, Double.MIN_VALUE));
+    }
+    
+    @Test
+    public void needsBothTheScoreAndTheLead() {
+        assertFalse(result.isConfident(0, 0));
+        
+        result.offer("forward", 0.9);
+        assertTrue(result.isConfident(MIN_CONFIDENCE, MIN_MARGIN));
+        result.offer("stop", 0.6);
+        assertTrue(result.isConfident(MIN_CONFIDENCE, MIN_MARGIN));
+        
+        // A runner-up within the margin
+        result.offer("backward", 0.87);
+        assertEquals("forward", result.getCommand());
+        assertFalse(result.isConfident(MIN_CONFIDENCE, MIN_MARGIN));
+        
+        result.reset();
+        result.offer("forward", 0.7);
+        assertFalse(result.isConfident(MIN_CONFIDENCE, MIN_MARGIN));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.yourpackage.voicecontrol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+// TCP stand-in for the RFCOMM link; addresses are "host:port"
+public class SocketTransport implements Transport {
+    private final int connectTimeoutMs;
+    
+    public SocketTransport(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+    
+    @Override
+    public Connection connect(String address) throws IOException {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IOException("Expected host:port, got " + address);
+        }
+        String host = address.substring(0, separator);
+        int port;
+        try {
+            port = Integer.parseInt(address.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid port in " + address);
+        }
+        
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return new SocketConnection(socket);
+    }
+    
+    private static class SocketConnection implements Connection {
+        private final Socket socket;
+        
+        SocketConnection(Socket socket) {
+            this.socket = socket;
+        }
+        
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return socket.getOutputStream();
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return socket.getInputStream();
+        }
+        
+        @Override
+        public boolean isConnected() {
+            return socket.isConnected() && !socket.isClosed();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
\ No newline at end of file
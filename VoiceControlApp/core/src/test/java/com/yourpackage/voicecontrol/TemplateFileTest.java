@@ -0,0 +1,264 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// TemplateFile round trips in both encodings, its checksums against damaged files, and the
+// hand-written float16 rounding at the edges of the half range.
+public class TemplateFileTest {
+    private static final int DIMENSION = 13;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void roundTripsFloat16() throws IOException {
+        Random random = new Random(1);
+        CommandTemplate forward = template("forward", random, 40);
+        CommandTemplate forwardAgain = template("forward", random, 31);
+        CommandTemplate stop = template("stop", random, 25);
+        File file = write(TemplateFile.Encoding.FLOAT16, forward, forwardAgain, stop);
+        
+        TemplateFile templates = TemplateFile.open(file);
+        assertEquals(TemplateFile.Encoding.FLOAT16, templates.getEncoding());
+        assertEquals(DIMENSION, templates.getDimension());
+        assertEquals(2, templates.getCommandCount());
+        assertEquals(3, templates.getTotalTemplateCount());
+        assertEquals(0, templates.findSlot(1));
+        assertEquals(1, templates.findSlot(7));
+        assertEquals(-1, templates.findSlot(2));
+        assertEquals("forward", templates.getCommandName(0));
+        assertEquals("stop", templates.getCommandName(1));
+        assertEquals(7, templates.getCommandSlot(1));
+        assertEquals(2, templates.getTemplateCount(0));
+        
+        assertFrames(forward, templates.loadTemplate(0, 0), 1.0f / 2048);
+        assertFrames(forwardAgain, templates.loadTemplate(0, 1), 1.0f / 2048);
+        assertFrames(stop, templates.loadTemplate(1, 0), 1.0f / 2048);
+        assertEquals(3, templates.loadTemplates().size());
+    }
+    
+    @Test
+    public void roundTripsInt8() throws IOException {
+        Random random = new Random(2);
+        CommandTemplate left = template("links abbiegen \u00fc", random, 33);
+        CommandTemplate right = template("right", random, 12);
+        File file = write(TemplateFile.Encoding.INT8, left, right);
+        
+        TemplateFile templates = TemplateFile.open(file);
+        assertEquals(TemplateFile.Encoding.INT8, templates.getEncoding());
+        assertEquals("links abbiegen \u00fc", templates.getCommandName(0));
+        List<CommandTemplate> loaded = templates.loadTemplates();
+        assertEquals(2, loaded.size());
+        // Rounded to the nearest of 127 steps of each dimension's largest magnitude
+        for (int i = 0; i < 2; i++) {
+            CommandTemplate original = i == 0 ? left : right;
+            CommandTemplate copy = loaded.get(i);
+            assertEquals(original.getCommand(), copy.getCommand());
+            assertEquals(original.getFrameCount(), copy.getFrameCount());
+            for (int d = 0; d < DIMENSION; d++) {
+                float max = 0;
+                for (int f = 0; f < original.getFrameCount(); f++) {
+                    max = Math.max(max, Math.abs(original.getFrames()[f * DIMENSION + d]));
+                }
+                for (int f = 0; f < original.getFrameCount(); f++) {
+                    int k = f * DIMENSION + d;
+                    assertEquals("frame " + f + " dim " + d, original.getFrames()[k], copy.getFrames()[k], max / 254 * 1.001f);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void sameContentHasTheSameChecksum() throws IOException {
+        Random random = new Random(3);
+        CommandTemplate stop = template("stop", random, 20);
+        long checksum = TemplateFile.open(write(TemplateFile.Encoding.FLOAT16, stop)).getChecksum();
+        assertEquals(checksum, TemplateFile.open(write(TemplateFile.Encoding.FLOAT16, stop)).getChecksum());
+        CommandTemplate changed = new CommandTemplate("stop", stop.getFrames().clone(), 20, DIMENSION);
+        changed.getFrames()[5] += 1;
+        assertTrue(checksum != TemplateFile.open(write(TemplateFile.Encoding.FLOAT16, changed)).getChecksum());
+    }
+    
+    @Test
+    public void rejectsAFlippedIndexByte() throws IOException {
+        Random random = new Random(4);
+        File file = write(TemplateFile.Encoding.FLOAT16, template("forward", random, 20), template("stop", random, 20));
+        // The first letter of the first command name, just after the header
+        flip(file, 36 + 4);
+        assertRejected(file, "index checksum");
+    }
+    
+    @Test
+    public void rejectsAFlippedHeaderByte() throws IOException {
+        Random random = new Random(5);
+        File file = write(TemplateFile.Encoding.INT8, template("forward", random, 20));
+        // The dimension
+        flip(file, 8);
+        assertRejected(file, "index checksum");
+    }
+    
+    @Test
+    public void rejectsAFlippedDataByteOnlyWhenLoading() throws IOException {
+        Random random = new Random(6);
+        File file = write(TemplateFile.Encoding.FLOAT16, template("forward", random, 20), template("stop", random, 20));
+        flip(file, file.length() - 1);
+        
+        // Listing commands doesn't read the frame data
+        TemplateFile templates = TemplateFile.open(file);
+        assertEquals(2, templates.getCommandCount());
+        assertEquals("stop", templates.getCommandName(1));
+        try {
+            templates.loadTemplate(0, 0);
+            fail("Loaded a template from damaged data");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("data checksum"));
+        }
+    }
+    
+    @Test
+    public void rejectsATruncatedFile() throws IOException {
+        Random random = new Random(7);
+        File file = write(TemplateFile.Encoding.INT8, template("forward", random, 20));
+        long length = file.length();
+        truncate(file, length - 1);
+        assertRejected(file, "bad header");
+        truncate(file, 20);
+        assertRejected(file, "not a template file");
+        truncate(file, 0);
+        assertRejected(file, "not a template file");
+    }
+    
+    @Test
+    public void halfRoundsSubnormalsToNearestEven() {
+        float tiny = 5.9604645e-8f; // 2^-24, the smallest subnormal half
+        assertEquals(0x0001, TemplateFile.toHalf(tiny));
+        assertEquals(0x8001, TemplateFile.toHalf(-tiny) & 0xFFFF);
+        // Halfway between 0 and the smallest subnormal: ties go to the even 0
+        assertEquals(0x0000, TemplateFile.toHalf(tiny / 2));
+        assertEquals(0x8000, TemplateFile.toHalf(-tiny / 2) & 0xFFFF);
+        assertEquals(0x0001, TemplateFile.toHalf(Math.nextUp(tiny / 2)));
+        assertEquals(0x0001, TemplateFile.toHalf(tiny * 0.75f));
+        assertEquals(0x0000, TemplateFile.toHalf(tiny / 4));
+        assertEquals(0x0000, TemplateFile.toHalf(Float.MIN_VALUE));
+        // 1.5 and 2.5 steps both go to 2
+        assertEquals(0x0002, TemplateFile.toHalf(tiny * 1.5f));
+        assertEquals(0x0002, TemplateFile.toHalf(tiny * 2.5f));
+        assertEquals(0x0003, TemplateFile.toHalf(Math.nextUp(tiny * 2.5f)));
+        // The largest subnormal, and halfway past it carries into the smallest normal
+        assertEquals(0x03FF, TemplateFile.toHalf(tiny * 1023));
+        assertEquals(0x0400, TemplateFile.toHalf(tiny * 1023.5f));
+        assertEquals(0x0400, TemplateFile.toHalf(6.1035156e-5f)); // 2^-14
+        assertEquals(tiny * 1023, TemplateFile.fromHalf((short) 0x03FF), 0);
+    }
+    
+    @Test
+    public void halfRoundsNormalsToNearestEven() {
+        assertEquals(0x3C00, TemplateFile.toHalf(1));
+        // Halfway between 1 and the next half goes down to the even 1, the next tie goes up
+        assertEquals(0x3C00, TemplateFile.toHalf(1 + 1.0f / 2048));
+        assertEquals(0x3C01, TemplateFile.toHalf(Math.nextUp(1 + 1.0f / 2048)));
+        assertEquals(0x3C02, TemplateFile.toHalf(1 + 3.0f / 2048));
+        assertEquals(2048, TemplateFile.fromHalf(TemplateFile.toHalf(2049)), 0);
+        assertEquals(2052, TemplateFile.fromHalf(TemplateFile.toHalf(2051)), 0);
+        // Rounding up the last mantissa step carries into the exponent
+        assertEquals(0x4000, TemplateFile.toHalf(Math.nextDown(2.0f)));
+        assertEquals(0x8000, TemplateFile.toHalf(-0.0f) & 0xFFFF);
+    }
+    
+    @Test
+    public void halfOverflowsToInfinity() {
+        assertEquals(0x7BFF, TemplateFile.toHalf(65504)); // largest half
+        assertEquals(0x7BFF, TemplateFile.toHalf(65519));
+        // Halfway to 65536 rounds away from the odd largest half, i.e. to infinity
+        assertEquals(0x7C00, TemplateFile.toHalf(65520));
+        assertEquals(0x7C00, TemplateFile.toHalf(1e6f));
+        assertEquals(0xFC00, TemplateFile.toHalf(-1e6f) & 0xFFFF);
+        assertEquals(0x7C00, TemplateFile.toHalf(Float.POSITIVE_INFINITY));
+        assertEquals(0xFC00, TemplateFile.toHalf(Float.NEGATIVE_INFINITY) & 0xFFFF);
+        assertEquals(Float.POSITIVE_INFINITY, TemplateFile.fromHalf((short) 0x7C00), 0);
+        assertTrue(Float.isNaN(TemplateFile.fromHalf(TemplateFile.toHalf(Float.NaN))));
+    }
+    
+    @Test
+    public void everyHalfSurvivesARoundTrip() {
+        for (int bits = 0; bits <= 0xFFFF; bits++) {
+            float value = TemplateFile.fromHalf((short) bits);
+            if (!Float.isNaN(value)) {
+                assertEquals(Integer.toHexString(bits), bits, TemplateFile.toHalf(value) & 0xFFFF);
+            }
+        }
+    }
+    
+    private File write(TemplateFile.Encoding encoding, CommandTemplate... templates) throws IOException {
+        TemplateFile.Writer writer = new TemplateFile.Writer(DIMENSION, encoding);
+        int start = 0;
+        int slot = 1;
+        for (int i = 1; i <= templates.length; i++) {
+            if (i == templates.length || !templates[i].getCommand().equals(templates[start].getCommand())) {
+                writer.addCommand(slot, templates[start].getCommand(), Arrays.asList(templates).subList(start, i));
+                start = i;
+                slot += 6;
+            }
+        }
+        File file = folder.newFile();
+        writer.write(file);
+        return file;
+    }
+    
+    // MFCC-like magnitudes: a large c0, smaller higher coefficients
+    private static CommandTemplate template(String command, Random random, int frameCount) {
+        float[] frames = new float[frameCount * DIMENSION];
+        for (int i = 0; i < frames.length; i++) {
+            int d = i % DIMENSION;
+            frames[i] = (float) random.nextGaussian() * (d == 0 ? 40 : 8.0f / d);
+        }
+        return new CommandTemplate(command, frames, frameCount, DIMENSION);
+    }
+    
+    // Within the relative precision of a half, or the given step near zero
+    private static void assertFrames(CommandTemplate expected, CommandTemplate actual, float relative) {
+        assertEquals(expected.getCommand(), actual.getCommand());
+        assertEquals(expected.getFrameCount(), actual.getFrameCount());
+        float[] a = expected.getFrames();
+        float[] b = actual.getFrames();
+        for (int i = 0; i < expected.getFrameCount() * DIMENSION; i++) {
+            assertEquals("value " + i, a[i], b[i], Math.max(Math.abs(a[i]) * relative, 1e-7f));
+        }
+    }
+    
+    private static void assertRejected(File file, String reason) {
+        try {
+            TemplateFile.open(file);
+            fail("Opened a damaged file");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(reason));
+        }
+    }
+    
+    private static void flip(File file, long pos) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0x04);
+        }
+    }
+    
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+}
\ No newline at end of file
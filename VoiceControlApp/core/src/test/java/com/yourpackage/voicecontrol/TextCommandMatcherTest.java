@@ -0,0 +1,271 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+// TextCommandMatcher's three indexes, and the BK-tree search with its banded distance
+// against a brute-force scan with the full Levenshtein distance, which must find the same
+// commands with the same scores.
+public class TextCommandMatcherTest {
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ter", "von", "sa", "ri", "do", "pel", "nu", "ga", "shi", "for", "bek", "tan", "le"
+    };
+    private static final String LETTERS = "abdefiklmnoprstuvx ";
+    
+    private final RecognitionResult result = new RecognitionResult();
+    
+    @Test
+    public void exactTextScoresOne() {
+        TextCommandMatcher matcher = new TextCommandMatcher.Builder()
+                .add("Move forward", "forward")
+                .add("stop", "stop")
+                .build();
+        
+        assertTrue(matcher.match("  move,  FORWARD! ", result));
+        assertEquals("forward", result.getCommand());
+        assertEquals(1, result.getConfidence(), 0);
+        assertEquals(1, result.getCount());
+    }
+    
+    @Test
+    public void soundAlikeTextMatchesPhonetically() {
+        assertEquals(PhoneticKey.encode("right"), PhoneticKey.encode("rite"));
+        assertEquals(PhoneticKey.encode("night"), PhoneticKey.encode("knight"));
+        assertEquals(PhoneticKey.encode("phone"), PhoneticKey.encode("fone"));
+        assertEquals(PhoneticKey.encode("turn off"), PhoneticKey.encode("turn of"));
+        assertEquals("trn rt", PhoneticKey.encode("Turn  right"));
+        assertFalse(PhoneticKey.encode("left").equals(PhoneticKey.encode("lift off")));
+        
+        TextCommandMatcher matcher = new TextCommandMatcher.Builder()
+                .add("turn right", "right")
+                .add("turn left", "left")
+                .build();
+        // Three edits away, too many for nine characters; only the phonetic key finds it
+        assertTrue(matcher.match("turn rite", result));
+        assertEquals("right", result.getCommand());
+        assertEquals(TextCommandMatcher.PHONETIC_SCORE, result.getConfidence(), 0);
+        assertEquals(1, result.getCount());
+    }
+    
+    @Test
+    public void misspelledTextMatchesWithinMaxEdits() {
+        assertEquals(0, TextCommandMatcher.maxEdits(3));
+        assertEquals(1, TextCommandMatcher.maxEdits(4));
+        assertEquals(1, TextCommandMatcher.maxEdits(7));
+        assertEquals(2, TextCommandMatcher.maxEdits(8));
+        assertEquals(3, TextCommandMatcher.maxEdits(12));
+        assertEquals(3, TextCommandMatcher.maxEdits(40));
+        
+        TextCommandMatcher matcher = new TextCommandMatcher.Builder()
+                .add("backward", "backward")
+                .add("go", "go")
+                .build();
+        
+        // Eight characters allow two edits
+        assertTrue(matcher.match("bxckwxrd", result));
+        assertEquals("backward", result.getCommand());
+        assertEquals(1 - 2.0 / 8, result.getConfidence(), 1e-9);
+        
+        // One more is just past the bound
+        assertFalse(matcher.match("bxckwxrx", result));
+        assertTrue(result.isEmpty());
+        
+        // Short words must be spelled exactly, whatever the edit
+        assertFalse(matcher.match("ho", result));
+        
+        // Scored against the longer of the two, here the text
+        assertTrue(matcher.match("backwards", result));
+        assertEquals(1 - 1.0 / 9, result.getConfidence(), 1e-9);
+    }
+    
+    @Test
+    public void ranksCloserCommandsFirstAndKeepsTiesTogether() {
+        TextCommandMatcher matcher = new TextCommandMatcher.Builder()
+                .add("light one", "light one")
+                .add("light two", "light two")
+                .add("night one", "night one")
+                .add("lamp red", "red")
+                .add("lamp rod", "rod")
+                .add("right", "right")
+                .add("rite", "rite")
+                .build();
+        
+        assertTrue(matcher.match("light onx", result));
+        assertEquals(2, result.getCount());
+        assertEquals("light one", result.getCommand(0));
+        assertEquals(1 - 1.0 / 9, result.getScore(0), 1e-9);
+        assertEquals("night one", result.getCommand(1));
+        assertEquals(1 - 2.0 / 9, result.getScore(1), 1e-9);
+        
+        assertTrue(matcher.match("lamp rxd", result));
+        assertEquals(2, result.getCount());
+        assertEquals(result.getScore(0), result.getScore(1), 0);
+        assertEquals(0, result.getMargin(), 0);
+        assertTrue(result.getCommand(0).equals("red") ? result.getCommand(1).equals("rod")
+                : result.getCommand(0).equals("rod") && result.getCommand(1).equals("red"));
+        
+        // The exact phrase beats its homophone, and keeps its own phonetic score from showing
+        assertTrue(matcher.match("right", result));
+        assertEquals(2, result.getCount());
+        assertEquals("right", result.getCommand(0));
+        assertEquals(1, result.getScore(0), 0);
+        assertEquals("rite", result.getCommand(1));
+        assertEquals(TextCommandMatcher.PHONETIC_SCORE, result.getScore(1), 0);
+    }
+    
+    @Test
+    public void laterPhraseReplacesTheCommandOfAnEarlierOne() {
+        TextCommandMatcher matcher = new TextCommandMatcher.Builder()
+                .add("lights", "on")
+                .add("Lights!", "off")
+                .build();
+        assertEquals(1, matcher.size());
+        assertTrue(matcher.match("lights", result));
+        assertEquals("off", result.getCommand());
+    }
+    
+    @Test
+    public void bandedDistanceMatchesFullDistanceUpToItsLimit() {
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            String a = randomText(random, random.nextInt(14));
+            String b = random.nextInt(3) == 0 ? randomText(random, random.nextInt(14)) : edit(random, a, random.nextInt(5));
+            int limit = random.nextInt(6);
+            int[] previous = new int[b.length() + 2];
+            int[] current = new int[b.length() + 2];
+            int full = levenshtein(a, b);
+            assertEquals(a + " / " + b + " within " + limit, Math.min(full, limit + 1),
+                    TextCommandMatcher.distance(a, b, limit, previous, current));
+        }
+    }
+    
+    @Test
+    public void treeSearchFindsWhatAFullScanFinds() {
+        Random random = new Random(42);
+        TextCommandMatcher.Builder builder = new TextCommandMatcher.Builder();
+        Map<String, String> phrases = new LinkedHashMap<>();
+        while (phrases.size() < 3000) {
+            String phrase = phrase(random) + (random.nextBoolean() ? " " + phrase(random) : "");
+            phrases.put(phrase, phrase);
+            builder.add(phrase, phrase);
+        }
+        TextCommandMatcher matcher = builder.build();
+        assertEquals(phrases.size(), matcher.size());
+        String[] terms = phrases.keySet().toArray(new String[0]);
+        
+        // Room for every hit, so the comparison doesn't depend on how ties are cut off
+        RecognitionResult all = new RecognitionResult(terms.length);
+        int hits = 0;
+        for (int i = 0; i < 2000; i++) {
+            String query = i % 10 == 0 ? phrase(random) : edit(random, terms[random.nextInt(terms.length)], random.nextInt(4));
+            query = TextCommandMatcher.normalize(query);
+            
+            Map<String, Double> expected = scan(terms, query);
+            boolean found = matcher.match(query, all);
+            assertEquals(query, !expected.isEmpty(), found);
+            assertEquals(query, expected.size(), all.getCount());
+            for (int rank = 0; rank < all.getCount(); rank++) {
+                Double score = expected.get(all.getCommand(rank));
+                assertTrue(query + " found " + all.getCommand(rank), score != null);
+                assertEquals(query + " -> " + all.getCommand(rank), score, all.getScore(rank), 1e-9);
+                if (rank > 0) {
+                    assertTrue(query, all.getScore(rank - 1) >= all.getScore(rank));
+                }
+            }
+            hits += all.getCount();
+        }
+        // The queries must actually exercise the fuzzy search
+        assertTrue("only " + hits + " hits", hits > 2000);
+    }
+    
+    // Best score per command, checking every phrase the way match() describes it
+    private static Map<String, Double> scan(String[] terms, String query) {
+        Map<String, Double> scores = new HashMap<>();
+        boolean exact = false;
+        for (String term : terms) {
+            if (term.equals(query)) {
+                scores.put(term, 1.0);
+                exact = true;
+            }
+        }
+        String key = PhoneticKey.encode(query);
+        int bound = TextCommandMatcher.maxEdits(query.length());
+        for (String term : terms) {
+            double score = -1;
+            if (PhoneticKey.encode(term).equals(key)) {
+                score = TextCommandMatcher.PHONETIC_SCORE;
+            }
+            if (bound > 0 && !exact) {
+                int distance = levenshtein(term, query);
+                if (distance <= bound) {
+                    score = Math.max(score, 1 - (double) distance / Math.max(term.length(), query.length()));
+                }
+            }
+            Double previous = scores.get(term);
+            if (score >= 0 && (previous == null || previous < score)) {
+                scores.put(term, score);
+            }
+        }
+        return scores;
+    }
+    
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]) + 1, d[i - 1][j - 1] + cost);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+    
+    private static String phrase(Random random) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < 2 + random.nextInt(2); i++) {
+            phrase.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return phrase.toString();
+    }
+    
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(LETTERS.charAt(random.nextInt(LETTERS.length() - 1)));
+        }
+        return text.toString();
+    }
+    
+    // Up to that many random substitutions, insertions and deletions
+    private static String edit(Random random, String text, int edits) {
+        StringBuilder edited = new StringBuilder(text);
+        for (int i = 0; i < edits; i++) {
+            int pos = random.nextInt(edited.length() + 1);
+            char c = LETTERS.charAt(random.nextInt(LETTERS.length()));
+            int kind = random.nextInt(3);
+            if (kind == 0 || edited.length() == 0) {
+                edited.insert(pos, c);
+            } else if (pos == edited.length()) {
+                edited.setCharAt(pos - 1, c);
+            } else if (kind == 1) {
+                edited.setCharAt(pos, c);
+            } else {
+                edited.deleteCharAt(pos);
+            }
+        }
+        return edited.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.yourpackage.voicecontrol;
+
+// Runs an AudioSource through the recognition stages the way RecognitionEngine wires them,
+// only as fast as the source delivers: fixed frames through a FrameQueue, VAD segmentation
+// with pre-roll at onset, UtteranceFeatures per utterance, and a decision after
+// SILENCE_MS of silence or when the source ends.
+final class UtteranceReplay {
+    interface Handler {
+        void onUtterance(UtteranceFeatures features);
+    }
+    
+    static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_MS = 20;
+    private static final int SILENCE_MS = 600;
+    private static final int PRE_ROLL_MS = 200;
+    
+    private final AudioFramer framer = new AudioFramer(SAMPLE_RATE, FRAME_MS);
+    private final FrameQueue queue = new FrameQueue(framer.getFrameSamples(), 4, PRE_ROLL_MS / FRAME_MS);
+    private final VoiceActivityDetector detector = new VoiceActivityDetector(SAMPLE_RATE);
+    private final UtteranceFeatures features = new UtteranceFeatures(SAMPLE_RATE, 4000);
+    
+    // Returns the number of utterances handed to the handler
+    int run(AudioSource source, Handler handler) {
+        if (!source.start()) {
+            throw new IllegalStateException("Source failed to start");
+        }
+        queue.reset();
+        framer.reset();
+        detector.reset();
+        features.reset();
+        
+        int utterances = 0;
+        boolean speech = false;
+        int silentMs = 0;
+        while (true) {
+            int read = framer.readFrame(source, queue.array(), queue.claim());
+            if (read < 0) {
+                break;
+            }
+            if (read == 0) {
+                continue;
+            }
+            queue.publish(read);
+            int frame = queue.poll();
+            
+            if (detector.process(queue.array(), frame, queue.length())) {
+                if (!speech) {
+                    queue.drainPreRoll(features, SAMPLE_RATE * PRE_ROLL_MS / 1000);
+                    speech = true;
+                }
+                silentMs = 0;
+                if (detector.isFrameActive()) {
+                    features.accept(queue.array(), frame, queue.length());
+                }
+            } else if (speech) {
+                silentMs += FRAME_MS;
+                if (silentMs > SILENCE_MS) {
+                    utterances += finish(handler);
+                    speech = false;
+                    queue.discardHistory();
+                }
+            }
+        }
+        if (speech) {
+            utterances += finish(handler);
+        }
+        source.stop();
+        return utterances;
+    }
+    
+    private int finish(Handler handler) {
+        features.finish();
+        handler.onUtterance(features);
+        features.reset();
+        return 1;
+    }
+}
\ No newline at end of file
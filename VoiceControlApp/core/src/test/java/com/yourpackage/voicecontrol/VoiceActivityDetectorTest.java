@@ -0,0 +1,159 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// VoiceActivityDetector fed 10 ms frames of SyntheticAudioSource signals: a quiet room of
+// uniform noise, a 200 Hz tone standing in for voiced speech (zero-crossing rate 0.025),
+// thumps too low and hiss too dense to be a voice.
+public class VoiceActivityDetectorTest {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME = SAMPLE_RATE / 100;
+    private static final double ROOM = 30;
+    private static final double VOICE = 1500;
+    
+    private final VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE);
+    
+    @Test
+    public void loudBurstDoesNotRaiseTheThresholdForGood() {
+        SyntheticAudioSource source = new SyntheticAudioSource(SAMPLE_RATE, 1)
+                .addNoise(ROOM, 500)
+                // A slammed door: far louder than any speech, but too low to be a voice
+                .addTone(50, 25000, 150);
+        boolean[] speech = run(source);
+        assertNoSpeech(speech, 0, speech.length);
+        // The floor only creeps up while the burst lasts
+        assertTrue("floor " + vad.getNoiseFloorRms(), vad.getNoiseFloorRms() < 30);
+        
+        // Ordinary speech a second later is still heard
+        speech = run(new SyntheticAudioSource(SAMPLE_RATE, 2).addNoise(ROOM, 1000).addTone(200, VOICE, 300));
+        assertTrue("floor " + vad.getNoiseFloorRms(), vad.getNoiseFloorRms() < 20);
+        assertNoSpeech(speech, 0, 100);
+        assertTrue(speech[speech.length - 1]);
+        assertEquals(1, vad.getSpeechStartCount());
+    }
+    
+    @Test
+    public void floorFollowsALouderRoom() {
+        run(new SyntheticAudioSource(SAMPLE_RATE, 3).addNoise(ROOM, 500));
+        double quiet = vad.getNoiseFloorRms();
+        // A fan switched on, 20 dB louder, is followed at a few dB per second
+        run(new SyntheticAudioSource(SAMPLE_RATE, 4).addNoise(ROOM * 10, 1000));
+        assertTrue(vad.getNoiseFloorRms() < quiet * 3);
+        run(new SyntheticAudioSource(SAMPLE_RATE, 5).addNoise(ROOM * 10, 4000));
+        assertTrue("floor " + vad.getNoiseFloorRms(), vad.getNoiseFloorRms() > quiet * 8);
+        // And dropped again within a second
+        run(new SyntheticAudioSource(SAMPLE_RATE, 6).addNoise(ROOM, 1000));
+        assertEquals(quiet, vad.getNoiseFloorRms(), quiet * 0.25);
+    }
+    
+    @Test
+    public void onsetNeedsOnsetMsOfActivity() {
+        vad.setOnsetMs(30);
+        // Two active frames, a gap, two more: the count starts over and never gets there
+        boolean[] speech = run(new SyntheticAudioSource(SAMPLE_RATE, 7)
+                .addNoise(ROOM, 300)
+                .addTone(200, VOICE, 20)
+                .addNoise(ROOM, 10)
+                .addTone(200, VOICE, 20)
+                .addNoise(ROOM, 300));
+        assertNoSpeech(speech, 0, speech.length);
+        
+        // Three in a row: speech from the third on
+        speech = run(new SyntheticAudioSource(SAMPLE_RATE, 8).addTone(200, VOICE, 100));
+        assertFalse(speech[0]);
+        assertFalse(speech[1]);
+        assertTrue(speech[2]);
+        assertEquals(1, vad.getSpeechStartCount());
+        
+        vad.reset();
+        vad.setOnsetMs(80);
+        speech = run(new SyntheticAudioSource(SAMPLE_RATE, 9).addNoise(ROOM, 300).addTone(200, VOICE, 100));
+        assertNoSpeech(speech, 0, 37);
+        assertTrue(speech[37]);
+    }
+    
+    @Test
+    public void hangoverHoldsSpeechForHangoverMs() {
+        vad.setHangoverMs(200);
+        run(new SyntheticAudioSource(SAMPLE_RATE, 10).addNoise(ROOM, 300).addTone(200, VOICE, 300));
+        assertTrue(vad.isSpeech());
+        
+        boolean[] speech = run(new SyntheticAudioSource(SAMPLE_RATE, 11).addNoise(ROOM, 400));
+        // Carried through the first 190 ms by the hangover alone, ended by the frame
+        // that completes 200 ms
+        for (int i = 0; i < 19; i++) {
+            assertTrue("frame " + i, speech[i]);
+        }
+        assertNoSpeech(speech, 19, speech.length);
+        
+        // A pause shorter than the hangover is one utterance
+        speech = run(new SyntheticAudioSource(SAMPLE_RATE, 12)
+                .addTone(200, VOICE, 200)
+                .addNoise(ROOM, 150)
+                .addTone(200, VOICE, 200));
+        for (int i = 3; i < speech.length; i++) {
+            assertTrue("frame " + i, speech[i]);
+        }
+        assertEquals(2, vad.getSpeechStartCount());
+    }
+    
+    @Test
+    public void quieterSpeechKeepsGoingButCannotStart() {
+        // Below the absolute onset level of RMS 200, above the offset level of RMS 100
+        double quiet = 210;
+        boolean[] speech = run(new SyntheticAudioSource(SAMPLE_RATE, 13)
+                .addNoise(ROOM, 300)
+                .addTone(200, VOICE, 100)
+                .addTone(200, quiet, 500));
+        for (int i = 33; i < speech.length; i++) {
+            assertTrue("frame " + i, speech[i]);
+        }
+        assertTrue(vad.isFrameActive());
+        
+        vad.reset();
+        speech = run(new SyntheticAudioSource(SAMPLE_RATE, 14).addNoise(ROOM, 300).addTone(200, quiet, 500));
+        assertNoSpeech(speech, 0, speech.length);
+    }
+    
+    @Test
+    public void highZeroCrossingNoiseDoesNotStartSpeech() {
+        boolean[] speech = run(new SyntheticAudioSource(SAMPLE_RATE, 15)
+                .addNoise(ROOM, 300)
+                // Loud hiss, zero-crossing rate about 0.5
+                .addNoise(5000, 500)
+                .addNoise(ROOM, 300)
+                // A whistle at 4 kHz, also 0.5
+                .addTone(4000, 5000, 500));
+        assertNoSpeech(speech, 0, speech.length);
+        assertTrue(vad.getZeroCrossingRate() > VoiceActivityDetector.DEFAULT_MAX_ONSET_ZCR);
+        
+        // Allowing dense crossings lets the hiss through
+        vad.reset();
+        vad.setMaxOnsetZeroCrossingRate(0.6);
+        speech = run(new SyntheticAudioSource(SAMPLE_RATE, 16).addNoise(ROOM, 300).addNoise(5000, 100));
+        assertTrue(speech[speech.length - 1]);
+    }
+    
+    // Speech state after each frame
+    private boolean[] run(SyntheticAudioSource source) {
+        short[] frame = new short[FRAME];
+        boolean[] speech = new boolean[source.getLengthInSamples() / FRAME];
+        source.start();
+        for (int i = 0; i < speech.length; i++) {
+            assertEquals(FRAME, source.read(frame, 0, FRAME));
+            speech[i] = vad.process(frame, 0, FRAME);
+        }
+        source.stop();
+        return speech;
+    }
+    
+    private static void assertNoSpeech(boolean[] speech, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertFalse("frame " + i, speech[i]);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.yourpackage.voicecontrol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Replays a recorded session from a WAV fixture through the recognition stages, faster than
+// real time. replay/two_commands.wav holds a rising and a falling tone sequence, the same
+// shapes as the synthetic "alpha" and "beta" templates below, separated by background noise.
+public class WavReplayTest {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final double[] ALPHA = {300, 900, 500, 1200};
+    private static final double[] BETA = {1200, 500, 900, 300};
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void replaysRecordedCommandsInOrder() throws Exception {
+        final List<CommandTemplate> templates = new ArrayList<>();
+        UtteranceReplay replay = new UtteranceReplay();
+        for (int seed = 0; seed < 2; seed++) {
+            record(replay, word(seed, ALPHA), "alpha", templates);
+            record(replay, word(10 + seed, BETA), "beta", templates);
+        }
+        assertEquals(4, templates.size());
+        
+        final TemplateClassifier classifier = new TemplateClassifier(MfccExtractor.DEFAULT_COEFFICIENTS);
+        classifier.setTemplates(templates);
+        final List<String> recognized = new ArrayList<>();
+        WavFileAudioSource wav = new WavFileAudioSource(fixture("replay/two_commands.wav"),
+            UtteranceReplay.SAMPLE_RATE);
+        replay.run(wav, new UtteranceReplay.Handler() {
+            @Override
+            public void onUtterance(UtteranceFeatures features) {
+                RecognitionResult result = new RecognitionResult();
+                recognized.add(classifier.classify(features, result) ? result.getCommand() : "?");
+            }
+        });
+        
+        assertEquals("[alpha, beta]", recognized.toString());
+    }
+    
+    @Test
+    public void rejectsTruncatedFmtChunk() throws Exception {
+        ByteBuffer wav = header(8);
+        wav.put("fmt ".getBytes(ASCII)).putInt(8).putShort((short) 1).putShort((short) 1).putInt(16000);
+        assertRejected(wav);
+    }
+    
+    @Test
+    public void rejectsChunkLargerThanFile() throws Exception {
+        ByteBuffer wav = header(8);
+        wav.put("LIST".getBytes(ASCII)).putInt(-8).putLong(0);
+        assertRejected(wav);
+    }
+    
+    @Test
+    public void clampsDataChunkOfInterruptedRecording() throws Exception {
+        ByteBuffer wav = header(40);
+        wav.put("fmt ".getBytes(ASCII)).putInt(16).putShort((short) 1).putShort((short) 1)
+            .putInt(16000).putInt(32000).putShort((short) 2).putShort((short) 16);
+        wav.put("data".getBytes(ASCII)).putInt(-1).putShort((short) 1).putShort((short) 2);
+        
+        WavFileAudioSource source = new WavFileAudioSource(write(wav), 16000);
+        assertEquals(2, source.getLengthInSamples());
+    }
+    
+    private static ByteBuffer header(int bodyBytes) {
+        ByteBuffer wav = ByteBuffer.allocate(12 + bodyBytes + 8).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(ASCII)).putInt(4 + bodyBytes + 8).put("WAVE".getBytes(ASCII));
+        return wav;
+    }
+    
+    private void assertRejected(ByteBuffer wav) throws IOException {
+        File file = write(wav);
+        try {
+            new WavFileAudioSource(file, 16000);
+            fail("Accepted a malformed file");
+        } catch (IOException expected) {
+            // Reported as a bad file, not an unchecked exception
+        }
+    }
+    
+    private File write(ByteBuffer wav) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(wav.array(), 0, wav.position());
+        }
+        return file;
+    }
+    
+    private static void record(UtteranceReplay replay, AudioSource source, final String command,
+                               final List<CommandTemplate> templates) {
+        replay.run(source, new UtteranceReplay.Handler() {
+            @Override
+            public void onUtterance(UtteranceFeatures features) {
+                templates.add(features.toTemplate(command));
+            }
+        });
+    }
+    
+    // Four 150 ms tones in noise, slightly detuned per seed like different takes
+    private static SyntheticAudioSource word(int seed, double[] frequencies) {
+        SyntheticAudioSource source = new SyntheticAudioSource(UtteranceReplay.SAMPLE_RATE, seed);
+        source.addNoise(100, 300);
+        for (double frequency : frequencies) {
+            source.addSegment(150, frequency * (1 + 0.02 * (seed % 3)), 6000, 300);
+        }
+        return source.addNoise(100, 800);
+    }
+    
+    private File fixture(String name) throws Exception {
+        return new File(getClass().getClassLoader().getResource(name).toURI());
+    }
+}
\ No newline at end of file